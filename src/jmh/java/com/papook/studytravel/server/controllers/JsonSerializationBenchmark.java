@@ -0,0 +1,98 @@
+package com.papook.studytravel.server.controllers;
+
+import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+
+/**
+ * Measures writing a page of universities and study modules as JSON, as done
+ * for every collection response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+	// Discards the JSON, unlike OutputStream.nullOutputStream() it can be written
+	// to after Jackson closed it
+	private final OutputStream responseBody = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+	private ObjectMapper objectMapper;
+	private List<University> universities;
+	private List<StudyModule> modules;
+
+	@Setup
+	public void setUp() {
+		// Configured like the object mapper of Spring Boot
+		objectMapper = Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.build();
+
+		universities = new ArrayList<>();
+		modules = new ArrayList<>();
+		for (long id = 1; id <= PAGE_SIZE; id++) {
+			University university = University.builder()
+					.name("Technical University of Munich " + id)
+					.country("Germany")
+					.department("Computer Science")
+					.contactPersonName("Max Mustermann")
+					.outgoingStudentNumber(10)
+					.incomingStudentNumber(20)
+					.springSemesterStart(LocalDate.of(2025, 3, 1))
+					.fallSemesterStart(LocalDate.of(2025, 10, 1))
+					.build();
+			university.setId(id);
+			universities.add(university);
+
+			StudyModule module = StudyModule.builder()
+					.name("Distributed Systems " + id)
+					.creditPoints(5)
+					.build();
+			module.setSemester("FALL");
+			module.setId(id);
+			modules.add(module);
+		}
+	}
+
+	@Benchmark
+	public void writeUniversities() throws IOException {
+		objectMapper.writeValue(responseBody, universities);
+	}
+
+	@Benchmark
+	public void writeModules() throws IOException {
+		objectMapper.writeValue(responseBody, modules);
+	}
+}
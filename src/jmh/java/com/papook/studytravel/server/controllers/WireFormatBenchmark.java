@@ -0,0 +1,122 @@
+package com.papook.studytravel.server.controllers;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+
+/**
+ * Compares writing and reading a large page of universities and study modules
+ * as JSON, CBOR and Smile, as done by the server and a client pulling the whole
+ * catalogue. The size of every payload is printed once per format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+	private static final int PAGE_SIZE = 1000;
+
+	@Param({ "json", "cbor", "smile" })
+	public String format;
+
+	private ObjectMapper objectMapper;
+	// Read like the client reads a page
+	private JavaType pageType;
+	private List<University> universities;
+	private List<StudyModule> modules;
+	private byte[] universitiesPayload;
+	private byte[] modulesPayload;
+
+	@Setup
+	public void setUp() throws IOException {
+		JsonFactory factory = switch (format) {
+			case "cbor" -> new CBORFactory();
+			case "smile" -> new SmileFactory();
+			default -> new JsonFactory();
+		};
+		// Configured like the object mappers of Spring Boot
+		objectMapper = Jackson2ObjectMapperBuilder.json()
+				.factory(factory)
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.build();
+		pageType = objectMapper.getTypeFactory().constructCollectionType(List.class,
+				objectMapper.getTypeFactory().constructMapType(Map.class, String.class, String.class));
+
+		universities = new ArrayList<>();
+		modules = new ArrayList<>();
+		for (long id = 1; id <= PAGE_SIZE; id++) {
+			University university = University.builder()
+					.name("Technical University of Munich " + id)
+					.country("Germany")
+					.department("Computer Science")
+					.contactPersonName("Max Mustermann")
+					.outgoingStudentNumber(10)
+					.incomingStudentNumber(20)
+					.springSemesterStart(LocalDate.of(2025, 3, 1))
+					.fallSemesterStart(LocalDate.of(2025, 10, 1))
+					.build();
+			university.setId(id);
+			universities.add(university);
+
+			StudyModule module = StudyModule.builder()
+					.name("Distributed Systems " + id)
+					.creditPoints(5)
+					.build();
+			module.setSemester("FALL");
+			module.setId(id);
+			modules.add(module);
+		}
+
+		universitiesPayload = objectMapper.writeValueAsBytes(universities);
+		modulesPayload = objectMapper.writeValueAsBytes(modules);
+		System.out.printf("%n%s payload of %d universities: %d bytes, of %d modules: %d bytes%n",
+				format, PAGE_SIZE, universitiesPayload.length, PAGE_SIZE, modulesPayload.length);
+	}
+
+	@Benchmark
+	public byte[] writeUniversities() throws IOException {
+		return objectMapper.writeValueAsBytes(universities);
+	}
+
+	@Benchmark
+	public byte[] writeModules() throws IOException {
+		return objectMapper.writeValueAsBytes(modules);
+	}
+
+	@Benchmark
+	public List<Map<String, String>> readUniversities() throws IOException {
+		return objectMapper.readValue(universitiesPayload, pageType);
+	}
+
+	@Benchmark
+	public List<Map<String, String>> readModules() throws IOException {
+		return objectMapper.readValue(modulesPayload, pageType);
+	}
+}
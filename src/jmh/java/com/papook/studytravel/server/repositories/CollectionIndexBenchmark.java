@@ -0,0 +1,221 @@
+package com.papook.studytravel.server.repositories;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import com.papook.studytravel.StudyTravelApplication;
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Measures the SQL queries of the collection endpoints, the first page of 30
+ * rows, with and without the secondary indexes declared on the entities. The
+ * server creates the schema in an H2 file database in a temporary directory,
+ * the rows are inserted with one statement per table, and the queries are sent
+ * over JDBC, so only the database is measured. The median is reported as
+ * {@code p0.50}.
+ *
+ * A query is stopped after {@link #QUERY_TIMEOUT_SECONDS} seconds, which fails
+ * its benchmark. The larger tables take minutes to fill, so select the sizes
+ * with {@code -p rows=...}, e.g.
+ * {@code -Djmh.args="CollectionIndexBenchmark -p rows=10000,100000"}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectionIndexBenchmark {
+	private static final int QUERY_TIMEOUT_SECONDS = 30;
+	private static final int MODULES_PER_UNIVERSITY = 10;
+	// One more row than the page, like the slices of the collections
+	private static final int PAGE_ROWS = 31;
+
+	@Param({ "10000", "100000", "1000000", "5000000" })
+	public int rows;
+
+	@Param({ "with", "without" })
+	public String indexes;
+
+	private Path directory;
+	private ConfigurableApplicationContext context;
+	private Connection connection;
+	private long universityId;
+
+	private PreparedStatement modulesOfUniversity;
+	private PreparedStatement countModulesOfUniversity;
+	private PreparedStatement modulesByName;
+	private PreparedStatement universitiesByFallSemesterStart;
+	private PreparedStatement springModulesByCreditPointsDescending;
+	private PreparedStatement universitiesByCountryDescending;
+
+	@Setup
+	public void setUp() throws IOException, SQLException {
+		directory = Files.createTempDirectory("studytravel-indexes");
+		context = new SpringApplicationBuilder(StudyTravelApplication.class)
+				.properties(
+						"server.port=0",
+						"spring.datasource.url=jdbc:h2:file:" + directory.resolve("benchmark")
+								+ ";DB_CLOSE_ON_EXIT=FALSE",
+						"spring.jpa.hibernate.ddl-auto=create",
+						"spring.main.banner-mode=off",
+						"logging.level.root=WARN")
+				.run();
+
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		insertRows(jdbcTemplate);
+		if (indexes.equals("without")) {
+			dropIndexes(jdbcTemplate, University.class);
+			dropIndexes(jdbcTemplate, StudyModule.class);
+		}
+		jdbcTemplate.execute("analyze");
+
+		// A university in the middle of the table
+		universityId = rows / MODULES_PER_UNIVERSITY / 2;
+
+		connection = context.getBean(DataSource.class).getConnection();
+		modulesOfUniversity = prepare("""
+				select id, name, semester, credit_points from study_module
+				where university_id = ? and name_normalized like ? and semester like ?
+				order by id fetch first %d rows only""".formatted(PAGE_ROWS));
+		countModulesOfUniversity = prepare("""
+				select count(*) from study_module
+				where university_id = ? and name_normalized like ? and semester like ?""");
+		modulesByName = prepare("""
+				select id, name, semester, credit_points from study_module
+				where name_normalized like ? and semester like ?
+				order by name fetch first %d rows only""".formatted(PAGE_ROWS));
+		universitiesByFallSemesterStart = prepare("""
+				select id, name, country, department, fall_semester_start from university
+				where name_normalized like ? and country_normalized like ?
+				order by fall_semester_start fetch first %d rows only""".formatted(PAGE_ROWS));
+		springModulesByCreditPointsDescending = prepare("""
+				select id, name, semester, credit_points from study_module
+				where name_normalized like ? and semester like ?
+				order by credit_points desc fetch first %d rows only""".formatted(PAGE_ROWS));
+		universitiesByCountryDescending = prepare("""
+				select id, name, country, department, fall_semester_start from university
+				where name_normalized like ? and country_normalized like ?
+				order by country desc fetch first %d rows only""".formatted(PAGE_ROWS));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException, SQLException {
+		connection.close();
+		context.close();
+		FileSystemUtils.deleteRecursively(directory);
+	}
+
+	@Benchmark
+	public int modulesOfUniversitySortedById() throws SQLException {
+		modulesOfUniversity.setLong(1, universityId);
+		modulesOfUniversity.setString(2, "%%");
+		modulesOfUniversity.setString(3, "%%");
+		return consume(modulesOfUniversity);
+	}
+
+	@Benchmark
+	public int countOfModulesOfUniversity() throws SQLException {
+		countModulesOfUniversity.setLong(1, universityId);
+		countModulesOfUniversity.setString(2, "%%");
+		countModulesOfUniversity.setString(3, "%%");
+		return consume(countModulesOfUniversity);
+	}
+
+	@Benchmark
+	public int allModulesSortedByName() throws SQLException {
+		modulesByName.setString(1, "%%");
+		modulesByName.setString(2, "%%");
+		return consume(modulesByName);
+	}
+
+	@Benchmark
+	public int allUniversitiesSortedByFallSemesterStart() throws SQLException {
+		universitiesByFallSemesterStart.setString(1, "%%");
+		universitiesByFallSemesterStart.setString(2, "%%");
+		return consume(universitiesByFallSemesterStart);
+	}
+
+	@Benchmark
+	public int springModulesSortedByCreditPointsDescending() throws SQLException {
+		springModulesByCreditPointsDescending.setString(1, "%%");
+		springModulesByCreditPointsDescending.setString(2, "%SPRING%");
+		return consume(springModulesByCreditPointsDescending);
+	}
+
+	@Benchmark
+	public int allUniversitiesSortedByCountryDescending() throws SQLException {
+		universitiesByCountryDescending.setString(1, "%%");
+		universitiesByCountryDescending.setString(2, "%%");
+		return consume(universitiesByCountryDescending);
+	}
+
+	private void insertRows(JdbcTemplate jdbcTemplate) {
+		int universities = rows / MODULES_PER_UNIVERSITY;
+		jdbcTemplate.update("""
+				insert into university (id, name, name_normalized, country, country_normalized, department,
+					contact_person_name, outgoing_student_number, incoming_student_number,
+					spring_semester_start, fall_semester_start, version)
+				select x, 'University ' || x, 'university ' || x, 'Country ' || mod(x, 100),
+					'country ' || mod(x, 100), 'Department ' || mod(x, 20), 'Contact Person ' || x,
+					mod(x, 50), mod(x, 70), dateadd(day, mod(x, 365), date '2025-01-01'),
+					dateadd(day, mod(x * 7, 365), date '2025-01-01'), x
+				from system_range(1, ?)""", universities);
+		jdbcTemplate.update("""
+				insert into study_module (id, name, name_normalized, semester, credit_points, university_id, version)
+				select x, 'Module ' || x, 'module ' || x, case when mod(x, 2) = 0 then 'SPRING' else 'FALL' end,
+					mod(x, 30) + 1, mod(x, ?) + 1, x
+				from system_range(1, ?)""", universities, rows);
+	}
+
+	private static void dropIndexes(JdbcTemplate jdbcTemplate, Class<?> entity) {
+		for (Index index : entity.getAnnotation(Table.class).indexes()) {
+			jdbcTemplate.execute("drop index if exists " + index.name());
+		}
+	}
+
+	private PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement(sql);
+		statement.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+		return statement;
+	}
+
+	private static int consume(PreparedStatement statement) throws SQLException {
+		int count = 0;
+		try (ResultSet resultSet = statement.executeQuery()) {
+			while (resultSet.next()) {
+				count += resultSet.getInt(1);
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,129 @@
+package com.papook.studytravel.server.repositories;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.papook.studytravel.StudyTravelApplication;
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.StudyModuleSummary;
+import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.UniversitySummary;
+import com.papook.studytravel.server.services.StudyModuleService;
+import com.papook.studytravel.server.services.UniversityService;
+
+/**
+ * Compares reading a page of universities and study modules as managed
+ * entities, as the collections did before, and as summaries, and writing it as
+ * JSON like a collection response. The server runs on a random port with its
+ * in-memory database. Run it with {@code -prof gc} to compare the
+ * allocations per page. The repositories and Hibernate take long to be
+ * compiled, so the warmup is longer than in the other benchmarks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 15, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectionPageBenchmark {
+	private static final int ROWS = 10_000;
+
+	@Param({ "entity", "summary" })
+	public String type;
+
+	// The default and the largest page size
+	@Param({ "30", "1000" })
+	public int pageSize;
+
+	private ConfigurableApplicationContext context;
+	private UniversityRepository universityRepository;
+	private StudyModuleRepository studyModuleRepository;
+	private ObjectMapper objectMapper;
+	private Class<?> universityType;
+	private Class<?> moduleType;
+	private Pageable pageable;
+
+	@Setup
+	public void setUp() {
+		context = new SpringApplicationBuilder(StudyTravelApplication.class)
+				.properties(
+						"server.port=0",
+						"spring.datasource.url=jdbc:h2:mem:collectionpages",
+						"spring.main.banner-mode=off",
+						"logging.level.root=WARN")
+				.run();
+		universityRepository = context.getBean(UniversityRepository.class);
+		studyModuleRepository = context.getBean(StudyModuleRepository.class);
+		objectMapper = context.getBean(ObjectMapper.class);
+
+		boolean summary = type.equals("summary");
+		universityType = summary ? UniversitySummary.class : University.class;
+		moduleType = summary ? StudyModuleSummary.class : StudyModule.class;
+		// The first page in the default order, which is read from the primary key
+		// index, so mostly the reading of the rows is measured
+		pageable = PageRequest.of(0, pageSize, Sort.by("id"));
+
+		List<University> universities = new ArrayList<>();
+		List<StudyModule> modules = new ArrayList<>();
+		for (int i = 1; i <= ROWS; i++) {
+			universities.add(University.builder()
+					.name("Technical University of Munich " + i)
+					.country("Germany")
+					.department("Computer Science")
+					.contactPersonName("Max Mustermann")
+					.outgoingStudentNumber(10)
+					.incomingStudentNumber(20)
+					.springSemesterStart(LocalDate.of(2025, 3, 1))
+					.fallSemesterStart(LocalDate.of(2025, 10, 1))
+					.build());
+			modules.add(StudyModule.builder()
+					.name("Distributed Systems " + i)
+					.semester("FALL")
+					.creditPoints(5)
+					.build());
+		}
+		context.getBean(UniversityService.class).createUniversities(universities);
+		context.getBean(StudyModuleService.class).createModules(modules);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public byte[] universityPage() throws IOException {
+		return objectMapper.writeValueAsBytes(universityRepository
+				.findByNameNormalizedContainingAndCountryNormalizedContaining("", "", pageable, universityType)
+				.getContent());
+	}
+
+	@Benchmark
+	public byte[] modulePage() throws IOException {
+		return objectMapper.writeValueAsBytes(studyModuleRepository
+				.findByNameNormalizedContainingAndSemesterContaining("", "", pageable, moduleType)
+				.getContent());
+	}
+}
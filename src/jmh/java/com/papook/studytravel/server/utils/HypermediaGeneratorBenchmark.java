@@ -0,0 +1,73 @@
+package com.papook.studytravel.server.utils;
+
+import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Measures building the Link headers of every response, for a collection
+ * requested by page and by cursor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HypermediaGeneratorBenchmark {
+	private static final CollectionLinkTemplate COLLECTION_LINKS = new CollectionLinkTemplate(
+			"name", "getUniversitiesByName",
+			"country", "getUniversitiesByCountry",
+			"getUniversitiesByNameAndCountry");
+
+	private HypermediaGenerator hypermediaGenerator;
+	private Slice<Object> page;
+	private Slice<Object> cursorSlice;
+
+	@Setup
+	public void setUp() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/universities");
+		request.setQueryString("name=technical&page=1&sort=name_asc");
+
+		hypermediaGenerator = new HypermediaGenerator();
+		ReflectionTestUtils.setField(hypermediaGenerator, "servletRequest", request);
+
+		// A page in the middle, so all links are built
+		page = new PageImpl<>(Collections.nCopies(PAGE_SIZE, new Object()), PageRequest.of(1, PAGE_SIZE), 1000);
+		cursorSlice = new CursorSlice<>(Collections.nCopies(PAGE_SIZE, new Object()), PageRequest.of(0, PAGE_SIZE),
+				"eyJpZCI6NjB9", "eyJpZCI6MzF9", null);
+	}
+
+	@Benchmark
+	public String formatLinkHeader() {
+		return HypermediaGenerator.formatLinkHeader("/universities/42/modules", "getModulesOfUniversity");
+	}
+
+	@Benchmark
+	public HttpHeaders buildPageLinksHeaders() {
+		return hypermediaGenerator.buildCollectionLinksHeaders(page, COLLECTION_LINKS);
+	}
+
+	@Benchmark
+	public HttpHeaders buildCursorLinksHeaders() {
+		return hypermediaGenerator.buildCollectionLinksHeaders(cursorSlice, COLLECTION_LINKS);
+	}
+}
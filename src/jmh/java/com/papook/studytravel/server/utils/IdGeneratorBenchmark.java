@@ -0,0 +1,52 @@
+package com.papook.studytravel.server.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures generating IDs in memory and reusing freed IDs, as done for every
+ * created and deleted entity.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+	private IdGenerator idGenerator;
+
+	@Setup
+	public void setUp() {
+		idGenerator = new IdGenerator();
+	}
+
+	@Benchmark
+	public long nextId() {
+		return idGenerator.nextId();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public long nextIdConcurrently() {
+		return idGenerator.nextId();
+	}
+
+	@Benchmark
+	public long reuseFreedId() {
+		// Delete an entity and create the next one, which gets its ID
+		idGenerator.markIdAvailable(idGenerator.nextId());
+		return idGenerator.nextId();
+	}
+}
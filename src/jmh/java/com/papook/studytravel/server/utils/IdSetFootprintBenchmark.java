@@ -0,0 +1,117 @@
+package com.papook.studytravel.server.utils;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Compares the heap used for the IDs used with PUT by a {@code HashSet<Long>},
+ * as used by the IdGenerator before, and by the {@link CompactLongSet} that
+ * {@link IdGenerator#markIdUsed(Long)} adds them to, and the time to skip a
+ * dense range of used IDs. The heap is not measured by JMH, so this is a
+ * plain program. Start it with
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.papook.studytravel.server.utils.IdSetFootprintBenchmark -Djmh.args=
+ * </pre>
+ */
+public class IdSetFootprintBenchmark {
+	private static final int IDS = 2_000_000;
+
+	public static void main(String[] args) {
+		System.out.println("| Used IDs | HashSet<Long> | CompactLongSet |");
+		System.out.println("| --- | --- | --- |");
+		footprint("all " + IDS + " (dense run)", id -> true);
+		footprint("every 10th", id -> id % 10 == 0);
+		footprint("random 10%", randomFraction(0.1));
+		footprint("every 2nd", id -> id % 2 == 0);
+		footprint("every 5000th (sparse)", id -> id % 5000 == 0);
+
+		System.out.println();
+		System.out.println("| Skipping " + IDS + " used IDs | Time |");
+		System.out.println("| --- | --- |");
+		skipUsedIds();
+	}
+
+	private static void footprint(String name, LongPredicate used) {
+		long hashSetBytes = measure(() -> {
+			Set<Long> set = new HashSet<>();
+			for (long id = 1; id <= IDS; id++) {
+				if (used.test(id)) {
+					set.add(id);
+				}
+			}
+			return set;
+		});
+
+		long compactSetBytes = measure(() -> {
+			CompactLongSet set = new CompactLongSet();
+			for (long id = 1; id <= IDS; id++) {
+				if (used.test(id)) {
+					set.add(id);
+				}
+			}
+			return set;
+		});
+
+		System.out.printf("| %s | %s | %s |%n", name, format(hashSetBytes), format(compactSetBytes));
+	}
+
+	private static void skipUsedIds() {
+		// The previous IdGenerator removed the used IDs one at a time
+		Set<Long> usedSet = new HashSet<>();
+		for (long id = 1; id <= IDS; id++) {
+			usedSet.add(id);
+		}
+		long start = System.nanoTime();
+		long nextId = 1;
+		while (usedSet.remove(nextId)) {
+			nextId++;
+		}
+		System.out.printf("| HashSet<Long>, one ID at a time | %.1f ms |%n", (System.nanoTime() - start) / 1e6);
+
+		IdGenerator idGenerator = new IdGenerator();
+		for (long id = 1; id <= IDS; id++) {
+			idGenerator.markIdUsed(id);
+		}
+		start = System.nanoTime();
+		idGenerator.nextId();
+		System.out.printf("| IdGenerator with CompactLongSet | %.1f ms |%n", (System.nanoTime() - start) / 1e6);
+	}
+
+	private static LongPredicate randomFraction(double fraction) {
+		Random random = new Random(42);
+		return id -> random.nextDouble() < fraction;
+	}
+
+	/**
+	 * Measures the heap retained by the object created by the supplier.
+	 */
+	private static long measure(Supplier<Object> supplier) {
+		long before = usedHeap();
+		Object retained = supplier.get();
+		long after = usedHeap();
+
+		// Keep the object reachable until it was measured
+		if (retained.hashCode() == 42) {
+			System.out.print("");
+		}
+		return after - before;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static String format(long bytes) {
+		return bytes < 1024 * 1024
+				? String.format("%.1f KB", bytes / 1024.0)
+				: String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+	}
+}
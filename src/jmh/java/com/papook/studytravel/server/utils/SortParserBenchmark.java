@@ -0,0 +1,37 @@
+package com.papook.studytravel.server.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import com.papook.studytravel.server.models.University;
+
+/**
+ * Measures parsing the sort parameter of every collection request, for a valid
+ * sort string and for the invalid ones that fall back to sorting by ID.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortParserBenchmark {
+	@Param({ "name_asc", "unknown_asc", "name_up" })
+	private String sort;
+
+	@Benchmark
+	public Sort parse() {
+		return SortParser.parse(sort, University.class);
+	}
+}
@@ -1,12 +1,14 @@
 package com.papook.studytravel.client;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
@@ -18,6 +20,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import com.papook.studytravel.client.utils.LocalDateAdapter;
+import com.papook.studytravel.client.utils.WireFormat;
 
 import lombok.extern.log4j.Log4j2;
 
@@ -26,6 +29,17 @@ public class Client {
     public final String DISPATCHER_URI = "http://localhost:8080";
 
     public Client() {
+        this(WireFormat.JSON);
+    }
+
+    /**
+     * Creates a client that exchanges the resources in the given format. The
+     * request bodies are still given as JSON and converted before sending.
+     * 
+     * @param wireFormat The format of the request and response bodies.
+     */
+    public Client(WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
         client = HttpClient.newHttpClient();
         gson = new GsonBuilder()
                 .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
@@ -46,11 +60,33 @@ public class Client {
     public Map<Long, String> resourceLinksOnLastFetchedPage = new HashMap<>();
 
     private HttpClient client;
+    private final WireFormat wireFormat;
     public HttpRequest request;
     public HttpResponse<String> response;
 
+    // The body of the last response as it was received, which a binary format
+    // is decoded from
+    private byte[] responseBody;
+    private final HttpResponse.BodyHandler<String> bodyHandler = responseInfo -> BodySubscribers.mapping(
+            BodySubscribers.ofByteArray(), body -> {
+                responseBody = body;
+                return new String(body, StandardCharsets.UTF_8);
+            });
+
     Gson gson;
 
+    /**
+     * Returns the body of the last response as it was received. Unlike the body
+     * of {@link #response}, it is not decoded as text, so it also holds the CBOR
+     * and Smile representations.
+     * 
+     * @return The body of the last response, or null if no response was
+     *         received.
+     */
+    public byte[] getResponseBody() {
+        return responseBody;
+    }
+
     /**
      * Setup the client by fetching the links from the dispatcher.
      * This method calls getDispatcher() and fetchLinksFromDispatcher().
@@ -69,14 +105,14 @@ public class Client {
      * Sends a GET request to the dispatcher.
      */
     public void getDispatcher() {
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(DISPATCHER_URI))
                 .GET()
                 .build();
 
         log.info("Sending request to dispatcher at " + DISPATCHER_URI);
         try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
         } catch (IOException e) {
             log.error("Error sending request to dispatcher. Make sure the server is running.");
@@ -146,15 +182,15 @@ public class Client {
      * @return The response from the server.
      */
     public void createUniversity(String body) {
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(postCreateUniversityUri))
-                .header("Content-Type", "application/json")
-                .POST(BodyPublishers.ofString(body))
+                .header("Content-Type", wireFormat.getMediaType())
+                .POST(BodyPublishers.ofByteArray(wireFormat.encode(body)))
                 .build();
 
         log.info("[POST]: " + postCreateUniversityUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
         } catch (IOException e) {
             log.error("Error sending request to create university.");
@@ -172,15 +208,15 @@ public class Client {
      * @return The response from the server.
      */
     public void createStudyModule(String json) {
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(postCreateStudyModuleUri))
-                .header("Content-Type", "application/json")
-                .POST(BodyPublishers.ofString(json))
+                .header("Content-Type", wireFormat.getMediaType())
+                .POST(BodyPublishers.ofByteArray(wireFormat.encode(json)))
                 .build();
 
         log.info("[POST]: " + postCreateStudyModuleUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
         } catch (IOException e) {
             log.error("Error sending request to create study module.");
@@ -209,15 +245,15 @@ public class Client {
             return;
         }
 
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(updateUri))
-                .header("Content-Type", "application/json")
-                .PUT(BodyPublishers.ofString(json))
+                .header("Content-Type", wireFormat.getMediaType())
+                .PUT(BodyPublishers.ofByteArray(wireFormat.encode(json)))
                 .build();
 
         log.info("[PUT]: " + updateUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
             updateUri = null;
             deleteUri = null;
@@ -244,14 +280,14 @@ public class Client {
      * @see #getSelfUri
      */
     public Map<String, String> getUpdatedResource() {
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(getSelfUri))
                 .GET()
                 .build();
 
         log.info("[GET]: " + getSelfUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
             updateUri = getLinkFromResponseHeaders("putUpdate");
             deleteUri = getLinkFromResponseHeaders("delete");
@@ -261,8 +297,7 @@ public class Client {
             log.error("The request was interrupted.");
         }
 
-        Map<String, String> deserializedResource = gson.fromJson(response.body(),
-                new TypeToken<Map<String, String>>() {
+        Map<String, String> deserializedResource = readBody(new TypeToken<Map<String, String>>() {
                 }.getType());
         return deserializedResource;
     }
@@ -281,14 +316,14 @@ public class Client {
             return;
         }
 
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(deleteUri))
                 .DELETE()
                 .build();
 
         log.info("[DELETE]: " + deleteUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
             deleteUri = null;
             updateUri = null;
@@ -311,14 +346,14 @@ public class Client {
     public Map<String, String> getCreatedResource() {
         String location = response.headers().firstValue("Location").get();
 
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(location))
                 .GET()
                 .build();
 
         log.info("[GET]: " + location);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
             updateUri = getLinkFromResponseHeaders("putUpdate");
             deleteUri = getLinkFromResponseHeaders("delete");
@@ -328,8 +363,7 @@ public class Client {
             log.error("The request was interrupted.");
         }
 
-        Map<String, String> deserializedResource = gson.fromJson(response.body(),
-                new TypeToken<Map<String, String>>() {
+        Map<String, String> deserializedResource = readBody(new TypeToken<Map<String, String>>() {
                 }.getType());
         return deserializedResource;
     }
@@ -353,14 +387,14 @@ public class Client {
 
         String uri = resourceLinksOnLastFetchedPage.get(id);
 
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(uri))
                 .GET()
                 .build();
 
         log.info("[GET]: " + uri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
             updateUri = getLinkFromResponseHeaders("putUpdate");
             deleteUri = getLinkFromResponseHeaders("delete");
@@ -370,8 +404,7 @@ public class Client {
             log.error("The request was interrupted.");
         }
 
-        Map<String, String> deserializedResource = gson.fromJson(response.body(),
-                new TypeToken<Map<String, String>>() {
+        Map<String, String> deserializedResource = readBody(new TypeToken<Map<String, String>>() {
                 }.getType());
 
         return deserializedResource;
@@ -388,14 +421,14 @@ public class Client {
         String linkModuleUri = getLinkFromResponseHeaders("putLinkModule");
         linkModuleUri = replacePartInUriTemplate(linkModuleUri, "moduleId", moduleId);
 
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(linkModuleUri))
                 .PUT(BodyPublishers.noBody())
                 .build();
 
         log.info("[PUT]: " + linkModuleUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
         } catch (IOException e) {
             log.error("Error linking module to university.");
@@ -415,14 +448,14 @@ public class Client {
         String unlinkModuleUri = getLinkFromResponseHeaders("delUnlinkModule");
         unlinkModuleUri = replacePartInUriTemplate(unlinkModuleUri, "moduleId", moduleId);
 
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(unlinkModuleUri))
                 .DELETE()
                 .build();
 
         log.info("[DELETE]: " + unlinkModuleUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
         } catch (IOException e) {
             log.error("Error unlinking module from university.");
@@ -452,14 +485,14 @@ public class Client {
         String getModuleOfUniversityUri = getLinkFromResponseHeaders("getModuleOfUniversity");
         getModuleOfUniversityUri = replacePartInUriTemplate(getModuleOfUniversityUri, "moduleId", id);
 
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(getModuleOfUniversityUri))
                 .GET()
                 .build();
 
         log.info("[GET]: " + getModuleOfUniversityUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
         } catch (IOException e) {
             log.error("Error getting module of university.");
@@ -467,8 +500,7 @@ public class Client {
             log.error("The request was interrupted.");
         }
 
-        Map<String, String> deserializedResource = gson.fromJson(response.body(),
-                new TypeToken<Map<String, String>>() {
+        Map<String, String> deserializedResource = readBody(new TypeToken<Map<String, String>>() {
                 }.getType());
 
         return deserializedResource;
@@ -478,14 +510,14 @@ public class Client {
      * Sends a DELETE request to delete all universities.
      */
     public void deleteAllUniversities() {
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(deleteAllUniversitiesUri))
                 .DELETE()
                 .build();
 
         log.info("[DELETE]: " + deleteAllUniversitiesUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
         } catch (IOException e) {
             log.error("Error sending request to delete all universities.");
@@ -498,14 +530,14 @@ public class Client {
      * Sends a DELETE request to delete all study modules.
      */
     public void deleteAllStudyModules() {
-        request = HttpRequest.newBuilder()
+        request = newRequestBuilder()
                 .uri(URI.create(deleteAllStudyModulesUri))
                 .DELETE()
                 .build();
 
         log.info("[DELETE]: " + deleteAllStudyModulesUri);
         try {
-            response = client.send(request, BodyHandlers.ofString());
+            response = client.send(request, bodyHandler);
             log.info("Code: " + response.statusCode());
         } catch (IOException e) {
             log.error("Error sending request to delete all study modules.");
@@ -525,9 +557,7 @@ public class Client {
     private Map<Long, String> fetchLinksOnCurrentPage() {
         Map<Long, String> result = new HashMap<>();
 
-        List<Map<String, String>> objectList = gson.fromJson(
-                response.body(),
-                new TypeToken<List<Map<String, String>>>() {
+        List<Map<String, String>> objectList = readBody(new TypeToken<List<Map<String, String>>>() {
                 }.getType());
 
         for (Map<String, String> object : objectList) {
@@ -540,6 +570,24 @@ public class Client {
         return result;
     }
 
+    /**
+     * Creates a request that accepts the format of the client.
+     */
+    private HttpRequest.Builder newRequestBuilder() {
+        return HttpRequest.newBuilder()
+                .header("Accept", wireFormat.getMediaType());
+    }
+
+    /**
+     * Reads the body of the last response in the format of the client.
+     */
+    private <T> T readBody(Type type) {
+        if (wireFormat.isBinary()) {
+            return wireFormat.decode(responseBody, type);
+        }
+        return gson.fromJson(response.body(), type);
+    }
+
     private String getLinkFromResponseHeaders(String rel) {
 
         List<String> linkHeaders = response.headers().allValues("Link");
@@ -582,6 +630,7 @@ public class Client {
      */
     public class GetUniversitiesRequest {
         private String uri = getUniversitiesCollectionUri;
+        private Integer size;
 
         private GetUniversitiesRequest() {
             this.uri = getUniversitiesCollectionUri;
@@ -618,16 +667,29 @@ public class Client {
             return this;
         }
 
+        /**
+         * Request pages of the given size instead of the default size. The
+         * server limits the size to its configured maximum.
+         */
+        public GetUniversitiesRequest setPageSize(int size) {
+            this.size = size;
+            return this;
+        }
+
         public void send() {
-            URI requestUri = UriComponentsBuilder.fromUriString(uri).build().toUri();
-            request = HttpRequest.newBuilder()
+            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(uri);
+            if (size != null) {
+                uriBuilder.replaceQueryParam("size", size);
+            }
+            URI requestUri = uriBuilder.build().toUri();
+            request = newRequestBuilder()
                     .uri(requestUri)
                     .GET()
                     .build();
 
             log.info("[GET]: " + requestUri);
             try {
-                response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                response = client.send(request, bodyHandler);
                 log.info("Code: " + response.statusCode());
                 resourceLinksOnLastFetchedPage = fetchLinksOnCurrentPage();
             } catch (IOException e) {
@@ -646,6 +708,7 @@ public class Client {
      */
     public class GetStudyModulesRequest {
         private String uri = getStudyModulesCollectionUri;
+        private Integer size;
 
         private GetStudyModulesRequest() {
             this.uri = getStudyModulesCollectionUri;
@@ -655,8 +718,7 @@ public class Client {
          * Fetch the study modules of the current university.
          */
         public GetStudyModulesRequest ofCurrentUniversity() {
-            Map<String, String> currentUniversity = gson.fromJson(response.body(),
-                    new TypeToken<Map<String, String>>() {
+            Map<String, String> currentUniversity = readBody(new TypeToken<Map<String, String>>() {
                     }.getType());
 
             String modulesUri = currentUniversity.get("modules");
@@ -704,19 +766,30 @@ public class Client {
             return this;
         }
 
+        /**
+         * Request pages of the given size instead of the default size. The
+         * server limits the size to its configured maximum.
+         */
+        public GetStudyModulesRequest setPageSize(int size) {
+            this.size = size;
+            return this;
+        }
+
         public void send() {
-            URI requestUri = UriComponentsBuilder.fromUriString(uri)
-                    .build()
-                    .toUri();
+            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(uri);
+            if (size != null) {
+                uriBuilder.replaceQueryParam("size", size);
+            }
+            URI requestUri = uriBuilder.build().toUri();
 
-            request = HttpRequest.newBuilder()
+            request = newRequestBuilder()
                     .uri(requestUri)
                     .GET()
                     .build();
 
             log.info("[GET]: " + requestUri);
             try {
-                response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                response = client.send(request, bodyHandler);
                 log.info("Code: " + response.statusCode());
                 resourceLinksOnLastFetchedPage = fetchLinksOnCurrentPage();
             } catch (IOException e) {
@@ -0,0 +1,81 @@
+package com.papook.studytravel.client.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * The representation the client exchanges with the server. The binary formats
+ * carry the same fields as JSON, but are smaller and cheaper to write and read.
+ *
+ * @author papook
+ */
+public enum WireFormat {
+    JSON("application/json", null),
+    CBOR("application/cbor", new CBORMapper()),
+    SMILE("application/x-jackson-smile", new SmileMapper());
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private final String mediaType;
+    private final ObjectMapper binaryMapper;
+
+    private WireFormat(String mediaType, ObjectMapper binaryMapper) {
+        this.mediaType = mediaType;
+        this.binaryMapper = binaryMapper;
+    }
+
+    /**
+     * @return The media type sent in the Accept and Content-Type headers.
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Converts a JSON request body into this format.
+     *
+     * @param json The request body as JSON.
+     * @return The request body in this format.
+     *
+     * @throws IllegalArgumentException If a body for a binary format is not valid
+     *                                  JSON.
+     */
+    public byte[] encode(String json) {
+        if (binaryMapper == null) {
+            return json.getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            return binaryMapper.writeValueAsBytes(JSON_MAPPER.readTree(json));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The request body is not valid JSON.", e);
+        }
+    }
+
+    /**
+     * Reads a response body in a binary format.
+     *
+     * @param body The response body.
+     * @param type The type to read, e.g. a map of the fields of a resource.
+     * @return The read value.
+     */
+    public <T> T decode(byte[] body, Type type) {
+        try {
+            return binaryMapper.readValue(body, binaryMapper.constructType(type));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return True if the format is binary, false for JSON.
+     */
+    public boolean isBinary() {
+        return binaryMapper != null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.papook.studytravel.server;
+
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Configures the binary representations of the resources, which clients can
+ * request with the Accept header and send with the Content-Type header.
+ *
+ * Spring MVC adds converters for CBOR and Smile after the JSON converter, so
+ * JSON stays the default representation. Their object mappers ignore the
+ * Jackson settings of Spring Boot though, so they are replaced by mappers from
+ * the same builder as the JSON mapper. Dates and URIs are then written the same
+ * way in every representation.
+ *
+ * The representations of a version of a resource differ, so the controllers
+ * derive their ETags and the Vary header with the
+ * {@link com.papook.studytravel.server.utils.RepresentationNegotiator}.
+ *
+ * @author papook
+ */
+@Configuration
+public class MessageConverterConfiguration implements WebMvcConfigurer {
+    /**
+     * The media type of the Smile representation.
+     */
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    /**
+     * The representations of the resources, in the order of their converters.
+     * The first one is the default.
+     */
+    public static final List<MediaType> REPRESENTATIONS = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    public MessageConverterConfiguration(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2CborHttpMessageConverter cborConverter) {
+                cborConverter.setObjectMapper(objectMapperBuilder.getObject().factory(new CBORFactory()).build());
+            } else if (converter instanceof MappingJackson2SmileHttpMessageConverter smileConverter) {
+                smileConverter.setObjectMapper(objectMapperBuilder.getObject().factory(new SmileFactory()).build());
+            }
+        }
+    }
+}
@@ -36,7 +36,28 @@ public class ServerConfiguration {
     public static final String MODULE_ENDPOINT = "/modules";
 
     /**
-     * Default page size defined for pagination. Cannot be modified by the client.
+     * Suffix of the collection endpoints for creating several resources at once,
+     * e.g. {@code /universities:batch}.
+     */
+    public static final String BATCH_SUFFIX = ":batch";
+
+    /**
+     * Suffix of the collection endpoints streaming all matching resources as
+     * newline-delimited JSON, e.g. {@code /universities/export}.
+     */
+    public static final String EXPORT_SUFFIX = "/export";
+
+    /**
+     * Response header containing the total number of matching resources. Only sent
+     * when the client requests the total with the {@code total=true} query
+     * parameter, as counting needs an additional query.
+     */
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    /**
+     * Default page size defined for pagination. The client can request a
+     * different size with the {@code size} query parameter, up to the maximum
+     * configured as {@code studytravel.page.max-size}.
      */
     public static final Integer PAGE_SIZE = 30;
 }
@@ -1,8 +1,14 @@
 package com.papook.studytravel.server.controllers;
 
+import static com.papook.studytravel.server.ServerConfiguration.BATCH_SUFFIX;
+import static com.papook.studytravel.server.ServerConfiguration.EXPORT_SUFFIX;
 import static com.papook.studytravel.server.ServerConfiguration.MODULE_ENDPOINT;
 import static com.papook.studytravel.server.ServerConfiguration.UNIVERSITY_ENDPOINT;
 
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,31 +20,34 @@ import com.papook.studytravel.server.utils.HypermediaGenerator;
 @RestController
 @RequestMapping("")
 public class DispatcherController {
+	// The links only change with a new version of the server
+	private static final String[] LINKS = {
+			HypermediaGenerator.formatLinkHeader(UNIVERSITY_ENDPOINT, "getUniversitiesCollection"),
+			HypermediaGenerator.formatLinkHeader(MODULE_ENDPOINT, "getStudyModulesCollection"),
+			HypermediaGenerator.formatLinkHeader(UNIVERSITY_ENDPOINT, "postCreateUniversity"),
+			HypermediaGenerator.formatLinkHeader(MODULE_ENDPOINT, "postCreateStudyModule"),
+			HypermediaGenerator.formatLinkHeader(UNIVERSITY_ENDPOINT + BATCH_SUFFIX, "postCreateUniversitiesBatch"),
+			HypermediaGenerator.formatLinkHeader(MODULE_ENDPOINT + BATCH_SUFFIX, "postCreateStudyModulesBatch"),
+			HypermediaGenerator.formatLinkHeader(UNIVERSITY_ENDPOINT, "deleteAllUniversities"),
+			HypermediaGenerator.formatLinkHeader(MODULE_ENDPOINT, "deleteAllStudyModules"),
+			HypermediaGenerator.formatLinkHeader(UNIVERSITY_ENDPOINT + EXPORT_SUFFIX, "getUniversitiesExport"),
+			HypermediaGenerator.formatLinkHeader(MODULE_ENDPOINT + EXPORT_SUFFIX, "getStudyModulesExport") };
+	private static final String ETAG = "\"" + Integer.toHexString(Arrays.hashCode(LINKS)) + "\"";
+	private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
+	/**
+	 * Returns the links to the entry points of the API. Clients can cache the
+	 * response, and a request with a matching If-None-Match header is answered
+	 * with 304 Not Modified.
+	 *
+	 * @author papook
+	 */
 	@GetMapping({ "", "/" })
 	public ResponseEntity<Void> getDispatcher() {
-		String getUniversitiesCollectionLink = HypermediaGenerator.formatLinkHeader(
-				UNIVERSITY_ENDPOINT, "getUniversitiesCollection");
-		String getStudyModulesCollectionLink = HypermediaGenerator.formatLinkHeader(
-				MODULE_ENDPOINT, "getStudyModulesCollection");
-		String createUniversityLink = HypermediaGenerator.formatLinkHeader(
-				UNIVERSITY_ENDPOINT, "postCreateUniversity");
-		String createStudyModuleLink = HypermediaGenerator.formatLinkHeader(
-				MODULE_ENDPOINT, "postCreateStudyModule");
-		String deleteAllUniversitiesLink = HypermediaGenerator.formatLinkHeader(
-				UNIVERSITY_ENDPOINT, "deleteAllUniversities");
-		String deleteAllStudyModulesLink = HypermediaGenerator.formatLinkHeader(
-				MODULE_ENDPOINT, "deleteAllStudyModules");
-
-		String[] links = {
-				getUniversitiesCollectionLink,
-				getStudyModulesCollectionLink,
-				createUniversityLink,
-				createStudyModuleLink,
-				deleteAllUniversitiesLink,
-				deleteAllStudyModulesLink };
-
 		return ResponseEntity.ok()
-				.header(HttpHeaders.LINK, links)
+				.eTag(ETAG)
+				.cacheControl(CACHE_CONTROL)
+				.header(HttpHeaders.LINK, LINKS)
 				.build();
 	}
-}
\ No newline at end of file
+}
@@ -1,16 +1,22 @@
 package com.papook.studytravel.server.controllers;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
+import com.papook.studytravel.server.errors.BatchTooLargeException;
 import com.papook.studytravel.server.errors.ErrorMessage;
 import com.papook.studytravel.server.errors.IdMismatchException;
+import com.papook.studytravel.server.errors.IdOutOfRangeException;
+import com.papook.studytravel.server.errors.InvalidCursorException;
 import com.papook.studytravel.server.errors.ModuleTakenException;
 import com.papook.studytravel.server.errors.ModuleNotLinkedException;
+import com.papook.studytravel.server.errors.PreconditionFailedException;
 import com.papook.studytravel.server.errors.StudyModuleNotFoundException;
 import com.papook.studytravel.server.errors.UniversityNotFoundException;
 
@@ -54,6 +60,14 @@ public class GlobalExceptionHandler {
 		return buildResponse(HttpStatus.BAD_REQUEST, message);
 	}
 
+	@ExceptionHandler(HandlerMethodValidationException.class)
+	public ResponseEntity<ErrorMessage> handleException(HandlerMethodValidationException ex) {
+		String message = "The request body contains invalid data." +
+				" Make sure all fields are provided and have the correct format.";
+
+		return buildResponse(HttpStatus.BAD_REQUEST, message);
+	}
+
 	@ExceptionHandler(UniversityNotFoundException.class)
 	public ResponseEntity<ErrorMessage> handleException(UniversityNotFoundException ex) {
 		String message = "The requested university was not found. Please provide a valid university ID.";
@@ -89,4 +103,44 @@ public class GlobalExceptionHandler {
 
 		return buildResponse(HttpStatus.BAD_REQUEST, message);
 	}
-}
\ No newline at end of file
+
+	@ExceptionHandler(IdOutOfRangeException.class)
+	public ResponseEntity<ErrorMessage> handleException(IdOutOfRangeException ex) {
+		String message = "The ID provided in the URL is too large." +
+				" Please choose a smaller ID or create the resource with POST.";
+
+		return buildResponse(HttpStatus.BAD_REQUEST, message);
+	}
+
+	@ExceptionHandler(InvalidCursorException.class)
+	public ResponseEntity<ErrorMessage> handleException(InvalidCursorException ex) {
+		String message = "The cursor is invalid or does not match the sort order." +
+				" Please follow the links of the previous response.";
+
+		return buildResponse(HttpStatus.BAD_REQUEST, message);
+	}
+
+	@ExceptionHandler(BatchTooLargeException.class)
+	public ResponseEntity<ErrorMessage> handleException(BatchTooLargeException ex) {
+		String message = "The batch contains too many resources." +
+				" Please split it into smaller batches.";
+
+		return buildResponse(HttpStatus.PAYLOAD_TOO_LARGE, message);
+	}
+
+	@ExceptionHandler(PreconditionFailedException.class)
+	public ResponseEntity<ErrorMessage> handleException(PreconditionFailedException ex) {
+		String message = "The resource was modified in the meantime or does not exist." +
+				" Please get the current version and retry with its ETag.";
+
+		return buildResponse(HttpStatus.PRECONDITION_FAILED, message);
+	}
+
+	@ExceptionHandler(DataIntegrityViolationException.class)
+	public ResponseEntity<ErrorMessage> handleException(DataIntegrityViolationException ex) {
+		String message = "The resource conflicts with a resource stored in the meantime." +
+				" Please retry the request.";
+
+		return buildResponse(HttpStatus.CONFLICT, message);
+	}
+}
@@ -1,16 +1,21 @@
 package com.papook.studytravel.server.controllers;
 
+import static com.papook.studytravel.server.ServerConfiguration.BATCH_SUFFIX;
+import static com.papook.studytravel.server.ServerConfiguration.EXPORT_SUFFIX;
 import static com.papook.studytravel.server.ServerConfiguration.MODULE_ENDPOINT;
+import static com.papook.studytravel.server.ServerConfiguration.TOTAL_COUNT_HEADER;
 import static com.papook.studytravel.server.ServerConfiguration.UNIVERSITY_ENDPOINT;
 import static com.papook.studytravel.server.utils.HypermediaGenerator.formatLinkHeader;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,22 +23,47 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.StudyModuleSummary;
 import com.papook.studytravel.server.services.StudyModuleService;
+import com.papook.studytravel.server.utils.BatchSizeLimit;
+import com.papook.studytravel.server.utils.CollectionLinkTemplate;
+import com.papook.studytravel.server.utils.EntityLinkTemplate;
 import com.papook.studytravel.server.utils.HypermediaGenerator;
+import com.papook.studytravel.server.utils.ModificationClock;
+import com.papook.studytravel.server.utils.NdjsonExport;
+import com.papook.studytravel.server.utils.RepresentationNegotiator;
 
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
 
 @RestController
 @RequestMapping
 public class StudyModuleController {
 
+    private static final CollectionLinkTemplate COLLECTION_LINKS = new CollectionLinkTemplate(
+            "name", "getStudyModulesByName",
+            "semester", "getStudyModulesBySemester",
+            "getStudyModulesByNameAndSemester");
+    private static final EntityLinkTemplate ENTITY_LINKS = new EntityLinkTemplate(
+            MODULE_ENDPOINT + "/", "", "putUpdate", "delete");
+    private static final EntityLinkTemplate SELF_LINK = new EntityLinkTemplate(
+            MODULE_ENDPOINT + "/", "", "getSelf");
+    private static final EntityLinkTemplate UNIVERSITY_MODULES_LINK = new EntityLinkTemplate(
+            UNIVERSITY_ENDPOINT + "/", MODULE_ENDPOINT, "getModulesOfUniversity");
+    private static final EntityLinkTemplate UNIVERSITY_MODULE_LINK = new EntityLinkTemplate(
+            UNIVERSITY_ENDPOINT + "/", MODULE_ENDPOINT + "/{moduleId}", "getModuleOfUniversity");
+    private static final String COLLECTION_LINK = formatLinkHeader(MODULE_ENDPOINT, "getModulesCollection");
+
     @Autowired
     private StudyModuleService studyModuleService;
 
@@ -41,195 +71,143 @@ public class StudyModuleController {
     private HypermediaGenerator hypermediaGenerator;
 
     @Autowired
-    private HttpServletRequest request;
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RepresentationNegotiator representationNegotiator;
+
+    @Autowired
+    private BatchSizeLimit batchSizeLimit;
 
     @GetMapping(MODULE_ENDPOINT)
-    public ResponseEntity<Iterable<StudyModule>> getCollection(
+    public ResponseEntity<Iterable<StudyModuleSummary>> getCollection(
             @RequestParam(defaultValue = "") String name,
             @RequestParam(defaultValue = "") String semester,
-            @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "id_asc") String sort) {
-        page = Math.max(0, page);
-
-        Page<StudyModule> studyModules = studyModuleService.getModules(name, semester, page, sort);
-
-        Order sortOrder = studyModules.getSort()
-                .get()
-                .findFirst()
-                .orElse(Order.asc("id"));
-        String sortField = sortOrder
-                .getProperty();
-        String setSortOrder = "{field}_{asc, desc}";
-        String reverseSortOrder = sortOrder
-                .getDirection()
-                .isAscending()
-                        ? "desc"
-                        : "asc";
-
-        HttpHeaders headers = hypermediaGenerator.buildPagingLinksHeaders(studyModules);
-
-        if (headers == null) {
-            headers = new HttpHeaders();
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id_asc") String sort,
+            @RequestParam(defaultValue = "false") Boolean total,
+            NativeWebRequest request) {
+        // Answer a conditional request before querying the modules
+        String eTag = representationNegotiator.eTag(request,
+                ModificationClock.eTag(studyModuleService.getCollectionVersion()));
+        if (request.checkNotModified(eTag)) {
+            return null;
         }
 
-        String requestUri = request.getRequestURI();
+        // Keyset pagination is used unless a page number is requested
+        Slice<StudyModuleSummary> studyModules = page == null
+                ? studyModuleService.scrollModules(name, semester, cursor, size, sort, total)
+                : studyModuleService.getModules(name, semester, Math.max(0, page), size, sort, total);
 
-        if (request.getQueryString() != null) {
-            requestUri += "?" + request.getQueryString();
-        }
-
-        if (!requestUri.contains("name")) {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-            uriBuilder.queryParam("name", "{name}");
-            String getStudyModulesByName = HypermediaGenerator.formatLinkHeader(
-                    uriBuilder.build().toString(),
-                    "getStudyModulesByName");
-
-            headers.add(HttpHeaders.LINK, getStudyModulesByName);
-        }
-
-        if (!requestUri.contains("semester")) {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-            uriBuilder.queryParam("semester", "{semester}");
-            String getStudyModulesBySemester = HypermediaGenerator.formatLinkHeader(
-                    uriBuilder.build().toString(),
-                    "getStudyModulesBySemester");
+        HttpHeaders headers = hypermediaGenerator.buildCollectionLinksHeaders(studyModules, COLLECTION_LINKS);
 
-            headers.add(HttpHeaders.LINK, getStudyModulesBySemester);
+        if (headers == null) {
+            headers = new HttpHeaders();
         }
 
-        if (!requestUri.contains("name") || !requestUri.contains("semester")) {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-            uriBuilder.queryParam("name", "{name}")
-                    .queryParam("semester", "{semester}");
-            String getStudyModulesByNameAndSemester = HypermediaGenerator.formatLinkHeader(
-                    uriBuilder.build().toString(),
-                    "getStudyModulesByNameAndSemester");
-
-            headers.add(HttpHeaders.LINK, getStudyModulesByNameAndSemester);
+        // The total is only counted if the client requested it
+        Optional<Long> totalElements = HypermediaGenerator.getTotalElements(studyModules);
+        if (totalElements.isPresent()) {
+            headers.set(TOTAL_COUNT_HEADER, String.valueOf(totalElements.get()));
         }
 
-        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-        uriBuilder.replaceQueryParam("sort", sortField + "_" + reverseSortOrder);
-        String reverseSort = HypermediaGenerator.formatLinkHeader(
-                uriBuilder.build().toString(),
-                "reverseSortOrder");
-        headers.add(HttpHeaders.LINK, reverseSort);
-
-        uriBuilder.replaceQueryParam("sort", setSortOrder);
-        String setSort = HypermediaGenerator.formatLinkHeader(
-                uriBuilder.build().toString(),
-                "setSortOrder");
-        headers.add(HttpHeaders.LINK, setSort);
-
         return ResponseEntity.ok()
+                .eTag(eTag)
                 .headers(headers)
                 .body(studyModules.getContent());
     }
 
-    @GetMapping(MODULE_ENDPOINT + "/{id}")
-    public ResponseEntity<StudyModule> getOne(@PathVariable Long id) {
-        StudyModule studyModule = studyModuleService.getModuleById(id);
+    /**
+     * Streams all study modules matching the filters as newline-delimited JSON, in
+     * the order of their IDs. Unlike the collection, the export is not paged and
+     * does not count the study modules.
+     */
+    @GetMapping(value = MODULE_ENDPOINT + EXPORT_SUFFIX, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "") String name,
+            @RequestParam(defaultValue = "") String semester) {
+        StreamingResponseBody body = NdjsonExport.<StudyModuleSummary>body(objectMapper,
+                rows -> studyModuleService.exportModules(name, semester, rows));
 
-        HttpHeaders headers = new HttpHeaders();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 
-        String formattedEndpoint = String.format("%s/%d", MODULE_ENDPOINT, id);
-        String updateLink = formatLinkHeader(formattedEndpoint, "putUpdate");
-        String deleteLink = formatLinkHeader(formattedEndpoint, "delete");
+    @GetMapping(MODULE_ENDPOINT + "/{id}")
+    public ResponseEntity<StudyModule> getOne(@PathVariable Long id, NativeWebRequest request) {
+        // Compare the version before the module is loaded
+        long version = studyModuleService.getModuleVersion(id);
+        if (request.checkNotModified(representationNegotiator.eTag(request, ModificationClock.eTag(version)))) {
+            return null;
+        }
 
-        headers.add(HttpHeaders.LINK, updateLink);
-        headers.add(HttpHeaders.LINK, deleteLink);
+        // The ETag is derived from the module that is sent, which may be written
+        // in the meantime
+        StudyModule studyModule = studyModuleService.getModuleById(id, version);
 
         return ResponseEntity.ok()
-                .headers(headers)
+                .eTag(representationNegotiator.eTag(request, ModificationClock.eTag(studyModule.getVersion())))
+                .header(HttpHeaders.LINK, ENTITY_LINKS.render(id))
                 .body(studyModule);
     }
 
     @GetMapping(UNIVERSITY_ENDPOINT + "/{universityId}" + MODULE_ENDPOINT)
-    public ResponseEntity<Iterable<StudyModule>> getCollectionOfUniversity(
+    public ResponseEntity<Iterable<StudyModuleSummary>> getCollectionOfUniversity(
             @PathVariable Long universityId,
             @RequestParam(defaultValue = "") String name,
             @RequestParam(defaultValue = "") String semester,
-            @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "id_asc") String sort) {
-        Page<StudyModule> studyModules = studyModuleService.getModulesForUniversity(
-                universityId,
-                name,
-                semester,
-                page,
-                sort);
-
-        Order sortOrder = studyModules.getSort()
-                .get()
-                .findFirst()
-                .orElse(Order.asc("id"));
-        String sortField = sortOrder.getProperty();
-        String setSortOrder = "{field}_{asc, desc}";
-        String reverseSortOrder = sortOrder.getDirection()
-                .isAscending()
-                        ? "desc"
-                        : "asc";
-
-        HttpHeaders headers = hypermediaGenerator.buildPagingLinksHeaders(studyModules);
-        if (headers == null) {
-            headers = new HttpHeaders();
-        }
-
-        String requestUri = request.getRequestURI();
-
-        if (request.getQueryString() != null) {
-            requestUri += "?" + request.getQueryString();
-        }
-
-        if (!requestUri.contains("name")) {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-            uriBuilder.queryParam("name", "{name}");
-            String getStudyModulesByName = HypermediaGenerator.formatLinkHeader(
-                    uriBuilder.build().toString(),
-                    "getStudyModulesByName");
-
-            headers.add(HttpHeaders.LINK, getStudyModulesByName);
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id_asc") String sort,
+            @RequestParam(defaultValue = "false") Boolean total,
+            NativeWebRequest request) {
+        // A missing university is reported before the conditional request is
+        // answered, so a deleted university is never reported as not modified
+        String eTag = representationNegotiator.eTag(request, ModificationClock.eTag(
+                studyModuleService.getCollectionVersionOfUniversity(universityId)));
+        if (request.checkNotModified(eTag)) {
+            return null;
         }
 
-        if (!requestUri.contains("semester")) {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-            uriBuilder.queryParam("semester", "{semester}");
-            String getStudyModulesBySemester = HypermediaGenerator.formatLinkHeader(
-                    uriBuilder.build().toString(),
-                    "getStudyModulesBySemester");
+        // Keyset pagination is used unless a page number is requested
+        Slice<StudyModuleSummary> studyModules = page == null
+                ? studyModuleService.scrollModulesForUniversity(
+                        universityId,
+                        name,
+                        semester,
+                        cursor,
+                        size,
+                        sort,
+                        total)
+                : studyModuleService.getModulesForUniversity(
+                        universityId,
+                        name,
+                        semester,
+                        Math.max(0, page),
+                        size,
+                        sort,
+                        total);
+
+        HttpHeaders headers = hypermediaGenerator.buildCollectionLinksHeaders(studyModules, COLLECTION_LINKS);
 
-            headers.add(HttpHeaders.LINK, getStudyModulesBySemester);
+        if (headers == null) {
+            headers = new HttpHeaders();
         }
 
-        if (!requestUri.contains("name") || !requestUri.contains("semester")) {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-            uriBuilder.queryParam("name", "{name}")
-                    .queryParam("semester", "{semester}");
-            String getStudyModulesByNameAndSemester = HypermediaGenerator.formatLinkHeader(
-                    uriBuilder.build().toString(),
-                    "getStudyModulesByNameAndSemester");
-
-            headers.add(HttpHeaders.LINK, getStudyModulesByNameAndSemester);
+        // The total is only counted if the client requested it
+        Optional<Long> totalElements = HypermediaGenerator.getTotalElements(studyModules);
+        if (totalElements.isPresent()) {
+            headers.set(TOTAL_COUNT_HEADER, String.valueOf(totalElements.get()));
         }
 
-        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-        uriBuilder.replaceQueryParam("sort", sortField + "_" + reverseSortOrder);
-        String reverseSort = HypermediaGenerator.formatLinkHeader(
-                uriBuilder.build().toString(),
-                "reverseSortOrder");
-        headers.add(HttpHeaders.LINK, reverseSort);
-
-        uriBuilder.replaceQueryParam("sort", setSortOrder);
-        String setSort = HypermediaGenerator.formatLinkHeader(
-                uriBuilder.build().toString(),
-                "setSortOrder");
-        headers.add(HttpHeaders.LINK, setSort);
-
-        String uriTemplatePath = UNIVERSITY_ENDPOINT + "/" + universityId + MODULE_ENDPOINT + "/{moduleId}";
-        String getModuleOfUniversityHeader = formatLinkHeader(uriTemplatePath, "getModuleOfUniversity");
-        headers.add(HttpHeaders.LINK, getModuleOfUniversityHeader);
+        headers.addAll(HttpHeaders.LINK, List.of(UNIVERSITY_MODULE_LINK.render(universityId)));
 
         return ResponseEntity.ok()
+                .eTag(eTag)
                 .headers(headers)
                 .body(studyModules.getContent());
     }
@@ -237,22 +215,20 @@ public class StudyModuleController {
     @GetMapping(UNIVERSITY_ENDPOINT + "/{universityId}" + MODULE_ENDPOINT + "/{moduleId}")
     public ResponseEntity<StudyModule> getOneOfUniversity(
             @PathVariable Long universityId,
-            @PathVariable Long moduleId) {
-        StudyModule studyModule = studyModuleService.getModuleForUniversity(universityId, moduleId);
-
-        HttpHeaders headers = new HttpHeaders();
-
-        String updateLink = String.format("%s/%d", MODULE_ENDPOINT, studyModule.getId());
-        updateLink = formatLinkHeader(updateLink, "putUpdate");
-
-        String deleteLink = String.format("%s/%d", MODULE_ENDPOINT, studyModule.getId());
-        deleteLink = formatLinkHeader(deleteLink, "delete");
+            @PathVariable Long moduleId,
+            NativeWebRequest request) {
+        // Compare the version before the module is loaded. The version is only
+        // found if the module is linked to the university.
+        long version = studyModuleService.getModuleVersionForUniversity(universityId, moduleId);
+        if (request.checkNotModified(representationNegotiator.eTag(request, ModificationClock.eTag(version)))) {
+            return null;
+        }
 
-        headers.add(HttpHeaders.LINK, updateLink);
-        headers.add(HttpHeaders.LINK, deleteLink);
+        StudyModule studyModule = studyModuleService.getModuleForUniversity(universityId, moduleId, version);
 
         return ResponseEntity.ok()
-                .headers(headers)
+                .eTag(representationNegotiator.eTag(request, ModificationClock.eTag(studyModule.getVersion())))
+                .header(HttpHeaders.LINK, ENTITY_LINKS.render(studyModule.getId()))
                 .body(studyModule);
     }
 
@@ -263,39 +239,60 @@ public class StudyModuleController {
         return ResponseEntity.created(location).body(studyModule);
     }
 
+    /**
+     * Creates several study modules in one transaction and returns the URIs of
+     * the created study modules. Batches larger than the configured maximum are
+     * rejected with 413 Payload Too Large.
+     */
+    @PostMapping(MODULE_ENDPOINT + BATCH_SUFFIX)
+    public ResponseEntity<List<URI>> createBatch(@RequestBody List<@NotNull @Valid StudyModule> studyModules) {
+        // Checked before any ID is reserved
+        batchSizeLimit.verify(studyModules.size());
+        List<URI> locations = studyModuleService.createModules(studyModules);
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(locations);
+    }
+
     @PutMapping(MODULE_ENDPOINT + "/{id}")
-    public ResponseEntity<StudyModule> update(@PathVariable Long id, @Valid @RequestBody StudyModule entity) {
+    public ResponseEntity<StudyModule> update(
+            @PathVariable Long id,
+            @Valid @RequestBody StudyModule entity,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            NativeWebRequest request) {
         if (!entity.getId().equals(id))
             return ResponseEntity.badRequest().build();
 
+        // Only replace the version the client has seen
+        if (ifMatch != null) {
+            long version = studyModuleService.updateModuleIfMatch(id, entity,
+                    ModificationClock.parseVersions(ifMatch));
+
+            // The ETag of the representation the client negotiates, like the
+            // ETag of a GET
+            return ResponseEntity.noContent()
+                    .eTag(representationNegotiator.eTag(request, ModificationClock.eTag(version)))
+                    .header(HttpHeaders.LINK, SELF_LINK.render(id))
+                    .build();
+        }
+
         Optional<URI> locationOptional = studyModuleService.updateModule(id, entity);
         boolean isModuleCreated = locationOptional.isPresent();
 
         if (isModuleCreated) {
             return ResponseEntity.created(locationOptional.get()).body(entity);
         } else {
-            HttpHeaders headers = new HttpHeaders();
-
-            String formattedEndpoint = String.format("%s/%d", MODULE_ENDPOINT, id);
-            String getModuleLink = formatLinkHeader(formattedEndpoint, "getSelf");
-
-            headers.add(HttpHeaders.LINK, getModuleLink);
             return ResponseEntity.noContent()
-                    .headers(headers)
+                    .header(HttpHeaders.LINK, SELF_LINK.render(id))
                     .build();
         }
     }
 
     @DeleteMapping(MODULE_ENDPOINT + "/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
-        String getModulesCollectionLink = formatLinkHeader(MODULE_ENDPOINT, "getModulesCollection");
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.LINK, getModulesCollectionLink);
-
         studyModuleService.deleteModule(id);
         return ResponseEntity.noContent()
-                .headers(headers)
+                .header(HttpHeaders.LINK, COLLECTION_LINK)
                 .build();
     }
 
@@ -308,14 +305,8 @@ public class StudyModuleController {
             @PathVariable Long moduleId) {
         studyModuleService.linkModuleToUniversity(moduleId, universityId);
 
-        HttpHeaders headers = new HttpHeaders();
-        String formattedEndpoint = String.format("%s/%d%s", UNIVERSITY_ENDPOINT, universityId, MODULE_ENDPOINT);
-        String getModulesLink = formatLinkHeader(formattedEndpoint, "getModulesOfUniversity");
-
-        headers.add(HttpHeaders.LINK, getModulesLink);
-
         return ResponseEntity.noContent()
-                .headers(headers)
+                .header(HttpHeaders.LINK, UNIVERSITY_MODULES_LINK.render(universityId))
                 .build();
     }
 
@@ -328,29 +319,17 @@ public class StudyModuleController {
             @PathVariable Long moduleId) {
         studyModuleService.unlinkModuleFromUniversity(moduleId, universityId);
 
-        HttpHeaders headers = new HttpHeaders();
-        String formattedEndpoint = String.format("%s/%d%s", UNIVERSITY_ENDPOINT, universityId, MODULE_ENDPOINT);
-        String getModulesLink = formatLinkHeader(formattedEndpoint, "getModulesOfUniversity");
-
-        headers.add(HttpHeaders.LINK, getModulesLink);
-
         return ResponseEntity.noContent()
-                .headers(headers)
+                .header(HttpHeaders.LINK, UNIVERSITY_MODULES_LINK.render(universityId))
                 .build();
     }
 
     @DeleteMapping(MODULE_ENDPOINT)
     public ResponseEntity<Void> deleteAll() {
         studyModuleService.deleteAllModules();
-        HttpHeaders headers = new HttpHeaders();
-
-        String formattedEndpoint = String.format("%s", MODULE_ENDPOINT);
-        String getModulesLink = formatLinkHeader(formattedEndpoint, "getModulesCollection");
-
-        headers.add(HttpHeaders.LINK, getModulesLink);
 
         return ResponseEntity.noContent()
-                .headers(headers)
+                .header(HttpHeaders.LINK, COLLECTION_LINK)
                 .build();
     }
 }
@@ -1,5 +1,9 @@
 package com.papook.studytravel.server.controllers;
 
+import static com.papook.studytravel.server.ServerConfiguration.BATCH_SUFFIX;
+import static com.papook.studytravel.server.ServerConfiguration.EXPORT_SUFFIX;
+import static com.papook.studytravel.server.ServerConfiguration.MODULE_ENDPOINT;
+import static com.papook.studytravel.server.ServerConfiguration.TOTAL_COUNT_HEADER;
 import static com.papook.studytravel.server.ServerConfiguration.UNIVERSITY_ENDPOINT;
 
 import java.net.URI;
@@ -7,9 +11,10 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,21 +22,47 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.UniversitySummary;
 import com.papook.studytravel.server.services.UniversityService;
+import com.papook.studytravel.server.utils.BatchSizeLimit;
+import com.papook.studytravel.server.utils.CollectionLinkTemplate;
+import com.papook.studytravel.server.utils.EntityLinkTemplate;
 import com.papook.studytravel.server.utils.HypermediaGenerator;
+import com.papook.studytravel.server.utils.ModificationClock;
+import com.papook.studytravel.server.utils.NdjsonExport;
+import com.papook.studytravel.server.utils.RepresentationNegotiator;
 
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
 
 @RestController
-@RequestMapping(UNIVERSITY_ENDPOINT)
+@RequestMapping
 public class UniversityController {
+    private static final CollectionLinkTemplate COLLECTION_LINKS = new CollectionLinkTemplate(
+            "name", "getUniversitiesByName",
+            "country", "getUniversitiesByCountry",
+            "getUniversitiesByNameAndCountry");
+    private static final EntityLinkTemplate ENTITY_LINKS = new EntityLinkTemplate(
+            UNIVERSITY_ENDPOINT + "/", "", "putUpdate", "delete");
+    // Templates for the URI of a module belonging to the university
+    private static final EntityLinkTemplate MODULE_LINKS = new EntityLinkTemplate(
+            UNIVERSITY_ENDPOINT + "/", MODULE_ENDPOINT + "/{moduleId}",
+            "putLinkModule", "delUnlinkModule", "getModuleOfUniversity");
+    private static final EntityLinkTemplate SELF_LINK = new EntityLinkTemplate(
+            UNIVERSITY_ENDPOINT + "/", "", "getSelf");
+    private static final String COLLECTION_LINK = HypermediaGenerator.formatLinkHeader(
+            UNIVERSITY_ENDPOINT, "getUniversitiesCollection");
+
     @Autowired
     private UniversityService universityService;
 
@@ -39,124 +70,93 @@ public class UniversityController {
     private HypermediaGenerator hypermediaGenerator;
 
     @Autowired
-    private HttpServletRequest request;
+    private ObjectMapper objectMapper;
 
-    @GetMapping
-    public ResponseEntity<Iterable<University>> getCollection(
-            @RequestParam(defaultValue = "") String name,
-            @RequestParam(defaultValue = "") String country,
-            @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "id_asc") String sort) {
+    @Autowired
+    private RepresentationNegotiator representationNegotiator;
 
-        page = Math.max(0, page);
+    @Autowired
+    private BatchSizeLimit batchSizeLimit;
 
-        Page<University> universitiesPage = universityService.getUniversities(name, country, page, sort);
+    @GetMapping(UNIVERSITY_ENDPOINT)
+    public ResponseEntity<Iterable<UniversitySummary>> getCollection(
+            @RequestParam(defaultValue = "") String name,
+            @RequestParam(defaultValue = "") String country,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id_asc") String sort,
+            @RequestParam(defaultValue = "false") Boolean total,
+            NativeWebRequest request) {
+        // Answer a conditional request before querying the universities
+        String eTag = representationNegotiator.eTag(request,
+                ModificationClock.eTag(universityService.getCollectionVersion()));
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
 
-        Order sortOrder = universitiesPage.getSort()
-                .get()
-                .findFirst()
-                .orElse(Order.asc("id"));
-        String sortField = sortOrder
-                .getProperty();
-        String setSortOrder = "{field}_{asc, desc}";
-        String reverseSortOrder = sortOrder
-                .getDirection()
-                .isAscending()
-                        ? "desc"
-                        : "asc";
+        // Keyset pagination is used unless a page number is requested
+        Slice<UniversitySummary> universitiesPage = page == null
+                ? universityService.scrollUniversities(name, country, cursor, size, sort, total)
+                : universityService.getUniversities(name, country, Math.max(0, page), size, sort, total);
 
-        List<University> responseBody = universitiesPage.getContent();
-        HttpHeaders headers = hypermediaGenerator.buildPagingLinksHeaders(universitiesPage);
+        List<UniversitySummary> responseBody = universitiesPage.getContent();
+        HttpHeaders headers = hypermediaGenerator.buildCollectionLinksHeaders(universitiesPage, COLLECTION_LINKS);
 
         if (headers == null) {
             headers = new HttpHeaders();
         }
 
-        String requestUri = request.getRequestURI();
-
-        if (request.getQueryString() != null) {
-            requestUri += "?" + request.getQueryString();
-        }
-
-        if (!requestUri.contains("name")) {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-            uriBuilder.queryParam("name", "{name}");
-            String getUniversitiesByName = HypermediaGenerator.formatLinkHeader(
-                    uriBuilder.build().toString(),
-                    "getUniversitiesByName");
-
-            headers.add(HttpHeaders.LINK, getUniversitiesByName);
-        }
-
-        if (!requestUri.contains("country")) {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-            uriBuilder.queryParam("country", "{country}");
-            String getUniversitiesByCountry = HypermediaGenerator.formatLinkHeader(
-                    uriBuilder.build().toString(),
-                    "getUniversitiesByCountry");
-
-            headers.add(HttpHeaders.LINK, getUniversitiesByCountry);
+        // The total is only counted if the client requested it
+        Optional<Long> totalElements = HypermediaGenerator.getTotalElements(universitiesPage);
+        if (totalElements.isPresent()) {
+            headers.set(TOTAL_COUNT_HEADER, String.valueOf(totalElements.get()));
         }
 
-        if (!requestUri.contains("name") || !requestUri.contains("country")) {
-            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-            uriBuilder.queryParam("name", "{name}")
-                    .queryParam("country", "{country}");
-            String getUniversitiesByNameAndCountry = HypermediaGenerator.formatLinkHeader(
-                    uriBuilder.build().toString(),
-                    "getUniversitiesByNameAndCountry");
-
-            headers.add(HttpHeaders.LINK, getUniversitiesByNameAndCountry);
-        }
-
-        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(requestUri);
-        uriBuilder.replaceQueryParam("sort", sortField + "_" + reverseSortOrder);
-        String reverseSort = HypermediaGenerator.formatLinkHeader(
-                uriBuilder.build().toString(),
-                "reverseSortOrder");
-        headers.add(HttpHeaders.LINK, reverseSort);
-
-        uriBuilder.replaceQueryParam("sort", setSortOrder);
-        String setSort = HypermediaGenerator.formatLinkHeader(
-                uriBuilder.build().toString(),
-                "setSortOrder");
-        headers.add(HttpHeaders.LINK, setSort);
-
         return ResponseEntity.ok()
+                .eTag(eTag)
                 .headers(headers)
                 .body(responseBody);
 
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<University> getOne(@PathVariable Long id) {
-        University university = universityService.getUniversityById(id);
-
-        HttpHeaders headers = new HttpHeaders();
+    /**
+     * Streams all universities matching the filters as newline-delimited JSON, in
+     * the order of their IDs. Unlike the collection, the export is not paged and
+     * does not count the universities.
+     */
+    @GetMapping(value = UNIVERSITY_ENDPOINT + EXPORT_SUFFIX, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "") String name,
+            @RequestParam(defaultValue = "") String country) {
+        StreamingResponseBody body = NdjsonExport.<UniversitySummary>body(objectMapper,
+                rows -> universityService.exportUniversities(name, country, rows));
 
-        String formattedEndpoint = String.format("%s/%d", UNIVERSITY_ENDPOINT, university.getId());
-        String updateLink = HypermediaGenerator.formatLinkHeader(formattedEndpoint, "putUpdate");
-        String deleteLink = HypermediaGenerator.formatLinkHeader(formattedEndpoint, "delete");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 
-        // A template for the URI of a module belonging to the university
-        String moduleUriTemplate = university.getModules().getPath() + "/{moduleId}";
-        String linkModule = HypermediaGenerator.formatLinkHeader(moduleUriTemplate, "putLinkModule");
-        String unlinkModule = HypermediaGenerator.formatLinkHeader(moduleUriTemplate, "delUnlinkModule");
-        String getModuleOfUniversity = HypermediaGenerator.formatLinkHeader(moduleUriTemplate,
-                "getModuleOfUniversity");
+    @GetMapping(UNIVERSITY_ENDPOINT + "/{id}")
+    public ResponseEntity<University> getOne(@PathVariable Long id, NativeWebRequest request) {
+        // Compare the version before the university is loaded
+        long version = universityService.getUniversityVersion(id);
+        if (request.checkNotModified(representationNegotiator.eTag(request, ModificationClock.eTag(version)))) {
+            return null;
+        }
 
-        headers.add(HttpHeaders.LINK, updateLink);
-        headers.add(HttpHeaders.LINK, deleteLink);
-        headers.add(HttpHeaders.LINK, linkModule);
-        headers.add(HttpHeaders.LINK, unlinkModule);
-        headers.add(HttpHeaders.LINK, getModuleOfUniversity);
+        // The ETag is derived from the university that is sent, which may be
+        // written in the meantime
+        University university = universityService.getUniversityById(id, version);
 
         return ResponseEntity.ok()
-                .headers(headers)
+                .eTag(representationNegotiator.eTag(request, ModificationClock.eTag(university.getVersion())))
+                .header(HttpHeaders.LINK, ENTITY_LINKS.render(university.getId()))
+                .header(HttpHeaders.LINK, MODULE_LINKS.render(university.getId()))
                 .body(university);
     }
 
-    @PostMapping
+    @PostMapping(UNIVERSITY_ENDPOINT)
     public ResponseEntity<University> create(@Valid @RequestBody University university) {
         // Call the service to create the University
         // and get the location URI
@@ -169,12 +169,44 @@ public class UniversityController {
                 .body(university);
     }
 
-    @PutMapping("/{id}")
-    public ResponseEntity<University> update(@PathVariable Long id, @Valid @RequestBody University entity) {
+    /**
+     * Creates several universities in one transaction and returns the URIs of
+     * the created universities. Batches larger than the configured maximum are
+     * rejected with 413 Payload Too Large.
+     */
+    @PostMapping(UNIVERSITY_ENDPOINT + BATCH_SUFFIX)
+    public ResponseEntity<List<URI>> createBatch(@RequestBody List<@NotNull @Valid University> universities) {
+        // Checked before any ID is reserved
+        batchSizeLimit.verify(universities.size());
+        List<URI> locations = universityService.createUniversities(universities);
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(locations);
+    }
+
+    @PutMapping(UNIVERSITY_ENDPOINT + "/{id}")
+    public ResponseEntity<University> update(
+            @PathVariable Long id,
+            @Valid @RequestBody University entity,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            NativeWebRequest request) {
         // Check if the ID in the path and the ID in the entity match
         if (!entity.getId().equals(id))
             return ResponseEntity.badRequest().build();
 
+        // Only replace the version the client has seen
+        if (ifMatch != null) {
+            long version = universityService.updateUniversityIfMatch(id, entity,
+                    ModificationClock.parseVersions(ifMatch));
+
+            // The ETag of the representation the client negotiates, like the
+            // ETag of a GET
+            return ResponseEntity.noContent()
+                    .eTag(representationNegotiator.eTag(request, ModificationClock.eTag(version)))
+                    .header(HttpHeaders.LINK, SELF_LINK.render(id))
+                    .build();
+        }
+
         // Call the service to update the University
         Optional<URI> locationOptional = universityService.updateUniversity(id, entity);
 
@@ -188,50 +220,29 @@ public class UniversityController {
             return ResponseEntity.created(location).body(entity);
 
         } else {
-            HttpHeaders headers = new HttpHeaders();
-
-            String formattedEndpoint = String.format("%s/%d", UNIVERSITY_ENDPOINT, id);
-            String getLink = HypermediaGenerator.formatLinkHeader(formattedEndpoint, "getSelf");
-
-            headers.add(HttpHeaders.LINK, getLink);
-
             // Return a NO CONTENT status code
             return ResponseEntity.noContent()
-                    .headers(headers)
+                    .header(HttpHeaders.LINK, SELF_LINK.render(id))
                     .build();
         }
 
     }
 
-    @DeleteMapping("/{id}")
+    @DeleteMapping(UNIVERSITY_ENDPOINT + "/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         universityService.deleteUniversity(id);
-        HttpHeaders headers = new HttpHeaders();
-
-        String formattedEndpoint = String.format("%s", UNIVERSITY_ENDPOINT);
-        String getUniversitiesLink = HypermediaGenerator.formatLinkHeader(formattedEndpoint,
-                "getUniversitiesCollection");
-
-        headers.add(HttpHeaders.LINK, getUniversitiesLink);
 
         return ResponseEntity.noContent()
-                .headers(headers)
+                .header(HttpHeaders.LINK, COLLECTION_LINK)
                 .build();
     }
 
-    @DeleteMapping
+    @DeleteMapping(UNIVERSITY_ENDPOINT)
     public ResponseEntity<Void> deleteAll() {
         universityService.deleteAllUniversities();
-        HttpHeaders headers = new HttpHeaders();
-
-        String formattedEndpoint = String.format("%s", UNIVERSITY_ENDPOINT);
-        String getUniversitiesLink = HypermediaGenerator.formatLinkHeader(formattedEndpoint,
-                "getUniversitiesCollection");
-
-        headers.add(HttpHeaders.LINK, getUniversitiesLink);
 
         return ResponseEntity.noContent()
-                .headers(headers)
+                .header(HttpHeaders.LINK, COLLECTION_LINK)
                 .build();
     }
 
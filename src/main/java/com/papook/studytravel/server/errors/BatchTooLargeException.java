@@ -0,0 +1,11 @@
+package com.papook.studytravel.server.errors;
+
+/**
+ * Exception thrown when a batch request contains more resources than the
+ * configured maximum batch size.
+ * 
+ * @author papook
+ */
+public class BatchTooLargeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+}
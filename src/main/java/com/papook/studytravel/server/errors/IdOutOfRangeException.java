@@ -0,0 +1,11 @@
+package com.papook.studytravel.server.errors;
+
+/**
+ * Exception thrown when a resource is created with PUT and an ID larger than
+ * the configured maximum ID.
+ * 
+ * @author papook
+ */
+public class IdOutOfRangeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,11 @@
+package com.papook.studytravel.server.errors;
+
+/**
+ * Exception thrown when a pagination cursor cannot be decoded or does not match
+ * the requested sort order.
+ * 
+ * @author papook
+ */
+public class InvalidCursorException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+}
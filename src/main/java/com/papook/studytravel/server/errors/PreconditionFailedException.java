@@ -0,0 +1,11 @@
+package com.papook.studytravel.server.errors;
+
+/**
+ * Exception thrown when a conditional update is attempted on a resource whose
+ * current version does not match the version expected by the client.
+ * 
+ * @author papook
+ */
+public class PreconditionFailedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,27 @@
+package com.papook.studytravel.server.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The version of a collection, counted up in the same transaction as every
+ * write to the collection. All servers sharing the database count the same
+ * row, so they agree on the version, and the ETag of a collection is read from
+ * a single row instead of the stored resources, see
+ * {@link com.papook.studytravel.server.utils.CollectionVersions}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class CollectionVersion {
+    @Id
+    String collectionName;
+    /**
+     * The version of the collection, larger after every write.
+     */
+    Long version;
+}
@@ -0,0 +1,26 @@
+package com.papook.studytravel.server.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A persistent sequence of IDs for one entity type. The IDs are reserved in
+ * blocks by the {@link com.papook.studytravel.server.utils.IdGenerator} of every
+ * server instance, so they continue after a restart and are never given out by
+ * two instances.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class IdSequence {
+    @Id
+    String sequenceName;
+    /**
+     * The first ID that has not been reserved yet.
+     */
+    Long nextValue;
+}
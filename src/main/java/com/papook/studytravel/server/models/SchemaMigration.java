@@ -0,0 +1,28 @@
+package com.papook.studytravel.server.models;
+
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A change of the schema that was applied to the database, e.g. a dropped
+ * column. The changes are recorded by the
+ * {@link com.papook.studytravel.server.utils.SchemaMigrations}, so each one
+ * runs once per database, and not on every start of every server instance.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class SchemaMigration {
+    @Id
+    String name;
+    /**
+     * When the change was applied.
+     */
+    Instant appliedAt;
+}
@@ -6,10 +6,16 @@ import static com.papook.studytravel.server.ServerConfiguration.MODULE_ENDPOINT;
 import java.net.URI;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
+import com.papook.studytravel.server.utils.SearchNormalizer;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -20,16 +26,26 @@ import lombok.Setter;
 
 /**
  * Represents a module that can be taken by students
- * at a partner university.
+ * at a partner university. The link to the university is stored only in the
+ * indexed {@code universityId} column. The columns used for filtering and
+ * sorting are indexed as well. The name is searched in a normalized copy, which
+ * is maintained on every write. The link to the module is not stored, it is
+ * rendered from the ID when the module is written to a response.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_study_module_university_id", columnList = "universityId"),
+        @Index(name = "idx_study_module_name", columnList = "name"),
+        @Index(name = "idx_study_module_semester", columnList = "semester"),
+        @Index(name = "idx_study_module_credit_points", columnList = "creditPoints"),
+        @Index(name = "idx_study_module_name_normalized", columnList = "nameNormalized")
+})
 public class StudyModule {
     @Id
-    @Setter(AccessLevel.NONE)
     Long id;
 
     @NotNull
@@ -39,10 +55,16 @@ public class StudyModule {
     String semester;
     @NotNull
     Integer creditPoints;
-    @Setter(AccessLevel.NONE)
-    URI self;
     @JsonIgnore
     Long universityId;
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    String nameNormalized;
+    /**
+     * Changed on every write, the ETag of the module is derived from it.
+     */
+    @JsonIgnore
+    Long version;
 
     @JsonSetter
     public void setSemester(String semester) {
@@ -56,13 +78,26 @@ public class StudyModule {
         this.semester = semester;
     }
 
-    public void setId(Long id) {
-        this.id = id;
-        setSelf(id);
+    /**
+     * @return The URI of the module, or null if the module has no ID yet.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public URI getSelf() {
+        return selfUri(id);
+    }
+
+    static URI selfUri(Long id) {
+        return id == null ? null : URI.create(BASE_URI + MODULE_ENDPOINT + "/" + id);
     }
 
-    public void setSelf(Long id) {
-        this.self = URI.create(BASE_URI + MODULE_ENDPOINT + "/" + id);
+    /**
+     * Normalizes the name into the search column. Called before the module is
+     * inserted or updated.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateSearchColumns() {
+        this.nameNormalized = SearchNormalizer.normalize(name);
     }
 
     /**
@@ -0,0 +1,25 @@
+package com.papook.studytravel.server.models;
+
+import java.net.URI;
+
+/**
+ * The fields of a study module shown in the collections and exports. It is
+ * selected directly from the columns, so a page of modules is not loaded into
+ * the persistence context. The link is rendered from the ID, like that of
+ * {@link StudyModule}, which has the same representation.
+ *
+ * @author papook
+ */
+public record StudyModuleSummary(
+        Long id,
+        String name,
+        String semester,
+        Integer creditPoints) {
+
+    /**
+     * @return The URI of the module.
+     */
+    public URI getSelf() {
+        return StudyModule.selfUri(id);
+    }
+}
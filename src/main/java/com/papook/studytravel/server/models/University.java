@@ -6,13 +6,17 @@ import static com.papook.studytravel.server.ServerConfiguration.UNIVERSITY_ENDPO
 
 import java.net.URI;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.papook.studytravel.server.utils.SearchNormalizer;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -22,16 +26,33 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 /**
- * Represents a partner university for student exchange programs
+ * Represents a partner university for student exchange programs.
+ * The modules of a university are not stored here, they are derived from
+ * {@link StudyModule#getUniversityId()}. The columns used for filtering and
+ * sorting are indexed. The name and country are searched in normalized copies,
+ * which are maintained on every write. The links to the university and its
+ * modules are not stored either, they are rendered from the ID when the
+ * university is written to a response.
  */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_university_name", columnList = "name"),
+        @Index(name = "idx_university_country", columnList = "country"),
+        @Index(name = "idx_university_department", columnList = "department"),
+        @Index(name = "idx_university_contact_person_name", columnList = "contactPersonName"),
+        @Index(name = "idx_university_outgoing_student_number", columnList = "outgoingStudentNumber"),
+        @Index(name = "idx_university_incoming_student_number", columnList = "incomingStudentNumber"),
+        @Index(name = "idx_university_spring_semester_start", columnList = "springSemesterStart"),
+        @Index(name = "idx_university_fall_semester_start", columnList = "fallSemesterStart"),
+        @Index(name = "idx_university_name_normalized", columnList = "nameNormalized"),
+        @Index(name = "idx_university_country_normalized", columnList = "countryNormalized")
+})
 public class University {
     @Id
-    @Setter(AccessLevel.NONE)
     Long id;
     @NotNull
     String name;
@@ -49,33 +70,52 @@ public class University {
     LocalDate springSemesterStart;
     @NotNull
     LocalDate fallSemesterStart;
+    @JsonIgnore
     @Setter(AccessLevel.NONE)
-    URI modules;
+    String nameNormalized;
+    @JsonIgnore
     @Setter(AccessLevel.NONE)
-    URI self;
+    String countryNormalized;
+    /**
+     * Changed on every write, the ETag of the university is derived from it.
+     */
     @JsonIgnore
-    @Builder.Default
-    Set<Long> moduleIds = new HashSet<>();
+    Long version;
 
-    public void addModule(Long moduleId) {
-        moduleIds.add(moduleId);
+    /**
+     * @return The URI of the modules of the university, or null if the
+     *         university has no ID yet.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public URI getModules() {
+        return modulesUri(id);
     }
 
-    public void removeModule(Long moduleId) {
-        moduleIds.remove(moduleId);
+    /**
+     * @return The URI of the university, or null if the university has no ID
+     *         yet.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public URI getSelf() {
+        return selfUri(id);
     }
 
-    public void setId(Long id) {
-        this.id = id;
-        setModules(this.id);
-        setSelf(this.id);
+    static URI modulesUri(Long id) {
+        return id == null ? null : URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + id + MODULE_ENDPOINT);
     }
 
-    public void setModules(Long id) {
-        this.modules = URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + id + MODULE_ENDPOINT);
+    static URI selfUri(Long id) {
+        return id == null ? null : URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + id);
     }
 
-    public void setSelf(Long id) {
-        this.self = URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + id);
+    /**
+     * Normalizes the name and country into the search columns. Called before
+     * the university is inserted or updated.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateSearchColumns() {
+        this.nameNormalized = SearchNormalizer.normalize(name);
+        this.countryNormalized = SearchNormalizer.normalize(country);
     }
 }
\ No newline at end of file
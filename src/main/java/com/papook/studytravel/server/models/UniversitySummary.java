@@ -0,0 +1,38 @@
+package com.papook.studytravel.server.models;
+
+import java.net.URI;
+import java.time.LocalDate;
+
+/**
+ * The fields of a university shown in the collections and exports. It is
+ * selected directly from the columns, so a page of universities is not
+ * loaded into the persistence context. The links are rendered from the ID,
+ * like those of {@link University}, which has the same representation.
+ *
+ * @author papook
+ */
+public record UniversitySummary(
+        Long id,
+        String name,
+        String country,
+        String department,
+        String contactPersonName,
+        Integer outgoingStudentNumber,
+        Integer incomingStudentNumber,
+        LocalDate springSemesterStart,
+        LocalDate fallSemesterStart) {
+
+    /**
+     * @return The URI of the modules of the university.
+     */
+    public URI getModules() {
+        return University.modulesUri(id);
+    }
+
+    /**
+     * @return The URI of the university.
+     */
+    public URI getSelf() {
+        return University.selfUri(id);
+    }
+}
@@ -0,0 +1,32 @@
+package com.papook.studytravel.server.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A range of reserved IDs that were not used, or were freed again, when a
+ * server instance stopped. The next instance that starts takes the ranges
+ * over, so these IDs are not lost.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_unused_id_range_sequence_name", columnList = "sequenceName")
+})
+public class UnusedIdRange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+    String sequenceName;
+    Long firstId;
+    Long lastId;
+}
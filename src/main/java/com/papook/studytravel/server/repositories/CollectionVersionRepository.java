@@ -0,0 +1,66 @@
+package com.papook.studytravel.server.repositories;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.papook.studytravel.server.models.CollectionVersion;
+
+/**
+ * Counts the versions of the collections.
+ */
+@Repository
+public interface CollectionVersionRepository extends CrudRepository<CollectionVersion, String> {
+    /**
+     * Create the version of a collection if it does not exist yet.
+     * 
+     * @param collectionName The name of the collection.
+     * @param initialVersion The version of the collection if it is created.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = """
+            merge into collection_version c
+            using (values (:collectionName, :initialVersion)) v(collection_name, version)
+            on c.collection_name = v.collection_name
+            when not matched then insert (collection_name, version) values (v.collection_name, v.version)""",
+            nativeQuery = true)
+    public void createIfAbsent(String collectionName, long initialVersion);
+
+    /**
+     * Count up the version of a collection. The update locks the row until the
+     * calling transaction ends, so the writes to a collection are counted in
+     * the order they are committed. Must be called within the transaction of
+     * the write.
+     * 
+     * @param collectionName The name of the collection.
+     * 
+     * @return The number of updated rows, 0 if the collection was not created.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("update CollectionVersion c set c.version = c.version + 1 where c.collectionName = :collectionName")
+    public int increment(String collectionName);
+
+    /**
+     * Find the version of a collection.
+     * 
+     * @param collectionName The name of the collection.
+     * 
+     * @return The version or an empty optional if the collection was not
+     *         created.
+     * 
+     * @author papook
+     */
+    @Query("select c.version from CollectionVersion c where c.collectionName = :collectionName")
+    public Optional<Long> findVersion(String collectionName);
+}
@@ -0,0 +1,61 @@
+package com.papook.studytravel.server.repositories;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.papook.studytravel.server.models.IdSequence;
+
+/**
+ * Reserves blocks of IDs from the persistent sequences.
+ * 
+ * Every change is committed in its own transaction, even if it is called
+ * within another transaction. A reserved block must stay reserved when the
+ * calling transaction is rolled back, otherwise another instance could
+ * reserve the same IDs.
+ */
+@Repository
+public interface IdSequenceRepository extends CrudRepository<IdSequence, String> {
+    /**
+     * Create the sequence if it does not exist and make sure it continues at
+     * the given ID or later.
+     * 
+     * @param sequenceName The name of the sequence.
+     * @param minNextValue The lowest ID that the sequence may reserve next.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = """
+            merge into id_sequence s
+            using (values (:sequenceName, :minNextValue)) v(sequence_name, next_value)
+            on s.sequence_name = v.sequence_name
+            when matched then update set s.next_value = greatest(s.next_value, v.next_value)
+            when not matched then insert (sequence_name, next_value) values (v.sequence_name, v.next_value)""",
+            nativeQuery = true)
+    public void advanceTo(String sequenceName, long minNextValue);
+
+    /**
+     * Reserve a block of IDs with a single statement. The update locks the row
+     * of the sequence, so concurrent reservations get different blocks.
+     * 
+     * @param sequenceName The name of the sequence.
+     * @param size         The number of IDs to reserve.
+     * 
+     * @return The first ID after the reserved block. The block starts at this
+     *         value minus the size.
+     * 
+     * @author papook
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = """
+            select next_value from final table (
+                update id_sequence set next_value = next_value + :size
+                where sequence_name = :sequenceName)""",
+            nativeQuery = true)
+    public long reserveBlock(String sequenceName, int size);
+}
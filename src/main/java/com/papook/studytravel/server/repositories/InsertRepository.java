@@ -0,0 +1,32 @@
+package com.papook.studytravel.server.repositories;
+
+/**
+ * Repository fragment for inserting new entities, optionally in JDBC batches.
+ * 
+ * Unlike {@code save}, the entities are inserted without checking whether an
+ * entity with the same ID already exists, so no additional select is executed
+ * for entities with an assigned ID.
+ * 
+ * @param <T> The type of the entities.
+ * 
+ * @author papook
+ */
+public interface InsertRepository<T> {
+    /**
+     * Insert the given entities. Must be called within a transaction.
+     * 
+     * @param entities The new entities with their IDs already assigned.
+     * 
+     * @author papook
+     */
+    public void insertAll(Iterable<T> entities);
+
+    /**
+     * Insert the given entity. Must be called within a transaction.
+     * 
+     * @param entity The new entity with its ID already assigned.
+     * 
+     * @author papook
+     */
+    public void insert(T entity);
+}
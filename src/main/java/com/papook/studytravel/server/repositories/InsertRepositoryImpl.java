@@ -0,0 +1,45 @@
+package com.papook.studytravel.server.repositories;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Inserts the entities with {@link EntityManager#persist(Object)}. The
+ * persistence context is flushed and cleared after every JDBC batch, so the
+ * memory used does not grow with the number of entities.
+ * 
+ * @param <T> The type of the entities.
+ * 
+ * @author papook
+ */
+public class InsertRepositoryImpl<T> implements InsertRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public void insertAll(Iterable<T> entities) {
+        int count = 0;
+        for (T entity : entities) {
+            entityManager.persist(entity);
+
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public void insert(T entity) {
+        entityManager.persist(entity);
+    }
+}
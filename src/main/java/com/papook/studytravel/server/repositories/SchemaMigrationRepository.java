@@ -0,0 +1,13 @@
+package com.papook.studytravel.server.repositories;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.papook.studytravel.server.models.SchemaMigration;
+
+/**
+ * Records the changes of the schema applied to the database.
+ */
+@Repository
+public interface SchemaMigrationRepository extends CrudRepository<SchemaMigration, String> {
+}
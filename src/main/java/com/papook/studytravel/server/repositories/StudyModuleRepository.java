@@ -1,52 +1,468 @@
 package com.papook.studytravel.server.repositories;
 
-import org.springframework.data.domain.Page;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 import com.papook.studytravel.server.models.StudyModule;
 
 @Repository
-public interface StudyModuleRepository extends CrudRepository<StudyModule, Long> {
+public interface StudyModuleRepository extends CrudRepository<StudyModule, Long>, InsertRepository<StudyModule> {
     /**
      * Find study modules by name and semester containing the given strings.
-     * This method is case-insensitive.
+     * The normalized name column is compared, so the search is case- and
+     * accent-insensitive without folding the case of every row. The name must
+     * be normalized with
+     * {@link com.papook.studytravel.server.utils.SearchNormalizer#normalize}
+     * and the semester must be upper case, as it is stored.
+     * 
+     * No count query is executed. One more row than the page size is fetched to
+     * find out whether there is a next page.
      * 
-     * @param name     The study module name to search for.
-     * @param semester The semester name to search for.
+     * @param <T>      The type of the results. For a projection like
+     *                 {@link com.papook.studytravel.server.models.StudyModuleSummary},
+     *                 only its columns are selected and no entities are loaded.
+     * @param name     The normalized study module name to search for.
+     * @param semester The upper case semester name to search for.
      * @param pageable The pageable object to use for pagination.
+     * @param type     The class of the results.
      * 
-     * @return A page of study modules that match the search criteria.
+     * @return A slice of study modules that match the search criteria.
      * 
-     * @see org.springframework.data.domain.Page
+     * @see org.springframework.data.domain.Slice
      * @see org.springframework.data.domain.Pageable
      * 
      * @author papook
      */
-    public Page<StudyModule> findByNameContainingAndSemesterContainingIgnoreCase(
+    public <T> Slice<T> findByNameNormalizedContainingAndSemesterContaining(
             String name,
             String semester,
-            Pageable pageable);
+            Pageable pageable,
+            Class<T> type);
+
+    /**
+     * Find study modules by name and semester containing the given strings using
+     * keyset pagination. The query continues after the sort values of the
+     * position instead of skipping rows, so every slice costs the same.
+     * 
+     * @param <T>      The type of the results. It must contain the sorted
+     *                 properties, which the positions are read from.
+     * @param name     The normalized study module name to search for.
+     * @param semester The upper case semester name to search for.
+     * @param position The keyset position to continue from.
+     * @param sort     The sort order. The ID is added to make it unique.
+     * @param limit    The maximum number of study modules to return.
+     * @param type     The class of the results.
+     * 
+     * @return A window of study modules that match the search criteria.
+     * 
+     * @see org.springframework.data.domain.Window
+     * @see org.springframework.data.domain.KeysetScrollPosition
+     * 
+     * @author papook
+     */
+    public <T> Window<T> findByNameNormalizedContainingAndSemesterContaining(
+            String name,
+            String semester,
+            KeysetScrollPosition position,
+            Sort sort,
+            Limit limit,
+            Class<T> type);
+
+    /**
+     * Count the study modules by name and semester containing the given strings.
+     * Uses the same criteria as
+     * {@link #findByNameNormalizedContainingAndSemesterContaining}.
+     * 
+     * @param name     The normalized study module name to search for.
+     * @param semester The upper case semester name to search for.
+     * 
+     * @return The number of study modules that match the search criteria.
+     * 
+     * @author papook
+     */
+    public long countByNameNormalizedContainingAndSemesterContaining(
+            String name,
+            String semester);
+
+    /**
+     * Find study modules among the given candidates by name and semester
+     * containing the given strings. The candidates are found with the trigram
+     * index, so only their rows are filtered instead of the whole table.
+     * 
+     * @param <T>      The type of the results.
+     * @param ids      The IDs of the candidate study modules.
+     * @param name     The normalized study module name to search for.
+     * @param semester The upper case semester name to search for.
+     * @param pageable The pageable object to use for pagination.
+     * @param type     The class of the results.
+     * 
+     * @return A slice of study modules that match the search criteria.
+     * 
+     * @see com.papook.studytravel.server.utils.SearchIndex
+     * 
+     * @author papook
+     */
+    public <T> Slice<T> findByIdInAndNameNormalizedContainingAndSemesterContaining(
+            Collection<Long> ids,
+            String name,
+            String semester,
+            Pageable pageable,
+            Class<T> type);
+
+    /**
+     * Find study modules among the given candidates by name and semester
+     * containing the given strings using keyset pagination.
+     * 
+     * @param <T>      The type of the results. It must contain the sorted
+     *                 properties, which the positions are read from.
+     * @param ids      The IDs of the candidate study modules.
+     * @param name     The normalized study module name to search for.
+     * @param semester The upper case semester name to search for.
+     * @param position The keyset position to continue from.
+     * @param sort     The sort order. The ID is added to make it unique.
+     * @param limit    The maximum number of study modules to return.
+     * @param type     The class of the results.
+     * 
+     * @return A window of study modules that match the search criteria.
+     * 
+     * @see com.papook.studytravel.server.utils.SearchIndex
+     * 
+     * @author papook
+     */
+    public <T> Window<T> findByIdInAndNameNormalizedContainingAndSemesterContaining(
+            Collection<Long> ids,
+            String name,
+            String semester,
+            KeysetScrollPosition position,
+            Sort sort,
+            Limit limit,
+            Class<T> type);
+
+    /**
+     * Count the study modules among the given candidates by name and semester
+     * containing the given strings.
+     * 
+     * @param ids      The IDs of the candidate study modules.
+     * @param name     The normalized study module name to search for.
+     * @param semester The upper case semester name to search for.
+     * 
+     * @return The number of study modules that match the search criteria.
+     * 
+     * @author papook
+     */
+    public long countByIdInAndNameNormalizedContainingAndSemesterContaining(
+            Collection<Long> ids,
+            String name,
+            String semester);
 
     /**
      * Find study modules by university ID, name and semester containing the given
-     * strings. This method is case-insensitive.
+     * strings. The search strings are normalized as for
+     * {@link #findByNameNormalizedContainingAndSemesterContaining}. No count
+     * query is executed.
      * 
+     * @param <T>          The type of the results.
      * @param universityId The university ID to search for.
-     * @param name         The study module name to search for.
-     * @param semester     The semester name to search for.
+     * @param name         The normalized study module name to search for.
+     * @param semester     The upper case semester name to search for.
      * @param pageable     The pageable object to use for pagination.
-     * @return A page of study modules that match the search criteria.
+     * @param type         The class of the results.
+     * @return A slice of study modules that match the search criteria.
      * 
-     * @see org.springframework.data.domain.Page
+     * @see org.springframework.data.domain.Slice
      * @see org.springframework.data.domain.Pageable
      * 
      * @author papook
      */
-    public Page<StudyModule> findAllByUniversityIdAndNameContainingAndSemesterContainingIgnoreCase(
+    public <T> Slice<T> findAllByUniversityIdAndNameNormalizedContainingAndSemesterContaining(
+            Long universityId,
+            String name,
+            String semester,
+            Pageable pageable,
+            Class<T> type);
+
+    /**
+     * Find study modules by university ID, name and semester containing the given
+     * strings using keyset pagination.
+     * 
+     * @param <T>          The type of the results. It must contain the sorted
+     *                     properties, which the positions are read from.
+     * @param universityId The university ID to search for.
+     * @param name         The normalized study module name to search for.
+     * @param semester     The upper case semester name to search for.
+     * @param position     The keyset position to continue from.
+     * @param sort         The sort order. The ID is added to make it unique.
+     * @param limit        The maximum number of study modules to return.
+     * @param type         The class of the results.
+     * 
+     * @return A window of study modules that match the search criteria.
+     * 
+     * @see org.springframework.data.domain.Window
+     * @see org.springframework.data.domain.KeysetScrollPosition
+     * 
+     * @author papook
+     */
+    public <T> Window<T> findAllByUniversityIdAndNameNormalizedContainingAndSemesterContaining(
+            Long universityId,
+            String name,
+            String semester,
+            KeysetScrollPosition position,
+            Sort sort,
+            Limit limit,
+            Class<T> type);
+
+    /**
+     * Count the study modules by university ID, name and semester containing the
+     * given strings. Uses the same criteria as
+     * {@link #findAllByUniversityIdAndNameNormalizedContainingAndSemesterContaining}.
+     * 
+     * @param universityId The university ID to search for.
+     * @param name         The normalized study module name to search for.
+     * @param semester     The upper case semester name to search for.
+     * 
+     * @return The number of study modules that match the search criteria.
+     * 
+     * @author papook
+     */
+    public long countByUniversityIdAndNameNormalizedContainingAndSemesterContaining(
             Long universityId,
+            String name,
+            String semester);
+
+    /**
+     * Find the IDs of all study modules linked to the given university.
+     * 
+     * @param universityId The ID of the university.
+     * 
+     * @return The IDs of the linked study modules.
+     * 
+     * @author papook
+     */
+    @Query("select m.id from StudyModule m where m.universityId = :universityId")
+    public List<Long> findIdsByUniversityId(Long universityId);
+
+    /**
+     * Stream the study modules by name and semester containing the given strings
+     * in the order of their IDs. The rows are fetched from the database in
+     * batches while the stream is consumed, so the whole result is never held in
+     * memory. The stream must be consumed inside a transaction and closed.
+     * 
+     * @param <T>      The type of the results.
+     * @param name     The normalized study module name to search for.
+     * @param semester The upper case semester name to search for.
+     * @param type     The class of the results.
+     * 
+     * @return A stream of study modules that match the search criteria.
+     * 
+     * @author papook
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    public <T> Stream<T> streamByNameNormalizedContainingAndSemesterContainingOrderById(
             String name,
             String semester,
-            Pageable pageable);
+            Class<T> type);
+
+    /**
+     * Find the IDs and names of all study modules to build the search index on
+     * startup.
+     * 
+     * @return A list of arrays containing the ID and name.
+     * 
+     * @author papook
+     */
+    @Query("select m.id, m.name from StudyModule m")
+    public List<Object[]> findAllSearchTerms();
+
+    /**
+     * Find a chunk of the study modules stored before the normalized search
+     * column was introduced, e.g. in durable storage, in the order of their
+     * IDs.
+     * 
+     * @param id    The ID after which the chunk starts.
+     * @param limit The size of the chunk.
+     * 
+     * @return The study modules without a normalized search column.
+     * 
+     * @author papook
+     */
+    public List<StudyModule> findByNameNormalizedIsNullAndIdGreaterThanOrderById(Long id, Limit limit);
+
+    /**
+     * Drop the column of the link to a study module, which was stored in every
+     * row before it was rendered from the ID, e.g. in durable storage. Does
+     * nothing if the column does not exist. Applied once per database as a
+     * schema migration, see
+     * {@link com.papook.studytravel.server.utils.SchemaMigrations}.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "alter table study_module drop column if exists self", nativeQuery = true)
+    public void dropLinkColumns();
+
+    /**
+     * Delete all study modules linked to the given university with a single
+     * statement, without loading the modules first.
+     * 
+     * @param universityId The ID of the university whose modules to delete.
+     * 
+     * @return The number of deleted study modules.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Query("delete from StudyModule m where m.universityId = :universityId")
+    public int deleteAllByUniversityId(Long universityId);
+
+    /**
+     * Link a study module to a university with a single statement, but only if
+     * the module is not linked yet and the university exists. The condition is
+     * checked by the update itself, so of several concurrent claims of the same
+     * module exactly one succeeds. The module gets the given version, so the
+     * version of the modules of the university changes.
+     * 
+     * @param id           The ID of the study module.
+     * @param universityId The ID of the university.
+     * @param version      The new version of the study module.
+     * 
+     * @return The number of linked study modules, 0 if the study module does not
+     *         exist or is already linked, or the university does not exist.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Query("""
+            update StudyModule m set m.universityId = :universityId, m.version = :version
+            where m.id = :id
+                and m.universityId is null
+                and exists (select u.id from University u where u.id = :universityId)""")
+    public int claimForUniversity(Long id, Long universityId, long version);
+
+    /**
+     * Unlink a study module from a university with a single statement, but only
+     * if it is linked to that university. The module gets the given version.
+     * 
+     * @param id           The ID of the study module.
+     * @param universityId The ID of the university.
+     * @param version      The new version of the study module.
+     * 
+     * @return The number of unlinked study modules, 0 if the study module does
+     *         not exist or is not linked to the university.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Query("""
+            update StudyModule m set m.universityId = null, m.version = :version
+            where m.id = :id and m.universityId = :universityId""")
+    public int releaseFromUniversity(Long id, Long universityId, long version);
+
+    /**
+     * Update the stored study module with the ID of the given module with a
+     * single statement, without loading it first. The link to a university is
+     * not part of the representation and stays unchanged. The entity callbacks
+     * are not called for bulk updates, so the search column is normalized here.
+     * 
+     * @param module The study module with the new values.
+     * 
+     * @return The number of updated study modules, 0 if the study module does not
+     *         exist.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Query("""
+            update StudyModule m set
+                m.name = :#{#module.name},
+                m.nameNormalized = :#{T(com.papook.studytravel.server.utils.SearchNormalizer).normalize(#module.name)},
+                m.semester = :#{#module.semester},
+                m.creditPoints = :#{#module.creditPoints},
+                m.version = :#{#module.version}
+            where m.id = :#{#module.id}""")
+    public int update(StudyModule module);
+
+    /**
+     * Update the stored study module like {@link #update(StudyModule)}, but only
+     * if its version is one of the given versions. The version is checked in the
+     * same statement, so only the row of the study module is locked.
+     * 
+     * @param module   The study module with the new values and version.
+     * @param versions The versions the stored study module may have.
+     * 
+     * @return The number of updated study modules, 0 if the study module does not
+     *         exist or has a different version.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Query("""
+            update StudyModule m set
+                m.name = :#{#module.name},
+                m.nameNormalized = :#{T(com.papook.studytravel.server.utils.SearchNormalizer).normalize(#module.name)},
+                m.semester = :#{#module.semester},
+                m.creditPoints = :#{#module.creditPoints},
+                m.version = :#{#module.version}
+            where m.id = :#{#module.id} and coalesce(m.version, 0) in :versions""")
+    public int updateIfVersionIn(StudyModule module, Collection<Long> versions);
+
+    /**
+     * Find the version of a study module without loading it. Study modules
+     * stored before the version column was introduced have the version 0.
+     * 
+     * @param id The ID of the study module.
+     * 
+     * @return The version or an empty optional if the study module does not
+     *         exist.
+     * 
+     * @author papook
+     */
+    @Query("select coalesce(m.version, 0) from StudyModule m where m.id = :id")
+    public Optional<Long> findVersionById(Long id);
+
+    /**
+     * Find the version of a study module linked to the given university without
+     * loading it.
+     * 
+     * @param id           The ID of the study module.
+     * @param universityId The ID of the university.
+     * 
+     * @return The version or an empty optional if the study module does not
+     *         exist or is not linked to the university.
+     * 
+     * @author papook
+     */
+    @Query("select coalesce(m.version, 0) from StudyModule m where m.id = :id and m.universityId = :universityId")
+    public Optional<Long> findVersionByIdAndUniversityId(Long id, Long universityId);
+
+    /**
+     * Find the highest ID of all study modules.
+     * 
+     * @return The highest ID or an empty optional if there are no study modules.
+     * 
+     * @author papook
+     */
+    @Query("select max(m.id) from StudyModule m")
+    public Optional<Long> findMaxId();
 }
@@ -1,31 +1,320 @@
 package com.papook.studytravel.server.repositories;
 
-import org.springframework.data.domain.Page;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 import com.papook.studytravel.server.models.University;
 
 @Repository
-public interface UniversityRepository extends CrudRepository<University, Long> {
+public interface UniversityRepository extends CrudRepository<University, Long>, InsertRepository<University> {
     /**
      * Find universities by name and country containing the given strings.
-     * This method is case-insensitive.
+     * The normalized search columns are compared, so the search is case- and
+     * accent-insensitive without folding the case of every row. The search
+     * strings must be normalized with
+     * {@link com.papook.studytravel.server.utils.SearchNormalizer#normalize}.
      * 
-     * @param name     The university name to search for.
-     * @param country  The country name to search for.
+     * No count query is executed. One more row than the page size is fetched to
+     * find out whether there is a next page.
+     * 
+     * @param <T>      The type of the results. For a projection like
+     *                 {@link com.papook.studytravel.server.models.UniversitySummary},
+     *                 only its columns are selected and no entities are loaded.
+     * @param name     The normalized university name to search for.
+     * @param country  The normalized country name to search for.
      * @param pageable The pageable object to use for pagination.
+     * @param type     The class of the results.
      * 
-     * @return A page of universities that match the search criteria.
+     * @return A slice of universities that match the search criteria.
      * 
-     * @see org.springframework.data.domain.Page
+     * @see org.springframework.data.domain.Slice
      * @see org.springframework.data.domain.Pageable
      * 
      * @author papook
      */
-    public Page<University> findByNameContainingAndCountryContainingIgnoreCase(
+    public <T> Slice<T> findByNameNormalizedContainingAndCountryNormalizedContaining(
+            String name,
+            String country,
+            Pageable pageable,
+            Class<T> type);
+
+    /**
+     * Find universities by name and country containing the given strings using
+     * keyset pagination. The query continues after the sort values of the
+     * position instead of skipping rows, so every slice costs the same.
+     * 
+     * @param <T>      The type of the results. It must contain the sorted
+     *                 properties, which the positions are read from.
+     * @param name     The normalized university name to search for.
+     * @param country  The normalized country name to search for.
+     * @param position The keyset position to continue from.
+     * @param sort     The sort order. The ID is added to make it unique.
+     * @param limit    The maximum number of universities to return.
+     * @param type     The class of the results.
+     * 
+     * @return A window of universities that match the search criteria.
+     * 
+     * @see org.springframework.data.domain.Window
+     * @see org.springframework.data.domain.KeysetScrollPosition
+     * 
+     * @author papook
+     */
+    public <T> Window<T> findByNameNormalizedContainingAndCountryNormalizedContaining(
+            String name,
+            String country,
+            KeysetScrollPosition position,
+            Sort sort,
+            Limit limit,
+            Class<T> type);
+
+    /**
+     * Count the universities by name and country containing the given strings.
+     * Uses the same criteria as
+     * {@link #findByNameNormalizedContainingAndCountryNormalizedContaining}.
+     * 
+     * @param name    The normalized university name to search for.
+     * @param country The normalized country name to search for.
+     * 
+     * @return The number of universities that match the search criteria.
+     * 
+     * @author papook
+     */
+    public long countByNameNormalizedContainingAndCountryNormalizedContaining(
+            String name,
+            String country);
+
+    /**
+     * Find universities among the given candidates by name and country containing
+     * the given strings. The candidates are found with the trigram index, so only
+     * their rows are filtered instead of the whole table.
+     * 
+     * @param <T>      The type of the results.
+     * @param ids      The IDs of the candidate universities.
+     * @param name     The normalized university name to search for.
+     * @param country  The normalized country name to search for.
+     * @param pageable The pageable object to use for pagination.
+     * @param type     The class of the results.
+     * 
+     * @return A slice of universities that match the search criteria.
+     * 
+     * @see com.papook.studytravel.server.utils.SearchIndex
+     * 
+     * @author papook
+     */
+    public <T> Slice<T> findByIdInAndNameNormalizedContainingAndCountryNormalizedContaining(
+            Collection<Long> ids,
+            String name,
+            String country,
+            Pageable pageable,
+            Class<T> type);
+
+    /**
+     * Find universities among the given candidates by name and country containing
+     * the given strings using keyset pagination.
+     * 
+     * @param <T>      The type of the results. It must contain the sorted
+     *                 properties, which the positions are read from.
+     * @param ids      The IDs of the candidate universities.
+     * @param name     The normalized university name to search for.
+     * @param country  The normalized country name to search for.
+     * @param position The keyset position to continue from.
+     * @param sort     The sort order. The ID is added to make it unique.
+     * @param limit    The maximum number of universities to return.
+     * @param type     The class of the results.
+     * 
+     * @return A window of universities that match the search criteria.
+     * 
+     * @see com.papook.studytravel.server.utils.SearchIndex
+     * 
+     * @author papook
+     */
+    public <T> Window<T> findByIdInAndNameNormalizedContainingAndCountryNormalizedContaining(
+            Collection<Long> ids,
+            String name,
+            String country,
+            KeysetScrollPosition position,
+            Sort sort,
+            Limit limit,
+            Class<T> type);
+
+    /**
+     * Count the universities among the given candidates by name and country
+     * containing the given strings.
+     * 
+     * @param ids     The IDs of the candidate universities.
+     * @param name    The normalized university name to search for.
+     * @param country The normalized country name to search for.
+     * 
+     * @return The number of universities that match the search criteria.
+     * 
+     * @author papook
+     */
+    public long countByIdInAndNameNormalizedContainingAndCountryNormalizedContaining(
+            Collection<Long> ids,
+            String name,
+            String country);
+
+    /**
+     * Stream the universities by name and country containing the given strings
+     * in the order of their IDs. The rows are fetched from the database in
+     * batches while the stream is consumed, so the whole result is never held in
+     * memory. The stream must be consumed inside a transaction and closed.
+     * 
+     * @param <T>     The type of the results.
+     * @param name    The normalized university name to search for.
+     * @param country The normalized country name to search for.
+     * @param type    The class of the results.
+     * 
+     * @return A stream of universities that match the search criteria.
+     * 
+     * @author papook
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    public <T> Stream<T> streamByNameNormalizedContainingAndCountryNormalizedContainingOrderById(
             String name,
             String country,
-            Pageable pageable);
+            Class<T> type);
+
+    /**
+     * Find the IDs, names and countries of all universities to build the search
+     * index on startup.
+     * 
+     * @return A list of arrays containing the ID, name and country.
+     * 
+     * @author papook
+     */
+    @Query("select u.id, u.name, u.country from University u")
+    public List<Object[]> findAllSearchTerms();
+
+    /**
+     * Find a chunk of the universities stored before the normalized search
+     * columns were introduced, e.g. in durable storage, in the order of their
+     * IDs.
+     * 
+     * @param id    The ID after which the chunk starts.
+     * @param limit The size of the chunk.
+     * 
+     * @return The universities without normalized search columns.
+     * 
+     * @author papook
+     */
+    public List<University> findByNameNormalizedIsNullAndIdGreaterThanOrderById(Long id, Limit limit);
+
+    /**
+     * Drop the columns of the links to a university and its modules, which
+     * were stored in every row before they were rendered from the ID, e.g. in
+     * durable storage. Does nothing if the columns do not exist. Applied once
+     * per database as a schema migration, see
+     * {@link com.papook.studytravel.server.utils.SchemaMigrations}.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "alter table university drop column if exists (modules, self)", nativeQuery = true)
+    public void dropLinkColumns();
+
+    /**
+     * Update the stored university with the ID of the given university with a
+     * single statement, without loading it first. The entity callbacks are not
+     * called for bulk updates, so the search columns are normalized here.
+     * 
+     * @param university The university with the new values.
+     * 
+     * @return The number of updated universities, 0 if the university does not
+     *         exist.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Query("""
+            update University u set
+                u.name = :#{#university.name},
+                u.country = :#{#university.country},
+                u.nameNormalized = :#{T(com.papook.studytravel.server.utils.SearchNormalizer).normalize(#university.name)},
+                u.countryNormalized = :#{T(com.papook.studytravel.server.utils.SearchNormalizer).normalize(#university.country)},
+                u.department = :#{#university.department},
+                u.contactPersonName = :#{#university.contactPersonName},
+                u.outgoingStudentNumber = :#{#university.outgoingStudentNumber},
+                u.incomingStudentNumber = :#{#university.incomingStudentNumber},
+                u.springSemesterStart = :#{#university.springSemesterStart},
+                u.fallSemesterStart = :#{#university.fallSemesterStart},
+                u.version = :#{#university.version}
+            where u.id = :#{#university.id}""")
+    public int update(University university);
+
+    /**
+     * Update the stored university like {@link #update(University)}, but only
+     * if its version is one of the given versions. The version is checked in
+     * the same statement, so only the row of the university is locked and a
+     * concurrent update in between is never overwritten.
+     * 
+     * @param university The university with the new values and version.
+     * @param versions   The versions the stored university may have.
+     * 
+     * @return The number of updated universities, 0 if the university does not
+     *         exist or has a different version.
+     * 
+     * @author papook
+     */
+    @Modifying
+    @Query("""
+            update University u set
+                u.name = :#{#university.name},
+                u.country = :#{#university.country},
+                u.nameNormalized = :#{T(com.papook.studytravel.server.utils.SearchNormalizer).normalize(#university.name)},
+                u.countryNormalized = :#{T(com.papook.studytravel.server.utils.SearchNormalizer).normalize(#university.country)},
+                u.department = :#{#university.department},
+                u.contactPersonName = :#{#university.contactPersonName},
+                u.outgoingStudentNumber = :#{#university.outgoingStudentNumber},
+                u.incomingStudentNumber = :#{#university.incomingStudentNumber},
+                u.springSemesterStart = :#{#university.springSemesterStart},
+                u.fallSemesterStart = :#{#university.fallSemesterStart},
+                u.version = :#{#university.version}
+            where u.id = :#{#university.id} and coalesce(u.version, 0) in :versions""")
+    public int updateIfVersionIn(University university, Collection<Long> versions);
+
+    /**
+     * Find the version of a university without loading it. Universities stored
+     * before the version column was introduced have the version 0.
+     * 
+     * @param id The ID of the university.
+     * 
+     * @return The version or an empty optional if the university does not exist.
+     * 
+     * @author papook
+     */
+    @Query("select coalesce(u.version, 0) from University u where u.id = :id")
+    public Optional<Long> findVersionById(Long id);
+
+    /**
+     * Find the highest ID of all universities.
+     * 
+     * @return The highest ID or an empty optional if there are no universities.
+     * 
+     * @author papook
+     */
+    @Query("select max(u.id) from University u")
+    public Optional<Long> findMaxId();
 }
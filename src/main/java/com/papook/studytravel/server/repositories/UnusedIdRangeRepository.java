@@ -0,0 +1,35 @@
+package com.papook.studytravel.server.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.papook.studytravel.server.models.UnusedIdRange;
+
+/**
+ * Keeps the reserved but unused IDs of the sequences between restarts.
+ */
+@Repository
+public interface UnusedIdRangeRepository extends CrudRepository<UnusedIdRange, Long> {
+    /**
+     * Take over all unused ID ranges of the sequence. The ranges are deleted
+     * and returned with a single statement, so every range is taken over by
+     * only one instance.
+     * 
+     * @param sequenceName The name of the sequence.
+     * 
+     * @return A list of arrays containing the first and last ID of every range.
+     * 
+     * @author papook
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = """
+            select first_id, last_id from old table (
+                delete from unused_id_range where sequence_name = :sequenceName)""",
+            nativeQuery = true)
+    public List<Object[]> claimUnusedRanges(String sequenceName);
+}
@@ -1,17 +1,24 @@
 package com.papook.studytravel.server.services;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import com.papook.studytravel.server.ServerConfiguration;
 import com.papook.studytravel.server.errors.IdMismatchException;
+import com.papook.studytravel.server.errors.InvalidCursorException;
 import com.papook.studytravel.server.errors.ModuleNotLinkedException;
 import com.papook.studytravel.server.errors.ModuleTakenException;
+import com.papook.studytravel.server.errors.PreconditionFailedException;
 import com.papook.studytravel.server.errors.StudyModuleNotFoundException;
 import com.papook.studytravel.server.errors.UniversityNotFoundException;
 import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.StudyModuleSummary;
+import com.papook.studytravel.server.utils.CursorSlice;
 
 /**
  * Service interface for managing study modules.
@@ -21,6 +28,7 @@ import com.papook.studytravel.server.models.StudyModule;
  * unlinking study modules to and from universities.
  * 
  * @see com.papook.studytravel.server.models.StudyModule
+ * @see org.springframework.data.domain.Slice
  * @see org.springframework.data.domain.Page
  * @see java.net.URI
  * @see java.util.Optional
@@ -39,21 +47,77 @@ public interface StudyModuleService {
      * 
      * @param name     The study module name to search for.
      * @param semester The semester name to search for.
-     * @param page     The page number to retrieve. The page number is zero-based
-     *                 and the size is defined in
-     *                 {@link ServerConfiguration}.
-     * 
-     * @return A page of study modules that match the search criteria.
-     * 
+     * @param page      The page number to retrieve. The page number is zero-based.
+     * @param size      The requested page size, or null for the default size
+     *                  defined in {@link ServerConfiguration}. The size is
+     *                  limited to the configured maximum.
+     * @param sort      The sort field and direction, e.g. {@code name_asc}.
+     * @param withTotal Whether to count all matching study modules. Counting
+     *                  needs an additional query, so it is only done when
+     *                  requested.
+     * 
+     * @return A slice of the study modules that match the search criteria, as
+     *         summaries read without loading the entities. If
+     *         {@code withTotal} is true, the slice is a {@link Page} containing
+     *         the total number of study modules.
+     * 
+     * @see org.springframework.data.domain.Slice
      * @see org.springframework.data.domain.Page
      * 
      * @author papook
      */
-    public Page<StudyModule> getModules(
+    public Slice<StudyModuleSummary> getModules(
             String name,
             String semester,
             Integer page,
-            String sort);
+            Integer size,
+            String sort,
+            boolean withTotal);
+
+    /**
+     * Get a slice of study modules that match the specified criteria using keyset
+     * pagination. Unlike {@link #getModules}, the cost of a slice does not depend
+     * on how far the client has scrolled.
+     * 
+     * @param name      The study module name to search for.
+     * @param semester  The semester name to search for.
+     * @param cursor    The cursor of the slice to retrieve, as returned in a
+     *                  previous {@link CursorSlice}. Null for the first slice.
+     * @param size      The requested slice size, or null for the default size.
+     * @param sort      The sort field and direction, e.g. {@code name_asc}.
+     * @param withTotal Whether to count all matching study modules.
+     * 
+     * @return A slice of study module summaries with the cursors of the
+     *         neighbouring slices.
+     * 
+     * @throws InvalidCursorException If the cursor is malformed or was created for
+     *                                a different sort order.
+     * 
+     * @see com.papook.studytravel.server.utils.CursorSlice
+     * 
+     * @author papook
+     */
+    public CursorSlice<StudyModuleSummary> scrollModules(
+            String name,
+            String semester,
+            String cursor,
+            Integer size,
+            String sort,
+            boolean withTotal);
+
+    /**
+     * Export all study modules that match the specified criteria in the order of
+     * their IDs. The study modules are read from the database while they are
+     * passed to the consumer, so the memory used does not grow with the number
+     * of study modules. No count query is executed and no entities are loaded.
+     * 
+     * @param name     The study module name to search for.
+     * @param semester The semester name to search for.
+     * @param consumer The consumer receiving every matching study module.
+     * 
+     * @author papook
+     */
+    public void exportModules(String name, String semester, Consumer<StudyModuleSummary> consumer);
 
     /**
      * Get a study module by its ID from the database.
@@ -68,6 +132,62 @@ public interface StudyModuleService {
      */
     public StudyModule getModuleById(Long id);
 
+    /**
+     * Get a study module by its ID, expecting the given version, like
+     * {@link UniversityService#getUniversityById(Long, long)}.
+     * 
+     * @param id      The ID of the study module to retrieve.
+     * @param version The expected version of the study module.
+     * 
+     * @return The study module with the specified ID.
+     * 
+     * @throws StudyModuleNotFoundException If the study module does not exist.
+     * 
+     * @author papook
+     */
+    public StudyModule getModuleById(Long id, long version);
+
+    /**
+     * Get the version of a study module without loading it. The version changes
+     * on every update of the study module.
+     * 
+     * @param id The ID of the study module.
+     * 
+     * @return The version of the study module.
+     * 
+     * @throws StudyModuleNotFoundException If the study module does not exist.
+     * 
+     * @author papook
+     */
+    public long getModuleVersion(Long id);
+
+    /**
+     * Get the version of the collection of study modules without loading them.
+     * It is counted up in the database by every write, so it changes with the
+     * writes of every server sharing the database.
+     * 
+     * @return The version of the collection.
+     * 
+     * @author papook
+     */
+    public long getCollectionVersion();
+
+    /**
+     * Get the version of the study modules linked to the specified university
+     * without loading them. It is the version of all study modules, see
+     * {@link #getCollectionVersion()}, which changes with every change of the
+     * linked modules.
+     * 
+     * @param universityId The ID of the university.
+     * 
+     * @return The version of the linked study modules.
+     * 
+     * @throws UniversityNotFoundException If the university does not exist.
+     * 
+     * @author papook
+     */
+    public long getCollectionVersionOfUniversity(Long universityId);
+
     /**
      * Get a page of study modules that are linked to the specified university.
      * 
@@ -75,22 +195,66 @@ public interface StudyModuleService {
      * @param name         The study module name to search for.
      * @param semester     The semester name to search for.
      * @param page         The page number to retrieve. The page number is
-     *                     zero-based
-     *                     and the size is defined in
-     *                     {@link ServerConfiguration}.
-     * 
-     * @return A page of study modules that match the search criteria.
-     * 
+     *                     zero-based.
+     * @param size         The requested page size, or null for the default
+     *                     size defined in {@link ServerConfiguration}.
+     * @param sort         The sort field and direction, e.g. {@code name_asc}.
+     * @param withTotal    Whether to count all matching study modules. Counting
+     *                     needs an additional query, so it is only done when
+     *                     requested.
+     * 
+     * @return A slice of the study modules that match the search criteria, as
+     *         summaries read without loading the entities. If
+     *         {@code withTotal} is true, the slice is a {@link Page} containing
+     *         the total number of study modules.
+     * 
+     * @see org.springframework.data.domain.Slice
      * @see org.springframework.data.domain.Page
      * 
      * @author papook
      */
-    public Page<StudyModule> getModulesForUniversity(
+    public Slice<StudyModuleSummary> getModulesForUniversity(
             Long universityId,
             String name,
             String semester,
             Integer page,
-            String sort);
+            Integer size,
+            String sort,
+            boolean withTotal);
+
+    /**
+     * Get a slice of study modules that are linked to the specified university
+     * using keyset pagination.
+     * 
+     * @param universityId The ID of the university to search the modules of.
+     * @param name         The study module name to search for.
+     * @param semester     The semester name to search for.
+     * @param cursor       The cursor of the slice to retrieve, as returned in a
+     *                     previous {@link CursorSlice}. Null for the first slice.
+     * @param size         The requested slice size, or null for the default
+     *                     size.
+     * @param sort         The sort field and direction, e.g. {@code name_asc}.
+     * @param withTotal    Whether to count all matching study modules.
+     * 
+     * @return A slice of study module summaries with the cursors of the
+     *         neighbouring slices.
+     * 
+     * @throws UniversityNotFoundException If the university does not exist.
+     * @throws InvalidCursorException      If the cursor is malformed or was
+     *                                     created for a different sort order.
+     * 
+     * @see com.papook.studytravel.server.utils.CursorSlice
+     * 
+     * @author papook
+     */
+    public CursorSlice<StudyModuleSummary> scrollModulesForUniversity(
+            Long universityId,
+            String name,
+            String semester,
+            String cursor,
+            Integer size,
+            String sort,
+            boolean withTotal);
 
     /**
      * Get a study module by its ID from the database that is linked to the
@@ -110,6 +274,44 @@ public interface StudyModuleService {
      */
     public StudyModule getModuleForUniversity(Long universityId, Long moduleId);
 
+    /**
+     * Get a study module linked to the specified university, expecting the
+     * version found with {@link #getModuleVersionForUniversity(Long, Long)}.
+     * The link is checked again on the loaded module, as the module may have
+     * been unlinked after its version was found.
+     * 
+     * @param universityId The ID of the university the module is linked to.
+     * @param moduleId     The ID of the study module to retrieve.
+     * @param version      The expected version of the study module.
+     * 
+     * @return The study module with the specified ID.
+     * 
+     * @throws StudyModuleNotFoundException If the study module does not exist.
+     * @throws ModuleNotLinkedException     If the study module is not linked to
+     *                                      the university.
+     * 
+     * @author papook
+     */
+    public StudyModule getModuleForUniversity(Long universityId, Long moduleId, long version);
+
+    /**
+     * Get the version of a study module linked to the specified university
+     * without loading it.
+     * 
+     * @param universityId The ID of the university.
+     * @param moduleId     The ID of the study module.
+     * 
+     * @return The version of the study module.
+     * 
+     * @throws UniversityNotFoundException  If the university does not exist.
+     * @throws StudyModuleNotFoundException If the study module does not exist.
+     * @throws ModuleNotLinkedException     If the study module is not linked to
+     *                                      the university.
+     * 
+     * @author papook
+     */
+    public long getModuleVersionForUniversity(Long universityId, Long moduleId);
+
     /**
      * Create a new study module in the database and return the URI of the created
      * resource.
@@ -124,6 +326,21 @@ public interface StudyModuleService {
      */
     public URI createModule(StudyModule module);
 
+    /**
+     * Create several new study modules in the database in one transaction. The
+     * modules are inserted in JDBC batches.
+     * 
+     * @param modules The study modules to create.
+     * 
+     * @return The URIs of the created study modules in the same order as the
+     *         given modules.
+     * 
+     * @see java.net.URI
+     * 
+     * @author papook
+     */
+    public List<URI> createModules(List<StudyModule> modules);
+
     /**
      * If the study module with the given id exists, update it with the given
      * module and return an empty optional. Otherwise, create a new module
@@ -143,9 +360,25 @@ public interface StudyModuleService {
     public Optional<URI> updateModule(Long id, StudyModule module);
 
     /**
-     * Delete a module from the database and remove the module ID from the
-     * associated university. If the module does not exist, the method will exit
-     * silently.
+     * Update the study module with the given id only if its current version is
+     * one of the expected versions, e.g. the versions of the ETags in an
+     * If-Match header. A missing study module is not created.
+     *
+     * @param id       The ID of the module to update.
+     * @param module   The study module object.
+     * @param versions The expected versions, or null if any version matches.
+     * @return The new version of the study module.
+     * 
+     * @throws PreconditionFailedException If the study module does not exist or
+     *                                     has a different version.
+     * 
+     * @author papook
+     */
+    public long updateModuleIfMatch(Long id, StudyModule module, List<Long> versions);
+
+    /**
+     * Delete a module from the database. The link to the associated university
+     * is stored in the module, so it is removed together with the module.
      * 
      * @param id The ID of the module to delete.
      * 
@@ -165,8 +398,9 @@ public interface StudyModuleService {
     public void verifyExists(Long id);
 
     /**
-     * Link a study module to a university by adding the module ID to the
-     * university's module list and setting the university ID in the module.
+     * Link a study module to a university by setting the university ID in the
+     * module. The module is claimed with a single conditional update, so of
+     * several concurrent links of the same module only one succeeds.
      * 
      * @param moduleId     The ID of the study module to link.
      * @param universityId The ID of the university to link the module to.
@@ -181,8 +415,8 @@ public interface StudyModuleService {
     public void linkModuleToUniversity(Long moduleId, Long universityId);
 
     /**
-     * Unlink a study module from a university by removing the module ID from the
-     * university's module list and setting the university ID in the module to null.
+     * Unlink a study module from a university by setting the university ID in the
+     * module to null.
      * 
      * @param moduleId     The ID of the study module to unlink.
      * @param universityId The ID of the university to unlink the module from.
@@ -1,14 +1,21 @@
 package com.papook.studytravel.server.services;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import com.papook.studytravel.server.ServerConfiguration;
 import com.papook.studytravel.server.errors.IdMismatchException;
+import com.papook.studytravel.server.errors.InvalidCursorException;
+import com.papook.studytravel.server.errors.PreconditionFailedException;
 import com.papook.studytravel.server.errors.UniversityNotFoundException;
 import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.UniversitySummary;
+import com.papook.studytravel.server.utils.CursorSlice;
 
 /**
  * Service interface for university operations.
@@ -17,6 +24,7 @@ import com.papook.studytravel.server.models.University;
  * universities in the database.
  * 
  * @see com.papook.studytravel.server.models.University
+ * @see org.springframework.data.domain.Slice
  * @see org.springframework.data.domain.Page
  * @see java.net.URI
  * @see java.util.Optional
@@ -31,20 +39,77 @@ public interface UniversityService {
      * 
      * @param name    The university name to search for.
      * @param country The country name to search for.
-     * @param page    The page number to retrieve. The page number is zero-based and
-     *                the size is defined in {@link ServerConfiguration}.
+     * @param page      The page number to retrieve. The page number is zero-based.
+     * @param size      The requested page size, or null for the default size
+     *                  defined in {@link ServerConfiguration}. The size is
+     *                  limited to the configured maximum.
+     * @param sort      The sort field and direction, e.g. {@code name_asc}.
+     * @param withTotal Whether to count all matching universities. Counting needs
+     *                  an additional query, so it is only done when requested.
      * 
-     * @return A page of universities that match the search criteria.
+     * @return A slice of the universities that match the search criteria, as
+     *         summaries read without loading the entities. If
+     *         {@code withTotal} is true, the slice is a {@link Page} containing
+     *         the total number of universities.
      * 
+     * @see org.springframework.data.domain.Slice
      * @see org.springframework.data.domain.Page
      * 
      * @author papook
      */
-    public Page<University> getUniversities(
+    public Slice<UniversitySummary> getUniversities(
             String name,
             String country,
             Integer page,
-            String sort);
+            Integer size,
+            String sort,
+            boolean withTotal);
+
+    /**
+     * Get a slice of universities that match the specified criteria using keyset
+     * pagination. Unlike {@link #getUniversities}, the cost of a slice does not
+     * depend on how far the client has scrolled, and the slices do not shift
+     * when universities are created in the meantime.
+     * 
+     * @param name      The university name to search for.
+     * @param country   The country name to search for.
+     * @param cursor    The cursor of the slice to retrieve, as returned in a
+     *                  previous {@link CursorSlice}. Null for the first slice.
+     * @param size      The requested slice size, or null for the default size.
+     * @param sort      The sort field and direction, e.g. {@code name_asc}.
+     * @param withTotal Whether to count all matching universities.
+     * 
+     * @return A slice of university summaries with the cursors of the
+     *         neighbouring slices.
+     * 
+     * @throws InvalidCursorException If the cursor is malformed or was created for
+     *                                a different sort order.
+     * 
+     * @see com.papook.studytravel.server.utils.CursorSlice
+     * 
+     * @author papook
+     */
+    public CursorSlice<UniversitySummary> scrollUniversities(
+            String name,
+            String country,
+            String cursor,
+            Integer size,
+            String sort,
+            boolean withTotal);
+
+    /**
+     * Export all universities that match the specified criteria in the order of
+     * their IDs. The universities are read from the database while they are
+     * passed to the consumer, so the memory used does not grow with the number
+     * of universities. No count query is executed and no entities are loaded.
+     * 
+     * @param name     The university name to search for.
+     * @param country  The country name to search for.
+     * @param consumer The consumer receiving every matching university.
+     * 
+     * @author papook
+     */
+    public void exportUniversities(String name, String country, Consumer<UniversitySummary> consumer);
 
     /**
      * Get a university by its ID from the database.
@@ -59,6 +124,49 @@ public interface UniversityService {
      */
     public University getUniversityById(Long id);
 
+    /**
+     * Get a university by its ID, expecting the given version, e.g. the version
+     * just read with {@link #getUniversityVersion(Long)}. A cached university
+     * of another version, e.g. written by another server, is loaded again. The
+     * university may still have another version if it was written in between,
+     * so the ETag must be derived from the returned university.
+     * 
+     * @param id      The ID of the university to retrieve.
+     * @param version The expected version of the university.
+     * 
+     * @return The university with the specified ID.
+     * 
+     * @throws UniversityNotFoundException If the university does not exist.
+     * 
+     * @author papook
+     */
+    public University getUniversityById(Long id, long version);
+
+    /**
+     * Get the version of a university without loading it. The version changes
+     * on every update of the university.
+     * 
+     * @param id The ID of the university.
+     * 
+     * @return The version of the university.
+     * 
+     * @throws UniversityNotFoundException If the university does not exist.
+     * 
+     * @author papook
+     */
+    public long getUniversityVersion(Long id);
+
+    /**
+     * Get the version of the collection of universities without loading them.
+     * It is counted up in the database by every write, so it changes with the
+     * writes of every server sharing the database.
+     * 
+     * @return The version of the collection.
+     * 
+     * @author papook
+     */
+    public long getCollectionVersion();
+
     /**
      * Create a new university in the database.
      * 
@@ -72,6 +180,21 @@ public interface UniversityService {
      */
     public URI createUniversity(University university);
 
+    /**
+     * Create several new universities in the database in one transaction. The
+     * universities are inserted in JDBC batches.
+     * 
+     * @param universities The universities to create. IDs are generated
+     *                     automatically by the system. If an ID is set, it will
+     *                     be overwritten.
+     * 
+     * @return The URIs of the newly created universities in the same order as
+     *         the given universities.
+     * 
+     * @author papook
+     */
+    public List<URI> createUniversities(List<University> universities);
+
     /**
      * If the university with the given id exists, update it with the given
      * university and return an empty optional.
@@ -91,6 +214,23 @@ public interface UniversityService {
      */
     public Optional<URI> updateUniversity(Long id, University university);
 
+    /**
+     * Update the university with the given id only if its current version is
+     * one of the expected versions, e.g. the versions of the ETags in an
+     * If-Match header. A missing university is not created.
+     *
+     * @param id         The ID of the university to update.
+     * @param university The university object.
+     * @param versions   The expected versions, or null if any version matches.
+     * @return The new version of the university.
+     * 
+     * @throws PreconditionFailedException If the university does not exist or
+     *                                     has a different version.
+     * 
+     * @author papook
+     */
+    public long updateUniversityIfMatch(Long id, University university, List<Long> versions);
+
     /**
      * Delete a university from the database and all associated study modules. If
      * the university does not exist, the method will exit silently.
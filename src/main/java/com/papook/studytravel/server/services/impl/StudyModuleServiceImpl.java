@@ -2,31 +2,80 @@ package com.papook.studytravel.server.services.impl;
 
 import static com.papook.studytravel.server.ServerConfiguration.BASE_URI;
 import static com.papook.studytravel.server.ServerConfiguration.MODULE_ENDPOINT;
-import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.papook.studytravel.server.errors.ModuleNotLinkedException;
 import com.papook.studytravel.server.errors.ModuleTakenException;
+import com.papook.studytravel.server.errors.PreconditionFailedException;
 import com.papook.studytravel.server.errors.StudyModuleNotFoundException;
 import com.papook.studytravel.server.models.StudyModule;
-import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.StudyModuleSummary;
 import com.papook.studytravel.server.repositories.StudyModuleRepository;
 import com.papook.studytravel.server.services.StudyModuleService;
 import com.papook.studytravel.server.services.UniversityService;
+import com.papook.studytravel.server.utils.CollectionVersions;
+import com.papook.studytravel.server.utils.CursorCodec;
+import com.papook.studytravel.server.utils.CursorSlice;
+import com.papook.studytravel.server.utils.EntityCache;
 import com.papook.studytravel.server.utils.IdGenerator;
+import com.papook.studytravel.server.utils.ModificationClock;
+import com.papook.studytravel.server.utils.PageSizeLimit;
+import com.papook.studytravel.server.utils.SchemaMigrations;
+import com.papook.studytravel.server.utils.SearchIndex;
+import com.papook.studytravel.server.utils.SearchNormalizer;
+import com.papook.studytravel.server.utils.SortParser;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class StudyModuleServiceImpl implements StudyModuleService {
+    /**
+     * The name of the persistent sequence the module IDs are reserved from.
+     */
+    private static final String ID_SEQUENCE = "study_module";
+
+    /**
+     * How often a POST is tried with new IDs if a module was created with PUT
+     * and one of the generated IDs in the meantime.
+     */
+    private static final int CREATE_ATTEMPTS = 3;
+
+    /**
+     * The number of rows whose search columns are filled in one transaction on
+     * startup.
+     */
+    private static final int NORMALIZE_CHUNK_SIZE = 1000;
+
+    /**
+     * The name of the schema migration dropping the column of the link to a
+     * study module, which was stored in every row before it was rendered from
+     * the ID.
+     */
+    private static final String DROP_LINK_COLUMNS = "drop_study_module_link_columns";
 
     @Autowired
     private IdGenerator idGenerator;
@@ -37,76 +86,283 @@ public class StudyModuleServiceImpl implements StudyModuleService {
     @Autowired
     private UniversityService universityService;
 
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private PageSizeLimit pageSizeLimit;
+
+    @Autowired
+    private ModificationClock modificationClock;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SchemaMigrations schemaMigrations;
+
+    @PostConstruct
+    void initialize() {
+        // The stored rows are migrated before they are indexed, and the IDs
+        // continue after all stored rows
+        schemaMigrations.applyOnce(DROP_LINK_COLUMNS, repository::dropLinkColumns);
+        normalizeSearchColumns();
+        buildSearchIndex();
+        resumeIdGeneration();
+        collectionVersions.register(CollectionVersions.STUDY_MODULES);
+    }
+
+    @PreDestroy
+    void releaseIds() {
+        // Keep the reserved but unused IDs for the next start
+        idGenerator.release();
+    }
+
+    private void resumeIdGeneration() {
+        // Continue after the IDs already stored, e.g. in durable storage
+        long firstFreeId = repository.findMaxId().orElse(0L) + 1;
+        idGenerator.attach(ID_SEQUENCE, firstFreeId);
+    }
+
+    private void normalizeSearchColumns() {
+        // Fill the search columns of the modules stored before the columns
+        // were introduced, e.g. in durable storage. A chunk is normalized per
+        // transaction, so a large table never has to fit in the heap, and the
+        // updates are sent in JDBC batches when the transaction commits.
+        long lastId = 0;
+        int normalized;
+        do {
+            long afterId = lastId;
+            List<StudyModule> chunk = transactionTemplate.execute(status -> {
+                List<StudyModule> modules = repository.findByNameNormalizedIsNullAndIdGreaterThanOrderById(
+                        afterId, Limit.of(NORMALIZE_CHUNK_SIZE));
+                modules.forEach(StudyModule::updateSearchColumns);
+                return modules;
+            });
+            normalized = chunk.size();
+            if (normalized > 0) {
+                lastId = chunk.get(normalized - 1).getId();
+            }
+        } while (normalized == NORMALIZE_CHUNK_SIZE);
+    }
+
+    private void buildSearchIndex() {
+        if (!searchIndex.isEnabled()) {
+            return;
+        }
+        // Index the modules already stored, e.g. in durable storage
+        for (Object[] terms : repository.findAllSearchTerms()) {
+            searchIndex.indexModule((Long) terms[0], (String) terms[1]);
+        }
+    }
+
     @Override
-    public Page<StudyModule> getModules(
+    public Slice<StudyModuleSummary> getModules(
             String name,
             String semester,
             Integer page,
-            String sort) {
-        // Split the sort string into field and direction and create a sort object
-        String[] sortParts = sort.split("_");
-        String sortField = sortParts[0];
-        String sortDirection = sortParts[1];
-        Sort sortConstraint;
+            Integer size,
+            String sort,
+            boolean withTotal) {
+        // Search the normalized name column and the semester as it is stored
+        name = SearchNormalizer.normalize(name);
+        semester = semester.toUpperCase(Locale.ROOT);
+        // Parse the sort string, invalid sort strings sort by ID in ascending order.
+        // Only the fields of the summaries can be sorted by.
+        Sort sortConstraint = SortParser.parse(sort, StudyModuleSummary.class);
+        Pageable pageable = PageRequest.of(page, pageSizeLimit.resolve(size), sortConstraint);
+
+        // Narrow the query to the candidates of the search index if possible
+        Optional<Set<Long>> candidates = searchIndex.findModuleCandidates(name);
+        Slice<StudyModuleSummary> result = findSlice(candidates, name, semester, pageable);
+
+        if (withTotal) {
+            // Count the modules only if the total was requested
+            long total = count(candidates, name, semester);
+            return new PageImpl<>(result.getContent(), pageable, total);
+        }
+
+        return result;
+    }
 
-        Pageable pageable;
-        Page<StudyModule> result;
+    @Override
+    public CursorSlice<StudyModuleSummary> scrollModules(
+            String name,
+            String semester,
+            String cursor,
+            Integer size,
+            String sort,
+            boolean withTotal) {
+        // Search the normalized name column and the semester as it is stored
+        name = SearchNormalizer.normalize(name);
+        semester = semester.toUpperCase(Locale.ROOT);
+        // Parse the sort string, invalid sort strings sort by ID in ascending order.
+        // Only the fields of the summaries can be sorted by.
+        Sort sortConstraint = SortParser.parse(sort, StudyModuleSummary.class);
+
+        int pageSize = pageSizeLimit.resolve(size);
+
+        KeysetScrollPosition position = cursorCodec.decode(cursor, StudyModule.class, sortConstraint);
+
+        // Narrow the query to the candidates of the search index if possible
+        Optional<Set<Long>> candidates = searchIndex.findModuleCandidates(name);
+        Window<StudyModuleSummary> result = candidates.isPresent()
+                ? repository.findByIdInAndNameNormalizedContainingAndSemesterContaining(
+                        candidates.get(), name, semester, position, sortConstraint, Limit.of(pageSize),
+                        StudyModuleSummary.class)
+                : repository.findByNameNormalizedContainingAndSemesterContaining(
+                        name, semester, position, sortConstraint, Limit.of(pageSize), StudyModuleSummary.class);
+
+        // Count the modules only if the total was requested
+        Long total = withTotal ? count(candidates, name, semester) : null;
+
+        return cursorCodec.toSlice(result, position, PageRequest.of(0, pageSize, sortConstraint), total);
+    }
 
-        try {
-            sortConstraint = Sort.by(Sort.Direction.fromString(sortDirection), sortField);
-            pageable = PageRequest.of(page, PAGE_SIZE, sortConstraint);
-            result = repository.findByNameContainingAndSemesterContainingIgnoreCase(name, semester, pageable);
-        } catch (PropertyReferenceException | IllegalArgumentException e) {
-            // If the sort field is invalid, default to sorting by ID in ascending order
-            sortConstraint = Sort.by(Sort.Order.asc("id"));
-            pageable = PageRequest.of(page, PAGE_SIZE, sortConstraint);
-            result = repository.findByNameContainingAndSemesterContainingIgnoreCase(name, semester, pageable);
+    @Override
+    @Transactional(readOnly = true)
+    public void exportModules(String name, String semester, Consumer<StudyModuleSummary> consumer) {
+        // Search the normalized name column and the semester as it is stored
+        name = SearchNormalizer.normalize(name);
+        semester = semester.toUpperCase(Locale.ROOT);
+
+        // The summaries are not managed, so the persistence context stays empty
+        try (Stream<StudyModuleSummary> modules = repository
+                .streamByNameNormalizedContainingAndSemesterContainingOrderById(
+                        name, semester, StudyModuleSummary.class)) {
+            modules.forEach(consumer);
         }
-        return result;
     }
 
     @Override
     public StudyModule getModuleById(Long id) {
-        StudyModule result = repository.findById(id).orElseThrow(StudyModuleNotFoundException::new);
+        StudyModule result = findById(id).orElseThrow(StudyModuleNotFoundException::new);
         return result;
     }
 
     @Override
-    public Page<StudyModule> getModulesForUniversity(
+    public StudyModule getModuleById(Long id, long version) {
+        StudyModule module = getModuleById(id);
+        if (Objects.requireNonNullElse(module.getVersion(), 0L) != version) {
+            // Cached before the module was written by another server
+            entityCache.invalidate(StudyModule.class, id);
+            module = getModuleById(id);
+        }
+        return module;
+    }
+
+    @Override
+    public Slice<StudyModuleSummary> getModulesForUniversity(
             Long universityId,
             String name,
             String semester,
             Integer page,
-            String sort) {
+            Integer size,
+            String sort,
+            boolean withTotal) {
+        // Search the normalized name column and the semester as it is stored
+        name = SearchNormalizer.normalize(name);
+        semester = semester.toUpperCase(Locale.ROOT);
         // Check if the university exists
         universityService.verifyExists(universityId);
 
-        // Split the sort string into field and direction and create a sort object
-        String[] sortParts = sort.split("_");
-        String sortField = sortParts[0];
-        String sortDirection = sortParts[1];
-        Sort sortConstraint;
-        
-        // Create a pageable object
-        PageRequest pageable;
-        Page<StudyModule> modules;
+        // Parse the sort string, invalid sort strings sort by ID in ascending order.
+        // Only the fields of the summaries can be sorted by.
+        Sort sortConstraint = SortParser.parse(sort, StudyModuleSummary.class);
+        PageRequest pageable = PageRequest.of(page, pageSizeLimit.resolve(size), sortConstraint);
+
         // Get the modules for the university
-        try {
-            sortConstraint = Sort.by(Sort.Direction.fromString(sortDirection), sortField);
-            pageable = PageRequest.of(page, PAGE_SIZE, sortConstraint);
-            modules = repository.findAllByUniversityIdAndNameContainingAndSemesterContainingIgnoreCase(
-                    universityId, name, semester, pageable);
-        } catch (PropertyReferenceException | IllegalArgumentException e) {
-            // If the sort field is invalid, default to sorting by ID in ascending order
-            sortConstraint = Sort.by(Sort.Order.asc("id"));
-            pageable = PageRequest.of(page, PAGE_SIZE, sortConstraint);
-            modules = repository.findAllByUniversityIdAndNameContainingAndSemesterContainingIgnoreCase(
-                    universityId, name, semester, pageable);
+        Slice<StudyModuleSummary> modules = repository
+                .findAllByUniversityIdAndNameNormalizedContainingAndSemesterContaining(
+                        universityId, name, semester, pageable, StudyModuleSummary.class);
+
+        if (withTotal) {
+            // Count the modules only if the total was requested
+            long total = repository.countByUniversityIdAndNameNormalizedContainingAndSemesterContaining(
+                    universityId, name, semester);
+            return new PageImpl<>(modules.getContent(), pageable, total);
         }
 
         return modules;
     }
 
+    @Override
+    public CursorSlice<StudyModuleSummary> scrollModulesForUniversity(
+            Long universityId,
+            String name,
+            String semester,
+            String cursor,
+            Integer size,
+            String sort,
+            boolean withTotal) {
+        // Search the normalized name column and the semester as it is stored
+        name = SearchNormalizer.normalize(name);
+        semester = semester.toUpperCase(Locale.ROOT);
+        // Check if the university exists
+        universityService.verifyExists(universityId);
+
+        // Parse the sort string, invalid sort strings sort by ID in ascending order.
+        // Only the fields of the summaries can be sorted by.
+        Sort sortConstraint = SortParser.parse(sort, StudyModuleSummary.class);
+
+        int pageSize = pageSizeLimit.resolve(size);
+
+        KeysetScrollPosition position = cursorCodec.decode(cursor, StudyModule.class, sortConstraint);
+        Window<StudyModuleSummary> modules = repository
+                .findAllByUniversityIdAndNameNormalizedContainingAndSemesterContaining(
+                        universityId, name, semester, position, sortConstraint, Limit.of(pageSize),
+                        StudyModuleSummary.class);
+
+        // Count the modules only if the total was requested
+        Long total = withTotal
+                ? repository.countByUniversityIdAndNameNormalizedContainingAndSemesterContaining(
+                        universityId, name, semester)
+                : null;
+
+        return cursorCodec.toSlice(modules, position, PageRequest.of(0, pageSize, sortConstraint), total);
+    }
+
+    @Override
+    public long getModuleVersion(Long id) {
+        return repository.findVersionById(id).orElseThrow(StudyModuleNotFoundException::new);
+    }
+
+    @Override
+    public long getCollectionVersion() {
+        return collectionVersions.get(CollectionVersions.STUDY_MODULES);
+    }
+
+    @Override
+    public long getCollectionVersionOfUniversity(Long universityId) {
+        universityService.verifyExists(universityId);
+        // The linked modules are part of the collection of all modules, whose
+        // version changes with every write to a module, including the links
+        return collectionVersions.get(CollectionVersions.STUDY_MODULES);
+    }
+
+    @Override
+    public long getModuleVersionForUniversity(Long universityId, Long moduleId) {
+        universityService.verifyExists(universityId);
+
+        Optional<Long> version = repository.findVersionByIdAndUniversityId(moduleId, universityId);
+        if (version.isEmpty()) {
+            // Find out whether the module does not exist or is not linked
+            this.verifyExists(moduleId);
+            throw new ModuleNotLinkedException();
+        }
+
+        return version.get();
+    }
+
     @Override
     public StudyModule getModuleForUniversity(Long universityId, Long moduleId) {
         // Check if the university exists
@@ -123,91 +379,198 @@ public class StudyModuleServiceImpl implements StudyModuleService {
         return module;
     }
 
+    @Override
+    public StudyModule getModuleForUniversity(Long universityId, Long moduleId, long version) {
+        StudyModule module = this.getModuleById(moduleId, version);
+
+        // The module may have been unlinked after its version was found
+        if (!Objects.equals(module.getUniversityId(), universityId)) {
+            throw new ModuleNotLinkedException();
+        }
+
+        return module;
+    }
+
     @Override
     public URI createModule(StudyModule module) {
-        module.setId(idGenerator.nextId());
-        StudyModule savedModule = repository.save(module);
-        URI location = URI.create(BASE_URI + MODULE_ENDPOINT + "/" + savedModule.getId());
+        for (int attempt = 1;; attempt++) {
+            // The ID is generated before the transaction starts, like the IDs
+            // of the universities
+            module.setId(idGenerator.nextId());
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    module.setVersion(modificationClock.next());
+                    repository.insert(module);
+                    searchIndex.indexModule(module);
+                    collectionVersions.increment(CollectionVersions.STUDY_MODULES);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Another server instance created a module with this ID using
+                // PUT, which this instance did not mark as used
+                if (attempt == CREATE_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            URI location = URI.create(BASE_URI + MODULE_ENDPOINT + "/" + module.getId());
+
+            return location;
+        }
+    }
 
-        return location;
+    @Override
+    public List<URI> createModules(List<StudyModule> modules) {
+        for (int attempt = 1;; attempt++) {
+            // Generate the IDs of all modules in one step, before the
+            // transaction starts
+            long[] newIds = idGenerator.nextIds(modules.size());
+            List<URI> locations = new ArrayList<>(modules.size());
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (int i = 0; i < newIds.length; i++) {
+                        modules.get(i).setId(newIds[i]);
+                        modules.get(i).setVersion(modificationClock.next());
+                        locations.add(URI.create(BASE_URI + MODULE_ENDPOINT + "/" + newIds[i]));
+                    }
+
+                    repository.insertAll(modules);
+                    modules.forEach(searchIndex::indexModule);
+                    collectionVersions.increment(CollectionVersions.STUDY_MODULES);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // One of the IDs was taken by a PUT of another server instance.
+                // The whole batch was rolled back, so it is created again.
+                if (attempt == CREATE_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            return locations;
+        }
     }
 
     @Override
     public Optional<URI> updateModule(Long id, StudyModule module) {
+        // The ID may be created, so it is marked as used before the
+        // transaction starts. Marking the ID of a stored module changes nothing.
+        idGenerator.markIdUsed(id);
+
         try {
-            this.verifyExists(id);
-        } catch (StudyModuleNotFoundException e) {
-            // If the module does not exist, create a new module
-            idGenerator.markIdUsed(id);
-            StudyModule result = repository.save(module);
-            URI location = URI.create(BASE_URI + MODULE_ENDPOINT + "/" + result.getId());
-            return Optional.of(location);
+            return transactionTemplate.execute(status -> upsertModule(id, module));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent PUT created the module after this one did not find
+            // it. PUT is idempotent, so it is retried once and replaces the
+            // created module.
+            return transactionTemplate.execute(status -> upsertModule(id, module));
+        }
+    }
+
+    /**
+     * Update the module if it exists, otherwise create it with the given ID.
+     * Must be called within a transaction.
+     */
+    private Optional<URI> upsertModule(Long id, StudyModule module) {
+        entityCache.invalidate(StudyModule.class, id);
+        module.setVersion(modificationClock.next());
+
+        // Update the module if it exists
+        if (repository.update(module) > 0) {
+            searchIndex.indexModule(module);
+            collectionVersions.increment(CollectionVersions.STUDY_MODULES);
+            return Optional.empty();
         }
-        // If the module exists, update it
-        repository.save(module);
-        return Optional.empty();
 
+        // Otherwise, create a new module with the given ID
+        repository.insert(module);
+        searchIndex.indexModule(module);
+        collectionVersions.increment(CollectionVersions.STUDY_MODULES);
+        URI location = URI.create(BASE_URI + MODULE_ENDPOINT + "/" + id);
+        return Optional.of(location);
     }
 
     @Override
-    public void deleteModule(Long id) {
-        // Get the module
-        StudyModule module = this.getModuleById(id);
-        // Check if a university is linked to the module. If so, remove the module from
-        // the university.
-        Long universityId = module.getUniversityId();
-        if (universityId != null) {
-            University university = universityService.getUniversityById(universityId);
-            university.removeModule(id);
-            universityService.updateUniversity(universityId, university);
+    @Transactional
+    public long updateModuleIfMatch(Long id, StudyModule module, List<Long> versions) {
+        entityCache.invalidate(StudyModule.class, id);
+        long version = modificationClock.next();
+        module.setVersion(version);
+
+        // The version is compared by the update itself, so a concurrent update
+        // of the same module is detected without locking it beforehand
+        int updated = versions == null
+                ? repository.update(module)
+                : versions.isEmpty() ? 0 : repository.updateIfVersionIn(module, versions);
+        if (updated == 0) {
+            throw new PreconditionFailedException();
         }
 
+        searchIndex.indexModule(module);
+        collectionVersions.increment(CollectionVersions.STUDY_MODULES);
+        return version;
+    }
+
+    @Override
+    @Transactional
+    public void deleteModule(Long id) {
+        // Check if the module exists. The link to a university is stored in the
+        // module itself, so it is removed together with the module.
+        this.verifyExists(id);
+
         repository.deleteById(id);
+        entityCache.invalidate(StudyModule.class, id);
+        searchIndex.removeModule(id);
+        collectionVersions.increment(CollectionVersions.STUDY_MODULES);
     }
 
     @Override
     public void verifyExists(Long id) {
+        // Not checked in the cache, like the universities
         if (!repository.existsById(id)) {
             throw new StudyModuleNotFoundException();
         }
     }
 
     @Override
+    @Transactional
     public void linkModuleToUniversity(Long moduleId, Long universityId) {
-        // Get the university
-        University university = universityService.getUniversityById(universityId);
-        // Get the module
-        StudyModule module = this.getModuleById(moduleId);
-
-        if (!canModuleBeLinked(moduleId, universityId)) {
-            throw new ModuleTakenException();
+        entityCache.invalidate(StudyModule.class, moduleId);
+        // Claim the module with a single conditional update. Only the column of
+        // the link and the version are written, so a concurrent update of the
+        // module is kept.
+        if (repository.claimForUniversity(moduleId, universityId, modificationClock.next()) > 0) {
+            collectionVersions.increment(CollectionVersions.STUDY_MODULES);
+            return;
         }
 
-        university.addModule(moduleId);
-        module.setUniversityId(universityId);
-
-        // Save the changes
-        universityService.updateUniversity(universityId, university);
-        this.updateModule(moduleId, module);
+        // Find out why the module was not claimed, checking the university
+        // before the module
+        universityService.verifyExists(universityId);
+        StudyModule module = this.getModuleById(moduleId);
+        if (Objects.equals(module.getUniversityId(), universityId)) {
+            // Already linked to this university
+            return;
+        }
+        throw new ModuleTakenException();
     }
 
     @Override
+    @Transactional
     public void unlinkModuleFromUniversity(Long moduleId, Long universityId) {
-        // Get the university
-        University university = universityService.getUniversityById(universityId);
-        // Get the module
-        StudyModule module = this.getModuleById(moduleId);
-
-        if (!isModuleLinkedToUniversity(moduleId, universityId)) {
-            throw new ModuleNotLinkedException();
+        entityCache.invalidate(StudyModule.class, moduleId);
+        // Release the module with a single conditional update, which gives it a
+        // new version
+        if (repository.releaseFromUniversity(moduleId, universityId, modificationClock.next()) > 0) {
+            collectionVersions.increment(CollectionVersions.STUDY_MODULES);
+            return;
         }
 
-        university.removeModule(moduleId);
-        module.setUniversityId(null);
-
-        // Save the changes
-        universityService.updateUniversity(universityId, university);
-        this.updateModule(moduleId, module);
+        // Find out why the module was not released, checking the university
+        // before the module
+        universityService.verifyExists(universityId);
+        this.verifyExists(moduleId);
+        throw new ModuleNotLinkedException();
     }
 
     @Override
@@ -217,20 +580,50 @@ public class StudyModuleServiceImpl implements StudyModuleService {
         // Get the module
         StudyModule module = getModuleById(moduleId);
         // Check if the module is linked to the university
-        return module.getUniversityId() == universityId;
+        return Objects.equals(module.getUniversityId(), universityId);
     }
 
     @Override
+    @Transactional
     public void deleteAllModules() {
         repository.deleteAll();
+        entityCache.invalidateAll(StudyModule.class);
         idGenerator.reset();
+        searchIndex.clearModules();
+        collectionVersions.increment(CollectionVersions.STUDY_MODULES);
     }
 
-    private boolean canModuleBeLinked(Long moduleId, Long universityId) {
-        // Check if the university exists
-        universityService.verifyExists(universityId);
-        // Get the module
-        StudyModule module = getModuleById(moduleId);
-        return module.getUniversityId() == null || module.getUniversityId() == universityId;
+    /**
+     * Find a module in the cache, or in the database if it is not cached.
+     */
+    private Optional<StudyModule> findById(Long id) {
+        return entityCache.get(StudyModule.class, id, repository::findById);
+    }
+
+    /**
+     * Find a slice of the modules among the candidates, or among all modules if
+     * the search index could not narrow the query.
+     */
+    private Slice<StudyModuleSummary> findSlice(
+            Optional<Set<Long>> candidates,
+            String name,
+            String semester,
+            Pageable pageable) {
+        return candidates.isPresent()
+                ? repository.findByIdInAndNameNormalizedContainingAndSemesterContaining(
+                        candidates.get(), name, semester, pageable, StudyModuleSummary.class)
+                : repository.findByNameNormalizedContainingAndSemesterContaining(
+                        name, semester, pageable, StudyModuleSummary.class);
+    }
+
+    /**
+     * Count the modules among the candidates, or among all modules if the search
+     * index could not narrow the query.
+     */
+    private long count(Optional<Set<Long>> candidates, String name, String semester) {
+        return candidates.isPresent()
+                ? repository.countByIdInAndNameNormalizedContainingAndSemesterContaining(
+                        candidates.get(), name, semester)
+                : repository.countByNameNormalizedContainingAndSemesterContaining(name, semester);
     }
 }
@@ -1,29 +1,79 @@
 package com.papook.studytravel.server.services.impl;
 
 import static com.papook.studytravel.server.ServerConfiguration.BASE_URI;
-import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
 import static com.papook.studytravel.server.ServerConfiguration.UNIVERSITY_ENDPOINT;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.papook.studytravel.server.errors.PreconditionFailedException;
 import com.papook.studytravel.server.errors.UniversityNotFoundException;
+import com.papook.studytravel.server.models.StudyModule;
 import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.UniversitySummary;
 import com.papook.studytravel.server.repositories.StudyModuleRepository;
 import com.papook.studytravel.server.repositories.UniversityRepository;
 import com.papook.studytravel.server.services.UniversityService;
+import com.papook.studytravel.server.utils.CollectionVersions;
+import com.papook.studytravel.server.utils.CursorCodec;
+import com.papook.studytravel.server.utils.CursorSlice;
+import com.papook.studytravel.server.utils.EntityCache;
 import com.papook.studytravel.server.utils.IdGenerator;
+import com.papook.studytravel.server.utils.ModificationClock;
+import com.papook.studytravel.server.utils.PageSizeLimit;
+import com.papook.studytravel.server.utils.SchemaMigrations;
+import com.papook.studytravel.server.utils.SearchIndex;
+import com.papook.studytravel.server.utils.SearchNormalizer;
+import com.papook.studytravel.server.utils.SortParser;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class UniversityServiceImpl implements UniversityService {
+    /**
+     * The name of the persistent sequence the university IDs are reserved from.
+     */
+    private static final String ID_SEQUENCE = "university";
+
+    /**
+     * How often a POST is tried with new IDs if a university was created with
+     * PUT and one of the generated IDs in the meantime.
+     */
+    private static final int CREATE_ATTEMPTS = 3;
+
+    /**
+     * The number of rows whose search columns are filled in one transaction on
+     * startup.
+     */
+    private static final int NORMALIZE_CHUNK_SIZE = 1000;
+
+    /**
+     * The name of the schema migration dropping the columns of the links to a
+     * university and its modules, which were stored in every row before they
+     * were rendered from the ID.
+     */
+    private static final String DROP_LINK_COLUMNS = "drop_university_link_columns";
 
     @Autowired
     private IdGenerator idGenerator;
@@ -34,95 +84,388 @@ public class UniversityServiceImpl implements UniversityService {
     @Autowired
     StudyModuleRepository moduleRepository;
 
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private PageSizeLimit pageSizeLimit;
+
+    @Autowired
+    private ModificationClock modificationClock;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SchemaMigrations schemaMigrations;
+
+    @PostConstruct
+    void initialize() {
+        // The stored rows are migrated before they are indexed, and the IDs
+        // continue after all stored rows
+        schemaMigrations.applyOnce(DROP_LINK_COLUMNS, repository::dropLinkColumns);
+        normalizeSearchColumns();
+        buildSearchIndex();
+        resumeIdGeneration();
+        collectionVersions.register(CollectionVersions.UNIVERSITIES);
+    }
+
+    @PreDestroy
+    void releaseIds() {
+        // Keep the reserved but unused IDs for the next start
+        idGenerator.release();
+    }
+
+    private void resumeIdGeneration() {
+        // Continue after the IDs already stored, e.g. in durable storage
+        long firstFreeId = repository.findMaxId().orElse(0L) + 1;
+        idGenerator.attach(ID_SEQUENCE, firstFreeId);
+    }
+
+    private void normalizeSearchColumns() {
+        // Fill the search columns of the universities stored before the columns
+        // were introduced, e.g. in durable storage. A chunk is normalized per
+        // transaction, so a large table never has to fit in the heap, and the
+        // updates are sent in JDBC batches when the transaction commits.
+        long lastId = 0;
+        int normalized;
+        do {
+            long afterId = lastId;
+            List<University> chunk = transactionTemplate.execute(status -> {
+                List<University> universities = repository.findByNameNormalizedIsNullAndIdGreaterThanOrderById(
+                        afterId, Limit.of(NORMALIZE_CHUNK_SIZE));
+                universities.forEach(University::updateSearchColumns);
+                return universities;
+            });
+            normalized = chunk.size();
+            if (normalized > 0) {
+                lastId = chunk.get(normalized - 1).getId();
+            }
+        } while (normalized == NORMALIZE_CHUNK_SIZE);
+    }
+
+    private void buildSearchIndex() {
+        if (!searchIndex.isEnabled()) {
+            return;
+        }
+        // Index the universities already stored, e.g. in durable storage
+        for (Object[] terms : repository.findAllSearchTerms()) {
+            searchIndex.indexUniversity((Long) terms[0], (String) terms[1], (String) terms[2]);
+        }
+    }
+
     @Override
-    public Page<University> getUniversities(
+    public Slice<UniversitySummary> getUniversities(
             String name,
             String country,
             Integer page,
-            String sort) {
-        // Split the sort string into field and direction and create a sort object
-        String[] sortParts = sort.split("_");
-        String sortField = sortParts[0];
-        String sortDirection = sortParts[1];
-        Sort sortConstraint;
-
-        PageRequest pageRequest;
+            Integer size,
+            String sort,
+            boolean withTotal) {
+        // Search the normalized columns, which are case- and accent-insensitive
+        name = SearchNormalizer.normalize(name);
+        country = SearchNormalizer.normalize(country);
+        // Parse the sort string, invalid sort strings sort by ID in ascending order.
+        // Only the fields of the summaries can be sorted by.
+        Sort sortConstraint = SortParser.parse(sort, UniversitySummary.class);
+        PageRequest pageRequest = PageRequest.of(page, pageSizeLimit.resolve(size), sortConstraint);
 
-        Page<University> result;
+        // Narrow the query to the candidates of the search index if possible
+        Optional<Set<Long>> candidates = searchIndex.findUniversityCandidates(name, country);
+        Slice<UniversitySummary> result = findSlice(candidates, name, country, pageRequest);
 
-        try {
-            sortConstraint = Sort.by(Sort.Direction.fromString(sortDirection), sortField);
-            pageRequest = PageRequest.of(page, PAGE_SIZE, sortConstraint);
-            result = repository.findByNameContainingAndCountryContainingIgnoreCase(name, country, pageRequest);
-        } catch (PropertyReferenceException | IllegalArgumentException e) {
-            // If the sort field is invalid, default to sorting by ID in ascending order
-            sortConstraint = Sort.by(Sort.Order.asc("id"));
-            pageRequest = PageRequest.of(page, PAGE_SIZE, sortConstraint);
-
-            result = repository.findByNameContainingAndCountryContainingIgnoreCase(name, country, pageRequest);
+        if (withTotal) {
+            // Count the universities only if the total was requested
+            long total = count(candidates, name, country);
+            return new PageImpl<>(result.getContent(), pageRequest, total);
         }
 
         return result;
     }
 
+    @Override
+    public CursorSlice<UniversitySummary> scrollUniversities(
+            String name,
+            String country,
+            String cursor,
+            Integer size,
+            String sort,
+            boolean withTotal) {
+        // Search the normalized columns, which are case- and accent-insensitive
+        name = SearchNormalizer.normalize(name);
+        country = SearchNormalizer.normalize(country);
+        // Parse the sort string, invalid sort strings sort by ID in ascending order.
+        // Only the fields of the summaries can be sorted by.
+        Sort sortConstraint = SortParser.parse(sort, UniversitySummary.class);
+
+        int pageSize = pageSizeLimit.resolve(size);
+
+        KeysetScrollPosition position = cursorCodec.decode(cursor, University.class, sortConstraint);
+
+        // Narrow the query to the candidates of the search index if possible
+        Optional<Set<Long>> candidates = searchIndex.findUniversityCandidates(name, country);
+        Window<UniversitySummary> result = candidates.isPresent()
+                ? repository.findByIdInAndNameNormalizedContainingAndCountryNormalizedContaining(
+                        candidates.get(), name, country, position, sortConstraint, Limit.of(pageSize),
+                        UniversitySummary.class)
+                : repository.findByNameNormalizedContainingAndCountryNormalizedContaining(
+                        name, country, position, sortConstraint, Limit.of(pageSize), UniversitySummary.class);
+
+        // Count the universities only if the total was requested
+        Long total = withTotal ? count(candidates, name, country) : null;
+
+        return cursorCodec.toSlice(result, position, PageRequest.of(0, pageSize, sortConstraint), total);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUniversities(String name, String country, Consumer<UniversitySummary> consumer) {
+        // Search the normalized columns, which are case- and accent-insensitive
+        name = SearchNormalizer.normalize(name);
+        country = SearchNormalizer.normalize(country);
+
+        // The summaries are not managed, so the persistence context stays empty
+        try (Stream<UniversitySummary> universities = repository
+                .streamByNameNormalizedContainingAndCountryNormalizedContainingOrderById(
+                        name, country, UniversitySummary.class)) {
+            universities.forEach(consumer);
+        }
+    }
+
     @Override
     public University getUniversityById(Long id) {
-        University result = repository.findById(id).orElseThrow(UniversityNotFoundException::new);
+        University result = findById(id).orElseThrow(UniversityNotFoundException::new);
         return result;
     }
 
+    @Override
+    public University getUniversityById(Long id, long version) {
+        University university = getUniversityById(id);
+        if (Objects.requireNonNullElse(university.getVersion(), 0L) != version) {
+            // Cached before the university was written by another server
+            entityCache.invalidate(University.class, id);
+            university = getUniversityById(id);
+        }
+        return university;
+    }
+
+    @Override
+    public long getUniversityVersion(Long id) {
+        return repository.findVersionById(id).orElseThrow(UniversityNotFoundException::new);
+    }
+
+    @Override
+    public long getCollectionVersion() {
+        return collectionVersions.get(CollectionVersions.UNIVERSITIES);
+    }
+
     @Override
     public URI createUniversity(University university) {
-        // Generate a new ID for the university
-        long newId = idGenerator.nextId();
-        university.setId(newId);
+        for (int attempt = 1;; attempt++) {
+            // Generate a new ID for the university. The IDs are generated
+            // before the transaction starts, so a thread waiting for the next
+            // block of IDs does not hold a connection that the reservation of
+            // the block needs.
+            long newId = idGenerator.nextId();
+            university.setId(newId);
 
-        University result = repository.save(university);
-        URI location = URI
-                .create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + result.getId());
-        return location;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    university.setVersion(modificationClock.next());
+                    // Fails instead of overwriting a university stored with the same ID
+                    repository.insert(university);
+                    searchIndex.indexUniversity(university);
+                    collectionVersions.increment(CollectionVersions.UNIVERSITIES);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Another server instance created a university with this ID
+                // using PUT, which this instance did not mark as used
+                if (attempt == CREATE_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            URI location = URI
+                    .create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + newId);
+            return location;
+        }
+    }
+
+    @Override
+    public List<URI> createUniversities(List<University> universities) {
+        for (int attempt = 1;; attempt++) {
+            // Generate the IDs of all universities in one step, before the
+            // transaction starts
+            long[] newIds = idGenerator.nextIds(universities.size());
+            List<URI> locations = new ArrayList<>(universities.size());
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (int i = 0; i < newIds.length; i++) {
+                        universities.get(i).setId(newIds[i]);
+                        universities.get(i).setVersion(modificationClock.next());
+                        locations.add(URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + newIds[i]));
+                    }
+
+                    repository.insertAll(universities);
+                    universities.forEach(searchIndex::indexUniversity);
+                    collectionVersions.increment(CollectionVersions.UNIVERSITIES);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // One of the IDs was taken by a PUT of another server instance.
+                // The whole batch was rolled back, so it is created again.
+                if (attempt == CREATE_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            return locations;
+        }
     }
 
     @Override
     public Optional<URI> updateUniversity(Long id, University university) {
+        // The ID may be created, so it is marked as used before the
+        // transaction starts, like a generated ID. Marking the ID of a stored
+        // university changes nothing.
+        idGenerator.markIdUsed(id);
+
         try {
-            this.verifyExists(id);
-        } catch (UniversityNotFoundException e) {
-            // If the university does not exist, create a new university
-            idGenerator.markIdUsed(id);
-            University result = repository.save(university);
-            URI location = URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + result.getId());
-            return Optional.of(location);
+            return transactionTemplate.execute(status -> upsertUniversity(id, university));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent PUT created the university after this one did not
+            // find it. PUT is idempotent, so it is retried once and replaces
+            // the created university.
+            return transactionTemplate.execute(status -> upsertUniversity(id, university));
+        }
+    }
+
+    /**
+     * Update the university if it exists, otherwise create it with the given
+     * ID. Must be called within a transaction.
+     */
+    private Optional<URI> upsertUniversity(Long id, University university) {
+        entityCache.invalidate(University.class, id);
+        university.setVersion(modificationClock.next());
+
+        // Update the university if it exists
+        if (repository.update(university) > 0) {
+            searchIndex.indexUniversity(university);
+            collectionVersions.increment(CollectionVersions.UNIVERSITIES);
+            return Optional.empty();
         }
 
-        // If the university exists, update it
-        repository.save(university);
-        return Optional.empty();
+        // Otherwise, create a new university with the given ID
+        repository.insert(university);
+        searchIndex.indexUniversity(university);
+        collectionVersions.increment(CollectionVersions.UNIVERSITIES);
+        URI location = URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + id);
+        return Optional.of(location);
+    }
+
+    @Override
+    @Transactional
+    public long updateUniversityIfMatch(Long id, University university, List<Long> versions) {
+        entityCache.invalidate(University.class, id);
+        long version = modificationClock.next();
+        university.setVersion(version);
+
+        // The version is compared by the update itself, so a concurrent update
+        // of the same university is detected without locking it beforehand
+        int updated = versions == null
+                ? repository.update(university)
+                : versions.isEmpty() ? 0 : repository.updateIfVersionIn(university, versions);
+        if (updated == 0) {
+            throw new PreconditionFailedException();
+        }
 
+        searchIndex.indexUniversity(university);
+        collectionVersions.increment(CollectionVersions.UNIVERSITIES);
+        return version;
     }
 
     @Override
+    @Transactional
     public void deleteUniversity(Long id) {
-        Set<Long> moduleIds = this.getUniversityById(id).getModuleIds();
+        this.verifyExists(id);
         // Delete all modules linked to the university
-        moduleRepository.deleteAllById(moduleIds);
-        // Mark the University ID as available
-        idGenerator.markIdAvailable(id);
-        // Delete the university
+        List<Long> moduleIds = moduleRepository.findIdsByUniversityId(id);
+        moduleRepository.deleteAllByUniversityId(id);
+        // Delete the university. Its ID is never reused, as the IDs are
+        // reserved from a persistent sequence, see IdGenerator.
         repository.deleteById(id);
+        entityCache.invalidate(University.class, id);
+        entityCache.invalidate(StudyModule.class, moduleIds);
+
+        searchIndex.removeModules(moduleIds);
+        searchIndex.removeUniversity(id);
+        collectionVersions.increment(CollectionVersions.UNIVERSITIES);
+        if (!moduleIds.isEmpty()) {
+            collectionVersions.increment(CollectionVersions.STUDY_MODULES);
+        }
     }
 
     @Override
     public void verifyExists(Long id) {
+        // Not checked in the cache, which keeps a university deleted by
+        // another server until it expires. Checking the primary key reads no
+        // row into memory.
         if (!repository.existsById(id)) {
             throw new UniversityNotFoundException();
         }
     }
 
     @Override
+    @Transactional
     public void deleteAllUniversities() {
         repository.deleteAll();
+        entityCache.invalidateAll(University.class);
         idGenerator.reset();
+        searchIndex.clearUniversities();
+        collectionVersions.increment(CollectionVersions.UNIVERSITIES);
+    }
+
+    /**
+     * Find a university in the cache, or in the database if it is not cached.
+     */
+    private Optional<University> findById(Long id) {
+        return entityCache.get(University.class, id, repository::findById);
+    }
+
+    /**
+     * Find a slice of the universities among the candidates, or among all
+     * universities if the search index could not narrow the query.
+     */
+    private Slice<UniversitySummary> findSlice(
+            Optional<Set<Long>> candidates,
+            String name,
+            String country,
+            Pageable pageable) {
+        return candidates.isPresent()
+                ? repository.findByIdInAndNameNormalizedContainingAndCountryNormalizedContaining(
+                        candidates.get(), name, country, pageable, UniversitySummary.class)
+                : repository.findByNameNormalizedContainingAndCountryNormalizedContaining(
+                        name, country, pageable, UniversitySummary.class);
+    }
+
+    /**
+     * Count the universities among the candidates, or among all universities if
+     * the search index could not narrow the query.
+     */
+    private long count(Optional<Set<Long>> candidates, String name, String country) {
+        return candidates.isPresent()
+                ? repository.countByIdInAndNameNormalizedContainingAndCountryNormalizedContaining(
+                        candidates.get(), name, country)
+                : repository.countByNameNormalizedContainingAndCountryNormalizedContaining(name, country);
     }
 
 }
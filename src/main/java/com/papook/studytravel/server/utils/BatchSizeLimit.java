@@ -0,0 +1,37 @@
+package com.papook.studytravel.server.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.papook.studytravel.server.errors.BatchTooLargeException;
+
+/**
+ * Limits the number of resources created by one batch request. A batch is
+ * created in a single transaction that holds all its rows until it commits, so
+ * the size is capped by the server.
+ *
+ * @author papook
+ */
+@Component
+public class BatchSizeLimit {
+    /**
+     * The largest batch size if not configured.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    @Value("${studytravel.batch.max-size:" + DEFAULT_MAX_SIZE + "}")
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * Checks the size of a batch sent by a client.
+     *
+     * @param size The number of resources in the batch.
+     * @throws BatchTooLargeException If the batch is larger than the maximum
+     *                                size.
+     */
+    public void verify(int size) {
+        if (size > maxSize) {
+            throw new BatchTooLargeException();
+        }
+    }
+}
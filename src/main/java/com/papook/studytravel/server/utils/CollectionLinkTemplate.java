@@ -0,0 +1,273 @@
+package com.papook.studytravel.server.utils;
+
+import static com.papook.studytravel.server.ServerConfiguration.BASE_URI;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort.Order;
+
+/**
+ * Renders the Link headers of a collection response: the self, previous and
+ * next links, the templates for filtering by two parameters and the links for
+ * changing the sort order. The parts that are the same for every request are
+ * rendered once when the template is created. The query of a request is parsed
+ * once, and every link is written into a single string builder.
+ *
+ * The links keep the query parameters of the request as they were sent. The
+ * parameters replaced by a link are moved to the end of its query. The filter
+ * and sort links start again from the first slice, so they drop the page and
+ * the cursor.
+ *
+ * @author papook
+ */
+public final class CollectionLinkTemplate {
+    private static final String LINK_START = "<" + BASE_URI;
+    private static final String SELF_END = linkEnd("self");
+    private static final String PREV_END = linkEnd("prev");
+    private static final String NEXT_END = linkEnd("next");
+    private static final String REVERSE_SORT_END = linkEnd("reverseSortOrder");
+    private static final String SET_SORT_END = linkEnd("setSortOrder");
+    private static final String SET_SORT_QUERY = "sort={field}_{asc, desc}";
+
+    // The parameters replaced by the links
+    private static final String[] PAGE = { "page" };
+    private static final String[] PAGE_AND_CURSOR = { "page", "cursor" };
+    private static final String[] PAGE_CURSOR_AND_SORT = { "page", "cursor", "sort" };
+
+    private final String firstFilter;
+    private final String secondFilter;
+    private final String firstFilterQuery;
+    private final String secondFilterQuery;
+    private final String bothFiltersQuery;
+    private final String firstFilterEnd;
+    private final String secondFilterEnd;
+    private final String bothFiltersEnd;
+    private final String[] bothFiltersReplaced;
+
+    /**
+     * Creates the template of a collection that can be filtered by two query
+     * parameters. A filter template is only linked if its parameter is not
+     * given yet.
+     *
+     * @param firstFilter  The name of the first filter parameter, e.g. name.
+     * @param firstRel     The relation of the template for the first filter.
+     * @param secondFilter The name of the second filter parameter.
+     * @param secondRel    The relation of the template for the second filter.
+     * @param bothRel      The relation of the template for both filters.
+     */
+    public CollectionLinkTemplate(
+            String firstFilter,
+            String firstRel,
+            String secondFilter,
+            String secondRel,
+            String bothRel) {
+        this.firstFilter = firstFilter;
+        this.secondFilter = secondFilter;
+        this.firstFilterQuery = firstFilter + "={" + firstFilter + "}";
+        this.secondFilterQuery = secondFilter + "={" + secondFilter + "}";
+        this.bothFiltersQuery = firstFilterQuery + "&" + secondFilterQuery;
+        this.firstFilterEnd = linkEnd(firstRel);
+        this.secondFilterEnd = linkEnd(secondRel);
+        this.bothFiltersEnd = linkEnd(bothRel);
+        this.bothFiltersReplaced = new String[] { "page", "cursor", firstFilter, secondFilter };
+    }
+
+    /**
+     * Renders the Link headers of a collection response.
+     *
+     * For a {@link CursorSlice} the previous and next links contain the cursors,
+     * otherwise page numbers. A slice without a total count is sufficient, as
+     * the links only need to know whether there is a previous or next page.
+     *
+     * @param path  The path of the request.
+     * @param query The raw query string of the request, or null.
+     * @param slice The returned slice of the collection.
+     * @return The formatted Link headers.
+     */
+    public List<String> render(String path, String query, Slice<?> slice) {
+        Query parameters = Query.parse(query);
+        List<String> links = new ArrayList<>(8);
+
+        if (slice instanceof CursorSlice<?> cursorSlice) {
+            // The cursor replaces the page number
+            links.add(link(path, parameters, PAGE, null, SELF_END));
+
+            if (cursorSlice.getPrevCursor() != null) {
+                links.add(link(path, parameters, PAGE_AND_CURSOR, "cursor=" + cursorSlice.getPrevCursor(),
+                        PREV_END));
+            }
+            if (cursorSlice.getNextCursor() != null) {
+                links.add(link(path, parameters, PAGE_AND_CURSOR, "cursor=" + cursorSlice.getNextCursor(),
+                        NEXT_END));
+            }
+        } else {
+            int selfPageIndex = Math.max(0, slice.getNumber());
+            links.add(link(path, parameters, PAGE, "page=" + selfPageIndex, SELF_END));
+
+            // Without a count, the number of pages is unknown, so a slice behind
+            // the last page links to the page before it
+            boolean noResults = slice instanceof Page<?> countedPage && countedPage.getTotalPages() == 0;
+
+            if (slice.hasPrevious() && !noResults) {
+                int prevPageIndex = slice.previousOrFirstPageable().getPageNumber();
+                if (slice instanceof Page<?> totalPage) {
+                    // Ensure the previous page index does not exceed the last page index
+                    prevPageIndex = Math.min(totalPage.getTotalPages() - 1, prevPageIndex);
+                }
+                links.add(link(path, parameters, PAGE, "page=" + prevPageIndex, PREV_END));
+            }
+
+            if (slice.hasNext()) {
+                int nextPageIndex = Math.max(0, slice.nextOrLastPageable().getPageNumber());
+                links.add(link(path, parameters, PAGE, "page=" + nextPageIndex, NEXT_END));
+            }
+        }
+
+        boolean hasFirstFilter = parameters.contains(firstFilter);
+        boolean hasSecondFilter = parameters.contains(secondFilter);
+        if (!hasFirstFilter) {
+            links.add(link(path, parameters, PAGE_AND_CURSOR, firstFilterQuery, firstFilterEnd));
+        }
+        if (!hasSecondFilter) {
+            links.add(link(path, parameters, PAGE_AND_CURSOR, secondFilterQuery, secondFilterEnd));
+        }
+        if (!hasFirstFilter || !hasSecondFilter) {
+            links.add(link(path, parameters, bothFiltersReplaced, bothFiltersQuery, bothFiltersEnd));
+        }
+
+        // A different sort order starts again from the first slice
+        Order sortOrder = slice.getSort()
+                .stream()
+                .findFirst()
+                .orElse(Order.asc("id"));
+        String reverseSortQuery = "sort=" + sortOrder.getProperty()
+                + (sortOrder.isAscending() ? "_desc" : "_asc");
+        links.add(link(path, parameters, PAGE_CURSOR_AND_SORT, reverseSortQuery, REVERSE_SORT_END));
+        links.add(link(path, parameters, PAGE_CURSOR_AND_SORT, SET_SORT_QUERY, SET_SORT_END));
+
+        return links;
+    }
+
+    /**
+     * Writes a link to the request path with the query parameters of the
+     * request, except the replaced ones, followed by the appended parameters.
+     */
+    private static String link(
+            String path,
+            Query query,
+            String[] replaced,
+            String appended,
+            String linkEnd) {
+        StringBuilder link = new StringBuilder(LINK_START.length() + path.length() + query.length()
+                + (appended == null ? 0 : appended.length()) + linkEnd.length() + 2);
+        link.append(LINK_START).append(path);
+
+        char separator = '?';
+        for (int i = 0; i < query.count; i++) {
+            if (query.isNamedAny(i, replaced)) {
+                continue;
+            }
+            link.append(separator);
+            query.appendParameter(link, i);
+            separator = '&';
+        }
+
+        if (appended != null) {
+            link.append(separator).append(appended);
+        }
+        return link.append(linkEnd).toString();
+    }
+
+    private static String linkEnd(String rel) {
+        return ">; rel=\"" + rel + "\"";
+    }
+
+    /**
+     * The parameters of a raw query string, stored as positions in the string.
+     * Empty parameters are skipped.
+     */
+    private static final class Query {
+        private static final Query EMPTY = new Query("", new int[0], 0);
+
+        private final String raw;
+        // The start, end of the name and end of every parameter
+        private final int[] bounds;
+        private final int count;
+
+        private Query(String raw, int[] bounds, int count) {
+            this.raw = raw;
+            this.bounds = bounds;
+            this.count = count;
+        }
+
+        static Query parse(String raw) {
+            if (raw == null || raw.isEmpty()) {
+                return EMPTY;
+            }
+
+            int[] bounds = new int[12];
+            int count = 0;
+            int start = 0;
+            while (start <= raw.length()) {
+                int end = raw.indexOf('&', start);
+                if (end < 0) {
+                    end = raw.length();
+                }
+
+                if (end > start) {
+                    int nameEnd = raw.indexOf('=', start);
+                    if (nameEnd < 0 || nameEnd > end) {
+                        nameEnd = end;
+                    }
+
+                    if (3 * count + 3 > bounds.length) {
+                        bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+                    }
+                    bounds[3 * count] = start;
+                    bounds[3 * count + 1] = nameEnd;
+                    bounds[3 * count + 2] = end;
+                    count++;
+                }
+                start = end + 1;
+            }
+
+            return new Query(raw, bounds, count);
+        }
+
+        int length() {
+            return raw.length();
+        }
+
+        boolean isNamed(int index, String name) {
+            int start = bounds[3 * index];
+            int nameEnd = bounds[3 * index + 1];
+            return nameEnd - start == name.length() && raw.startsWith(name, start);
+        }
+
+        boolean isNamedAny(int index, String[] names) {
+            for (String name : names) {
+                if (isNamed(index, name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean contains(String name) {
+            for (int i = 0; i < count; i++) {
+                if (isNamed(i, name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void appendParameter(StringBuilder builder, int index) {
+            builder.append(raw, bounds[3 * index], bounds[3 * index + 2]);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.papook.studytravel.server.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.papook.studytravel.server.models.CollectionVersion;
+import com.papook.studytravel.server.repositories.CollectionVersionRepository;
+
+/**
+ * Keeps the versions of the collections, see {@link CollectionVersion}, from
+ * which their ETags are derived.
+ *
+ * Every write to a collection counts up its version in the same transaction,
+ * so the version changes when the write is committed and not before, and the
+ * database orders the writes of all server instances. Reading the version of a
+ * collection reads a single row, however many resources it holds.
+ *
+ * A collection starts at a version stamp of the {@link ModificationClock}, not
+ * at 0, so a collection in a new database, e.g. after a restart with in-memory
+ * storage, does not repeat the ETags of the collection before.
+ *
+ * @author papook
+ */
+@Component
+public class CollectionVersions {
+    /**
+     * The name of the collection of universities.
+     */
+    public static final String UNIVERSITIES = "university";
+
+    /**
+     * The name of the collection of study modules. The modules of a university
+     * are part of it, so linking or unlinking a module counts it up as well.
+     */
+    public static final String STUDY_MODULES = "study_module";
+
+    @Autowired
+    private CollectionVersionRepository repository;
+
+    @Autowired
+    private ModificationClock modificationClock;
+
+    /**
+     * Creates the version of a collection if it is not stored yet, e.g. on the
+     * first start with a new database.
+     *
+     * @param collectionName The name of the collection.
+     *
+     * @author papook
+     */
+    public void register(String collectionName) {
+        repository.createIfAbsent(collectionName, modificationClock.next());
+    }
+
+    /**
+     * Counts up the version of a collection. Must be called within the
+     * transaction writing to the collection, preferably at its end, since the
+     * row of the version stays locked until the transaction ends.
+     *
+     * @param collectionName The name of the collection.
+     *
+     * @author papook
+     */
+    public void increment(String collectionName) {
+        if (repository.increment(collectionName) == 0) {
+            // The row was removed from the database while the server was running
+            register(collectionName);
+            repository.increment(collectionName);
+        }
+    }
+
+    /**
+     * @param collectionName The name of the collection.
+     * @return The current version of the collection, 0 if it was not
+     *         registered.
+     *
+     * @author papook
+     */
+    public long get(String collectionName) {
+        return repository.findVersion(collectionName).orElse(0L);
+    }
+}
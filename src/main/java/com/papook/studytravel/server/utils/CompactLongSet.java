@@ -0,0 +1,492 @@
+package com.papook.studytravel.server.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A compressed set of non-negative long values. The values are split into
+ * chunks of 4096 consecutive values. A chunk with few values stores them as a
+ * sorted array, a chunk with many values as a bitmap, and a full chunk stores
+ * nothing. The memory used is therefore proportional to the number of holes in
+ * dense sets and to the number of values in sparse sets. Operations on single
+ * values take O(log n) time for n chunks.
+ *
+ * The set is not thread-safe.
+ *
+ * @author papook
+ */
+public class CompactLongSet {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * A chunk with more values than this is stored as a bitmap. A sorted array
+     * of this size takes as much memory as the bitmap.
+     */
+    private static final int MAX_ARRAY_SIZE = 256;
+
+    private final TreeMap<Long, Chunk> chunks = new TreeMap<>();
+    private long size;
+
+    /**
+     * Receives the ranges of consecutive values of the set.
+     */
+    @FunctionalInterface
+    public interface RangeConsumer {
+        /**
+         * @param first The first value of the range.
+         * @param last  The last value of the range, inclusive.
+         */
+        void accept(long first, long last);
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value The value to add.
+     * @return True if the value was not in the set before.
+     */
+    public boolean add(long value) {
+        Chunk chunk = chunks.computeIfAbsent(value >>> CHUNK_BITS, key -> new Chunk());
+        if (chunk.add(offset(value))) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds all values from {@code first} to {@code last}, both inclusive.
+     *
+     * @param first The first value of the range.
+     * @param last  The last value of the range.
+     */
+    public void addRange(long first, long last) {
+        for (long key = first >>> CHUNK_BITS; first <= last && key <= last >>> CHUNK_BITS; key++) {
+            int from = key == first >>> CHUNK_BITS ? offset(first) : 0;
+            int to = key == last >>> CHUNK_BITS ? offset(last) : CHUNK_MASK;
+
+            Chunk chunk = chunks.computeIfAbsent(key, k -> new Chunk());
+            int before = chunk.count;
+            chunk.addRange(from, to);
+            size += chunk.count - before;
+        }
+    }
+
+    /**
+     * Removes a value from the set.
+     *
+     * @param value The value to remove.
+     * @return True if the value was in the set.
+     */
+    public boolean remove(long value) {
+        long key = value >>> CHUNK_BITS;
+        Chunk chunk = chunks.get(key);
+        if (chunk == null || !chunk.remove(offset(value))) {
+            return false;
+        }
+
+        size--;
+        if (chunk.count == 0) {
+            chunks.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Removes all values from {@code first} to {@code last}, both inclusive.
+     *
+     * @param first The first value of the range.
+     * @param last  The last value of the range.
+     */
+    public void removeRange(long first, long last) {
+        if (first > last) {
+            return;
+        }
+
+        long lastKey = last >>> CHUNK_BITS;
+        Long key = chunks.ceilingKey(first >>> CHUNK_BITS);
+        while (key != null && key <= lastKey) {
+            int from = key == first >>> CHUNK_BITS ? offset(first) : 0;
+            int to = key == lastKey ? offset(last) : CHUNK_MASK;
+
+            Chunk chunk = chunks.get(key);
+            int before = chunk.count;
+            chunk.removeRange(from, to);
+            size -= before - chunk.count;
+            if (chunk.count == 0) {
+                chunks.remove(key);
+            }
+
+            key = chunks.higherKey(key);
+        }
+    }
+
+    /**
+     * Removes the lowest value from the set.
+     *
+     * @return The lowest value, or null if the set is empty.
+     */
+    public Long pollFirst() {
+        Map.Entry<Long, Chunk> first = chunks.firstEntry();
+        if (first == null) {
+            return null;
+        }
+
+        long value = (first.getKey() << CHUNK_BITS) + first.getValue().first();
+        remove(value);
+        return value;
+    }
+
+    /**
+     * Checks whether the value is in the set.
+     *
+     * @param value The value to check.
+     * @return True if the value is in the set.
+     */
+    public boolean contains(long value) {
+        Chunk chunk = chunks.get(value >>> CHUNK_BITS);
+        return chunk != null && chunk.contains(offset(value));
+    }
+
+    /**
+     * Get the last value of the consecutive values starting at the given value,
+     * but not after the limit. Takes O(log n) time per chunk of consecutive
+     * values.
+     *
+     * @param value A value in the set.
+     * @param limit The highest value to look at.
+     * @return The last consecutive value up to the limit, or null if the value
+     *         is not in the set.
+     */
+    public Long runEnd(long value, long limit) {
+        if (!contains(value)) {
+            return null;
+        }
+
+        long next = value;
+        while (next <= limit) {
+            long key = next >>> CHUNK_BITS;
+            Chunk chunk = chunks.get(key);
+            if (chunk == null) {
+                break;
+            }
+
+            int absent = chunk.nextAbsent(offset(next));
+            next = (key << CHUNK_BITS) + absent;
+            if (absent < CHUNK_SIZE) {
+                break;
+            }
+        }
+
+        return Math.min(next - 1, limit);
+    }
+
+    /**
+     * Passes the ranges of consecutive values to the consumer, in ascending
+     * order.
+     *
+     * @param consumer The consumer of the ranges.
+     */
+    public void forEachRange(RangeConsumer consumer) {
+        long rangeFirst = -1;
+        long rangeLast = -2;
+
+        for (Map.Entry<Long, Chunk> entry : chunks.entrySet()) {
+            long base = entry.getKey() << CHUNK_BITS;
+            Chunk chunk = entry.getValue();
+
+            int from = chunk.nextPresent(0);
+            while (from >= 0) {
+                int to = chunk.nextAbsent(from);
+
+                // Continue the range of the previous chunk if it ended at its end
+                if (base + from == rangeLast + 1) {
+                    rangeLast = base + to - 1;
+                } else {
+                    if (rangeFirst >= 0) {
+                        consumer.accept(rangeFirst, rangeLast);
+                    }
+                    rangeFirst = base + from;
+                    rangeLast = base + to - 1;
+                }
+
+                from = to < CHUNK_SIZE ? chunk.nextPresent(to) : -1;
+            }
+        }
+
+        if (rangeFirst >= 0) {
+            consumer.accept(rangeFirst, rangeLast);
+        }
+    }
+
+    /**
+     * Removes all values from the set.
+     */
+    public void clear() {
+        chunks.clear();
+        size = 0;
+    }
+
+    /**
+     * Checks whether the set is empty.
+     *
+     * @return True if the set contains no values.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the number of values in the set.
+     *
+     * @return The number of values.
+     */
+    public long size() {
+        return size;
+    }
+
+    private static int offset(long value) {
+        return (int) (value & CHUNK_MASK);
+    }
+
+    /**
+     * The values of one chunk as offsets from the start of the chunk. Either
+     * {@code values} holds the sorted offsets, or {@code bits} holds a bit per
+     * offset, or neither is set and the chunk is full.
+     */
+    private static final class Chunk {
+        private char[] values = new char[4];
+        private long[] bits;
+        private int count;
+
+        boolean contains(int offset) {
+            if (values != null) {
+                return Arrays.binarySearch(values, 0, count, (char) offset) >= 0;
+            }
+            return bits == null || (bits[offset >>> 6] & (1L << offset)) != 0;
+        }
+
+        boolean add(int offset) {
+            if (values != null) {
+                int index = Arrays.binarySearch(values, 0, count, (char) offset);
+                if (index >= 0) {
+                    return false;
+                }
+                if (count == MAX_ARRAY_SIZE) {
+                    toBitmap();
+                    return add(offset);
+                }
+
+                index = -index - 1;
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, Math.min(2 * values.length, MAX_ARRAY_SIZE));
+                }
+                System.arraycopy(values, index, values, index + 1, count - index);
+                values[index] = (char) offset;
+                count++;
+                return true;
+            }
+
+            if (bits == null || (bits[offset >>> 6] & (1L << offset)) != 0) {
+                return false;
+            }
+            bits[offset >>> 6] |= 1L << offset;
+            count++;
+            compact();
+            return true;
+        }
+
+        void addRange(int from, int to) {
+            if (from == 0 && to == CHUNK_MASK) {
+                values = null;
+                bits = null;
+                count = CHUNK_SIZE;
+                return;
+            }
+
+            if (values != null && count + (to - from + 1) > MAX_ARRAY_SIZE) {
+                toBitmap();
+            }
+            if (values != null) {
+                for (int offset = from; offset <= to; offset++) {
+                    add(offset);
+                }
+                return;
+            }
+            if (bits == null) {
+                return;
+            }
+
+            for (int word = from >>> 6; word <= to >>> 6; word++) {
+                long before = bits[word];
+                bits[word] |= mask(word, from, to);
+                count += Long.bitCount(bits[word]) - Long.bitCount(before);
+            }
+            compact();
+        }
+
+        boolean remove(int offset) {
+            if (values != null) {
+                int index = Arrays.binarySearch(values, 0, count, (char) offset);
+                if (index < 0) {
+                    return false;
+                }
+                System.arraycopy(values, index + 1, values, index, count - index - 1);
+                count--;
+                return true;
+            }
+
+            if (bits == null) {
+                toBitmap();
+            }
+            if ((bits[offset >>> 6] & (1L << offset)) == 0) {
+                return false;
+            }
+            bits[offset >>> 6] &= ~(1L << offset);
+            count--;
+            compact();
+            return true;
+        }
+
+        void removeRange(int from, int to) {
+            if (from == 0 && to == CHUNK_MASK) {
+                values = new char[4];
+                bits = null;
+                count = 0;
+                return;
+            }
+
+            if (values != null) {
+                int low = lowerBound(from);
+                int high = lowerBound(to + 1);
+                System.arraycopy(values, high, values, low, count - high);
+                count -= high - low;
+                return;
+            }
+
+            if (bits == null) {
+                toBitmap();
+            }
+            for (int word = from >>> 6; word <= to >>> 6; word++) {
+                long before = bits[word];
+                bits[word] &= ~mask(word, from, to);
+                count -= Long.bitCount(before) - Long.bitCount(bits[word]);
+            }
+            compact();
+        }
+
+        int first() {
+            return nextPresent(0);
+        }
+
+        /**
+         * @return The first offset from the given one that is in the chunk, or
+         *         -1 if there is none.
+         */
+        int nextPresent(int offset) {
+            if (values != null) {
+                int index = lowerBound(offset);
+                return index < count ? values[index] : -1;
+            }
+            if (bits == null) {
+                return offset;
+            }
+
+            int word = offset >>> 6;
+            long remaining = bits[word] & (-1L << offset);
+            while (remaining == 0) {
+                if (++word == bits.length) {
+                    return -1;
+                }
+                remaining = bits[word];
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(remaining);
+        }
+
+        /**
+         * @return The first offset from the given one that is not in the chunk,
+         *         or the chunk size if there is none.
+         */
+        int nextAbsent(int offset) {
+            if (values != null) {
+                int index = lowerBound(offset);
+                int next = offset;
+                while (index < count && values[index] == next) {
+                    index++;
+                    next++;
+                }
+                return next;
+            }
+            if (bits == null) {
+                return CHUNK_SIZE;
+            }
+
+            int word = offset >>> 6;
+            long missing = ~bits[word] & (-1L << offset);
+            while (missing == 0) {
+                if (++word == bits.length) {
+                    return CHUNK_SIZE;
+                }
+                missing = ~bits[word];
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(missing);
+        }
+
+        private int lowerBound(int offset) {
+            int index = Arrays.binarySearch(values, 0, count, (char) Math.min(offset, CHUNK_MASK));
+            if (index < 0) {
+                return -index - 1;
+            }
+            return offset > CHUNK_MASK ? count : index;
+        }
+
+        private void toBitmap() {
+            long[] newBits = new long[CHUNK_SIZE / 64];
+            if (values != null) {
+                for (int i = 0; i < count; i++) {
+                    newBits[values[i] >>> 6] |= 1L << values[i];
+                }
+            } else {
+                Arrays.fill(newBits, -1L);
+            }
+            bits = newBits;
+            values = null;
+        }
+
+        /**
+         * Stores a full bitmap as a full chunk and a sparse bitmap as an array.
+         * Half of the array size is kept free, so that values added and removed
+         * in turn do not convert the chunk every time.
+         */
+        private void compact() {
+            if (count == CHUNK_SIZE) {
+                bits = null;
+            } else if (count <= MAX_ARRAY_SIZE / 2) {
+                char[] newValues = new char[Math.max(count, 4)];
+                int index = 0;
+                for (int offset = nextPresent(0); offset >= 0 && index < count; offset = nextPresent(offset + 1)) {
+                    newValues[index++] = (char) offset;
+                    if (offset == CHUNK_MASK) {
+                        break;
+                    }
+                }
+                values = newValues;
+                bits = null;
+            }
+        }
+
+        private static long mask(int word, int from, int to) {
+            long mask = -1L;
+            if (word == from >>> 6) {
+                mask &= -1L << from;
+            }
+            if (word == to >>> 6) {
+                mask &= -1L >>> (63 - (to & 63));
+            }
+            return mask;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.papook.studytravel.server.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.papook.studytravel.server.errors.InvalidCursorException;
+
+/**
+ * Responsible for converting keyset scroll positions to opaque cursors and
+ * back.
+ * 
+ * A cursor contains the values of the sort field and the ID of the first or
+ * last element of a slice, and the scroll direction. It is encoded as
+ * URL-safe Base64, so it can be used as a query parameter as is.
+ *
+ * @author papook
+ */
+@Component
+public class CursorCodec {
+    private static final String ID_PROPERTY = "id";
+    private static final String BACKWARD_KEY = "b";
+    private static final String KEYS_KEY = "k";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Decodes a cursor into a scroll position.
+     * 
+     * @param cursor     The cursor sent by the client. If null or empty, the
+     *                   position of the first slice is returned.
+     * @param entityType The type of the entities, used to restore the types of
+     *                   the key values.
+     * @param sort       The sort order of the request. The cursor must contain a
+     *                   value for every sorted property and the ID.
+     * @return The keyset scroll position.
+     * 
+     * @throws InvalidCursorException If the cursor is malformed or was created for
+     *                                a different sort order.
+     * 
+     * @author papook
+     */
+    public KeysetScrollPosition decode(String cursor, Class<?> entityType, Sort sort) {
+        if (cursor == null || cursor.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+
+        Map<String, Object> state;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            state = objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (IllegalArgumentException | IOException e) {
+            throw new InvalidCursorException();
+        }
+
+        if (!(state.get(KEYS_KEY) instanceof Map<?, ?> encodedKeys)) {
+            throw new InvalidCursorException();
+        }
+
+        // The keys must match the sort order, otherwise the query cannot be built
+        Set<String> expectedProperties = new HashSet<>();
+        sort.forEach(order -> expectedProperties.add(order.getProperty()));
+        expectedProperties.add(ID_PROPERTY);
+
+        if (!expectedProperties.equals(encodedKeys.keySet())) {
+            throw new InvalidCursorException();
+        }
+
+        // Restore the type of each key, e.g. LocalDate, from the entity property
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (String property : expectedProperties) {
+            Class<?> propertyType = BeanUtils.findPropertyType(property, entityType);
+            try {
+                keys.put(property, objectMapper.convertValue(encodedKeys.get(property), propertyType));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidCursorException();
+            }
+        }
+
+        boolean backward = Boolean.TRUE.equals(state.get(BACKWARD_KEY));
+        return backward ? ScrollPosition.backward(keys) : ScrollPosition.forward(keys);
+    }
+
+    /**
+     * Encodes a scroll position into a cursor.
+     * 
+     * @param position The keyset scroll position.
+     * @return The cursor.
+     * 
+     * @author papook
+     */
+    public String encode(KeysetScrollPosition position) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put(BACKWARD_KEY, position.scrollsBackward());
+        state.put(KEYS_KEY, position.getKeys());
+
+        try {
+            byte[] json = objectMapper.writeValueAsString(state).getBytes(StandardCharsets.UTF_8);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode the cursor.", e);
+        }
+    }
+
+    /**
+     * Creates a slice with the cursors of the previous and next slices from a
+     * window of results.
+     * 
+     * @param <T>           The type of the content.
+     * @param window        The window returned by the repository. Its content is
+     *                      in sort order, even when scrolling backward. The
+     *                      content may be projections, which must contain the
+     *                      ID and the sorted properties.
+     * @param position      The position the window was fetched from.
+     * @param pageable      The page size and sort order of the window.
+     * @param totalElements The total number of elements or null if it was not
+     *                      counted.
+     * @return A slice containing the content of the window and the cursors.
+     * 
+     * @author papook
+     */
+    public <T> CursorSlice<T> toSlice(
+            Window<T> window,
+            KeysetScrollPosition position,
+            Pageable pageable,
+            Long totalElements) {
+        List<T> content = window.getContent();
+        String nextCursor = null;
+        String prevCursor = null;
+
+        if (!content.isEmpty()) {
+            // Read the keys from the content, as the window cannot read them from
+            // projections
+            Map<String, Object> firstKeys = getKeys(content.get(0), pageable.getSort());
+            Map<String, Object> lastKeys = getKeys(content.get(content.size() - 1), pageable.getSort());
+
+            // When scrolling backward, the window continues towards the first slice
+            boolean hasNext = position.scrollsBackward() || window.hasNext();
+            boolean hasPrevious = position.scrollsBackward() ? window.hasNext() : !position.isInitial();
+
+            if (hasNext) {
+                nextCursor = encode(ScrollPosition.forward(lastKeys));
+            }
+            if (hasPrevious) {
+                prevCursor = encode(ScrollPosition.backward(firstKeys));
+            }
+        } else if (!position.isInitial()) {
+            // Nothing left in the scroll direction, continue in the other one
+            if (position.scrollsBackward()) {
+                nextCursor = encode(position.forward());
+            } else {
+                prevCursor = encode(position.backward());
+            }
+        }
+
+        return new CursorSlice<>(content, pageable, nextCursor, prevCursor, totalElements);
+    }
+
+    /**
+     * Reads the keys of a position from an element: the ID and the value of
+     * every sorted property.
+     */
+    private static Map<String, Object> getKeys(Object element, Sort sort) {
+        PropertyAccessor accessor = PropertyAccessorFactory.forDirectFieldAccess(element);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(ID_PROPERTY, accessor.getPropertyValue(ID_PROPERTY));
+        sort.forEach(order -> keys.put(order.getProperty(), accessor.getPropertyValue(order.getProperty())));
+        return keys;
+    }
+}
@@ -0,0 +1,67 @@
+package com.papook.studytravel.server.utils;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import lombok.Getter;
+
+/**
+ * A slice of results that was fetched with keyset pagination. Instead of page
+ * numbers, the neighbouring slices are referenced by opaque cursors that are
+ * created by the {@link CursorCodec}.
+ * 
+ * @param <T> The type of the content.
+ * 
+ * @author papook
+ */
+public class CursorSlice<T> extends SliceImpl<T> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The cursor of the next slice or null if this is the last slice.
+     */
+    @Getter
+    private final String nextCursor;
+
+    /**
+     * The cursor of the previous slice or null if this is the first slice.
+     */
+    @Getter
+    private final String prevCursor;
+
+    /**
+     * The total number of elements or null if it was not counted.
+     */
+    private final Long totalElements;
+
+    public CursorSlice(
+            List<T> content,
+            Pageable pageable,
+            String nextCursor,
+            String prevCursor,
+            Long totalElements) {
+        super(content, pageable, nextCursor != null);
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+        this.totalElements = totalElements;
+    }
+
+    @Override
+    public boolean hasPrevious() {
+        return prevCursor != null;
+    }
+
+    /**
+     * Get the total number of elements if it was counted.
+     * 
+     * @return The total number of elements or an empty optional.
+     * 
+     * @author papook
+     */
+    public Optional<Long> getTotal() {
+        return Optional.ofNullable(totalElements);
+    }
+}
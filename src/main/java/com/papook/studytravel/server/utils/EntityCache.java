@@ -0,0 +1,148 @@
+package com.papook.studytravel.server.utils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Keeps the entities looked up by ID, e.g. the university checked by every
+ * request for its modules, so they are not read from the database every time.
+ * There is one cache per entity type, bounded in size and in the time an entity
+ * is kept. When the cache is full, the entities used least frequently are
+ * evicted (Window TinyLFU), so a scan over many entities does not push out the
+ * few that are used all the time.
+ *
+ * The entities are shared between requests and must not be modified. The
+ * services invalidate an entity whenever they write it, and the hits, misses
+ * and evictions of every cache are published as the {@code cache.*} metrics,
+ * tagged with the simple name of the entity type.
+ *
+ * @author papook
+ */
+@Component
+public class EntityCache {
+    /**
+     * The number of entities of each type kept if not configured.
+     */
+    public static final long DEFAULT_MAX_SIZE = 10_000;
+
+    /**
+     * How long an entity is kept after it was loaded if not configured.
+     */
+    public static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+    @Value("${studytravel.cache.max-size:" + DEFAULT_MAX_SIZE + "}")
+    private long maxSize = DEFAULT_MAX_SIZE;
+
+    @Value("${studytravel.cache.expire-after-write:10m}")
+    private Duration expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Map<Class<?>, Cache<Long, Object>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Finds an entity in the cache, or loads it and keeps it if it exists.
+     * Missing entities are not kept, so a created entity is found right away.
+     *
+     * @param <T>    The type of the entity.
+     * @param type   The class of the entity.
+     * @param id     The ID of the entity.
+     * @param loader Loads the entity from the database if it is not cached.
+     * @return The entity, or an empty optional if it does not exist.
+     */
+    public <T> Optional<T> get(Class<T> type, Long id, Function<Long, Optional<T>> loader) {
+        Object entity = cache(type).get(id, key -> loader.apply(key).orElse(null));
+        return Optional.ofNullable(type.cast(entity));
+    }
+
+    /**
+     * Removes an entity that is written. Within a transaction, it is removed
+     * again when the transaction completes, so an entity loaded by another
+     * request before the transaction committed is not kept.
+     *
+     * @param type The class of the entity.
+     * @param id   The ID of the entity.
+     */
+    public void invalidate(Class<?> type, Long id) {
+        Cache<Long, Object> cache = cache(type);
+        afterCompletion(() -> cache.invalidate(id));
+    }
+
+    /**
+     * Removes the entities that are written, like {@link #invalidate}.
+     *
+     * @param type The class of the entities.
+     * @param ids  The IDs of the entities.
+     */
+    public void invalidate(Class<?> type, Collection<Long> ids) {
+        Cache<Long, Object> cache = cache(type);
+        afterCompletion(() -> cache.invalidateAll(ids));
+    }
+
+    /**
+     * Removes all entities of a type, e.g. when all of them are deleted, like
+     * {@link #invalidate}.
+     *
+     * @param type The class of the entities.
+     */
+    public void invalidateAll(Class<?> type) {
+        Cache<Long, Object> cache = cache(type);
+        afterCompletion(cache::invalidateAll);
+    }
+
+    /**
+     * @param type The class of the entities.
+     * @return The hits, misses and evictions of the cache of the entities.
+     */
+    public CacheStats stats(Class<?> type) {
+        return cache(type).stats();
+    }
+
+    private void afterCompletion(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Also after a rollback, an entity read within the transaction may
+            // have been kept
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private Cache<Long, Object> cache(Class<?> type) {
+        return caches.computeIfAbsent(type, this::createCache);
+    }
+
+    private Cache<Long, Object> createCache(Class<?> type) {
+        Cache<Long, Object> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, type.getSimpleName());
+        }
+        return cache;
+    }
+}
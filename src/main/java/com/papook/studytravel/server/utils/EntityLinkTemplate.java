@@ -0,0 +1,46 @@
+package com.papook.studytravel.server.utils;
+
+import static com.papook.studytravel.server.ServerConfiguration.BASE_URI;
+
+/**
+ * Renders the Link headers of a single entity, whose URIs only differ in the
+ * ID of the entity, e.g. the update and delete links of a university. The
+ * links are split around the ID when the template is created, so rendering the
+ * links of an entity only inserts the ID.
+ *
+ * @author papook
+ */
+public final class EntityLinkTemplate {
+    private final String linkStart;
+    private final String[] linkEnds;
+
+    /**
+     * Creates the template of links to {@code pathBeforeId + id + pathAfterId}.
+     *
+     * @param pathBeforeId The path up to the ID, e.g. {@code /universities/}.
+     * @param pathAfterId  The path after the ID, may be empty.
+     * @param rels         The relation of every link.
+     */
+    public EntityLinkTemplate(String pathBeforeId, String pathAfterId, String... rels) {
+        this.linkStart = "<" + BASE_URI + pathBeforeId;
+        this.linkEnds = new String[rels.length];
+        for (int i = 0; i < rels.length; i++) {
+            linkEnds[i] = pathAfterId + ">; rel=\"" + rels[i] + "\"";
+        }
+    }
+
+    /**
+     * Renders the links of an entity, in the order of the relations.
+     *
+     * @param id The ID of the entity.
+     * @return The formatted Link headers.
+     */
+    public String[] render(long id) {
+        String idString = Long.toString(id);
+        String[] links = new String[linkEnds.length];
+        for (int i = 0; i < linkEnds.length; i++) {
+            links[i] = linkStart + idString + linkEnds[i];
+        }
+        return links;
+    }
+}
@@ -2,17 +2,13 @@ package com.papook.studytravel.server.utils;
 
 import static com.papook.studytravel.server.ServerConfiguration.BASE_URI;
 
-import java.net.URI;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
-import org.springframework.web.util.UriComponentsBuilder;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -39,121 +35,50 @@ public class HypermediaGenerator {
      * @author papook
      */
     public static String formatLinkHeader(String relativeUri, String rel) {
-        StringBuilder linkHeader = new StringBuilder();
-        String formattedLinkHeader = linkHeader.append('<')
-                .append(BASE_URI + relativeUri)
-                .append('>')
-                .append("; rel=\"")
-                .append(rel)
-                .append('\"').toString();
-
-        return formattedLinkHeader;
+        return "<" + BASE_URI + relativeUri + ">; rel=\"" + rel + "\"";
     }
 
     /**
-     * Builds hypermedia links for pagination. The links include relations for the
-     * current (self), previous, and next pages.
+     * Builds the Link headers of a collection response from the template of the
+     * collection: the self, previous and next links, the filter templates and
+     * the sort links. The query of the current request is parsed once for all
+     * links.
      * 
-     * @param page Page object of results.
+     * @param slice    Slice, Page or CursorSlice object of results.
+     * @param template The link template of the collection.
      * @return HttpHeaders object containing the formatted link headers.
      * 
-     * @see org.springframework.data.domain.Page
-     * @see org.springframework.http.HttpHeaders
+     * @see CollectionLinkTemplate
      * 
      * @author papook
      */
-    public HttpHeaders buildPagingLinksHeaders(Page<?> page) {
-        // Initialize a map to hold the paging links
-        Map<String, String> links = new HashMap<>();
-
-        // Get the current request URL
-        StringBuilder requestURL = new StringBuilder(servletRequest.getRequestURI());
-        // Get the query string from the current request
-        String queryString = servletRequest.getQueryString();
-
-        // Append the query string to the request URL if it exists
-        if (queryString != null) {
-            requestURL.append('?').append(queryString);
-        }
-
-        // Create a URI object from the request URL
-        URI requestURI = URI.create(requestURL.toString());
-        // Build URI components from the request URI
-        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUri(requestURI);
-
-        // Get the current page index (zero-based)
-        int selfPageIndex = Math.max(0, page.getNumber());
-        // Build the URI string for the current (self) page
-        String selfURIString = uriBuilder.replaceQueryParam("page", selfPageIndex)
-                .build()
-                .toUriString();
-        links.put("self", selfURIString);
-
-        // If the current page has a previous page and there are multiple pages
-        if (page.hasPrevious() && page.getTotalPages() > 0) {
-            // Get the index for the previous page
-            int prevPageIndex = page.previousOrFirstPageable().getPageNumber();
-            // Get the index for the last page
-            int lastPageIndex = page.getTotalPages() - 1;
-            // Ensure the previous page index does not exceed the last page index
-            prevPageIndex = Math.min(lastPageIndex, prevPageIndex);
-
-            // Build the URI for the previous page
-            String prevURIString = uriBuilder.replaceQueryParam("page", prevPageIndex)
-                    .build()
-                    .toUriString();
-            links.put("prev", prevURIString);
-        }
-
-        // If the current page has a next page
-        if (page.hasNext()) {
-            // Get the index for the next page
-            int nextPageIndex = page.nextOrLastPageable().getPageNumber();
-            // Ensure the next page index is not less than the first page index
-            int firstPageIndex = 0;
-            nextPageIndex = Math.max(firstPageIndex, nextPageIndex);
-
-            // Build the URI for the next page
-            String nextURI = uriBuilder.replaceQueryParam("page", nextPageIndex)
-                    .build()
-                    .toUriString();
-            links.put("next", nextURI);
-        }
-
-        // Convert the map of links to an array of link headers
-        List<String> linksArray = buildLinkHeaders(links);
-
-        // Create a new HttpHeaders object to hold the link headers
+    public HttpHeaders buildCollectionLinksHeaders(Slice<?> slice, CollectionLinkTemplate template) {
         HttpHeaders headers = new HttpHeaders();
-        // Add the link headers to the HttpHeaders object
-        headers.addAll(HttpHeaders.LINK, linksArray);
+        headers.addAll(HttpHeaders.LINK, template.render(
+                servletRequest.getRequestURI(),
+                servletRequest.getQueryString(),
+                slice));
 
         return headers;
     }
 
     /**
-     * Converts a map of links to an array of link headers.
-     *
-     * @param links A map containing link relations (e.g., self, prev, next) and
-     *              their corresponding URIs.
-     * @return An array of link headers.
+     * Get the total number of elements of a slice, if it was counted.
+     * 
+     * @param slice Slice, Page or CursorSlice object of results.
+     * @return The total number of elements or an empty optional if the total
+     *         was not requested.
      * 
      * @author papook
      */
-    private List<String> buildLinkHeaders(Map<String, String> links) {
-
-        // Convert a map entry to a formatted link header
-        Function<Map.Entry<String, String>, String> entryToFormattedLink = entry -> {
-            String rel = entry.getKey();
-            URI uri = URI.create(entry.getValue());
-            String stringUri = uri.toString();
-            return formatLinkHeader(stringUri, rel);
-        };
-
-        return links.entrySet()
-                .stream()
-                .map(entryToFormattedLink)
-                .toList();
+    public static Optional<Long> getTotalElements(Slice<?> slice) {
+        if (slice instanceof Page<?> page) {
+            return Optional.of(page.getTotalElements());
+        }
+        if (slice instanceof CursorSlice<?> cursorSlice) {
+            return cursorSlice.getTotal();
+        }
+        return Optional.empty();
     }
 
 }
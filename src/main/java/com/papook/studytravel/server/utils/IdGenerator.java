@@ -1,22 +1,137 @@
 package com.papook.studytravel.server.utils;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import com.papook.studytravel.server.errors.IdOutOfRangeException;
+import com.papook.studytravel.server.models.UnusedIdRange;
+import com.papook.studytravel.server.repositories.IdSequenceRepository;
+import com.papook.studytravel.server.repositories.UnusedIdRangeRepository;
+
 /**
  * Responsible for generating unique identifiers for new entities.
  * It keeps track of available IDs and provides methods to
  * generate a new ID and add an ID to the available set.
+ * 
+ * The IDs are reserved in blocks from a persistent sequence, see
+ * {@link #attach(String, long)}, and handed out from memory. Reserving a block
+ * costs one statement, so the IDs continue after a restart and several
+ * instances can share a database. The IDs that were reserved but not used are
+ * stored when the instance stops and are taken over by the next start. The IDs
+ * of deleted entities are not reused, and the sequence is never rewound, so an
+ * ID is never handed out by two instances. Without a sequence, the blocks are
+ * reserved in memory.
+ * 
+ * The IDs used with a specific ID are kept in a {@link CompactLongSet}, so
+ * they take a few bits per ID instead of a boxed entry, and a range of used IDs
+ * is skipped at once.
+ * 
+ * The generator is called concurrently by the request threads, so it is
+ * thread-safe without locking: IDs are taken from the current block with an
+ * atomic counter, and the freed IDs are an immutable list of ranges that is
+ * replaced with compare-and-set. Only reserving the next block is
+ * synchronized, and the set of used IDs is locked while it is not empty, i.e.
+ * only after an entity was created with PUT ahead of the counter.
+ * 
+ * Reserving a block takes a connection of the pool while the other threads
+ * that need an ID wait for the block. The IDs must therefore be generated, and
+ * marked as used, before the transaction that stores the entity starts, so
+ * the waiting threads do not hold all connections of the pool.
  */
 @Component
 @Scope("prototype")
 public class IdGenerator {
-    private Long nextId = 1L;
-    private Set<Long> availableIds = new HashSet<>();
-    private Set<Long> usedIds = new HashSet<>();
+    /**
+     * The number of IDs reserved at once if not configured.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    /**
+     * The largest ID that can be marked as used if not configured, the largest
+     * integer that JavaScript clients read exactly.
+     */
+    public static final long DEFAULT_MAX_ID = (1L << 53) - 1;
+
+    @Autowired(required = false)
+    private IdSequenceRepository sequenceRepository;
+
+    @Autowired(required = false)
+    private UnusedIdRangeRepository unusedIdRangeRepository;
+
+    @Value("${studytravel.id.block-size:" + DEFAULT_BLOCK_SIZE + "}")
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+    @Value("${studytravel.id.max:" + DEFAULT_MAX_ID + "}")
+    private long maxId = DEFAULT_MAX_ID;
+
+    // The persistent sequence, or null if the blocks are reserved in memory
+    private volatile String sequenceName;
+    private final AtomicLong memorySequence = new AtomicLong(1L);
+    private final AtomicReference<IdBlock> block = new AtomicReference<>(IdBlock.empty());
+
+    private final AtomicReference<FreeIds> availableIds = new AtomicReference<>(FreeIds.EMPTY);
+
+    // Guarded by its own lock. The flag is only changed with the lock held and
+    // lets the IDs be generated without locking while the set is empty.
+    private final CompactLongSet usedIds = new CompactLongSet();
+    private volatile boolean hasUsedIds;
+
+    /**
+     * Reserves the IDs from the given persistent sequence from now on. The
+     * sequence is created if it does not exist. The unused IDs stored by
+     * stopped instances are taken over and reused first.
+     *
+     * @param sequenceName The name of the sequence.
+     * @param minNextValue The lowest ID the sequence may reserve, e.g. the
+     *                     highest ID stored in the database plus one.
+     */
+    public void attach(String sequenceName, long minNextValue) {
+        sequenceRepository.advanceTo(sequenceName, minNextValue);
+
+        synchronized (this) {
+            this.sequenceName = sequenceName;
+            block.set(IdBlock.empty());
+        }
+
+        List<Object[]> unusedRanges = unusedIdRangeRepository.claimUnusedRanges(sequenceName);
+        availableIds.updateAndGet(free -> free.with(ids -> {
+            for (Object[] range : unusedRanges) {
+                ids.addRange((Long) range[0], (Long) range[1]);
+            }
+        }));
+    }
+
+    /**
+     * Stores the IDs that were reserved but not used, so that they are taken
+     * over by the next start. Called when the instance stops. Does nothing
+     * without a persistent sequence.
+     */
+    public void release() {
+        if (sequenceName == null) {
+            return;
+        }
+
+        CompactLongSet unusedIds = new CompactLongSet();
+        availableIds.getAndSet(FreeIds.EMPTY).forEachRange(unusedIds::addRange);
+
+        IdBlock current = block.getAndSet(IdBlock.empty());
+        unusedIds.addRange(current.position(), current.end() - 1);
+        synchronized (usedIds) {
+            usedIds.forEachRange(unusedIds::removeRange);
+        }
+
+        List<UnusedIdRange> ranges = new ArrayList<>();
+        unusedIds.forEachRange((first, last) -> ranges.add(new UnusedIdRange(null, sequenceName, first, last)));
+        unusedIdRangeRepository.saveAll(ranges);
+    }
 
     /**
      * Generates a unique identifier for a new entity.
@@ -24,30 +139,64 @@ public class IdGenerator {
      * @return A unique identifier of type Long.
      */
     public long nextId() {
-        if (!availableIds.isEmpty()) {
-            Long id = availableIds.iterator().next();
-            availableIds.remove(id);
-            return id;
+        while (true) {
+            FreeIds free = availableIds.get();
+            if (free.isEmpty()) {
+                return nextIdFromBlock();
+            }
+
+            // Reuse the lowest freed ID, unless another thread took it first
+            if (availableIds.compareAndSet(free, free.poll())) {
+                return free.first();
+            }
         }
+    }
 
-        while (usedIds.contains(nextId)) {
-            usedIds.remove(nextId);
-            nextId++;
+    /**
+     * Generates unique identifiers for several new entities at once.
+     * 
+     * With a persistent sequence, the IDs are reserved as one range with a
+     * single statement, however many blocks they span. The range lies after
+     * all blocks and IDs used with a specific ID, so none of its IDs has to be
+     * skipped. Without a sequence, the freed and used IDs are skipped one by
+     * one.
+     *
+     * @param count The number of identifiers to generate.
+     * @return An array of unique identifiers.
+     */
+    public long[] nextIds(int count) {
+        long[] ids = new long[count];
+        String sequence = sequenceName;
+        if (sequence == null || count <= 1) {
+            for (int i = 0; i < count; i++) {
+                ids[i] = nextId();
+            }
+            return ids;
         }
 
-        usedIds.add(nextId);
-        return nextId;
+        long first = sequenceRepository.reserveBlock(sequence, count) - count;
+        for (int i = 0; i < count; i++) {
+            ids[i] = first + i;
+        }
+        return ids;
     }
 
     /**
      * Adds an ID to the set of available IDs
      * when deleting an entity.
      * This ID can be reused by the next entity.
+     * 
+     * Does nothing with a persistent sequence, as another instance may not
+     * know that the entity was deleted and the ID is handed out only once.
      *
      * @param id The ID to be added.
      */
     public void markIdAvailable(Long id) {
-        availableIds.add(id);
+        if (sequenceName != null) {
+            return;
+        }
+
+        availableIds.updateAndGet(free -> free.with(ids -> ids.add(id)));
     }
 
     /**
@@ -55,23 +204,210 @@ public class IdGenerator {
      * when creating a new entity using a specific ID
      * and PUT method.
      * 
+     * With a persistent sequence, an ID after the current block may be reserved
+     * by any instance, so the sequence is advanced past it instead. The IDs
+     * skipped this way are not used. The ID is therefore limited to the
+     * maximum ID, so the sequence is never advanced to its end.
+     * 
      * @param id The ID to be marked as used.
+     * @throws IdOutOfRangeException If the ID is larger than the maximum ID.
      */
     public void markIdUsed(Long id) {
-        if (availableIds.contains(id)) {
-            availableIds.remove(id);
+        if (id > maxId) {
+            throw new IdOutOfRangeException();
+        }
+
+        if (!availableIds.get().isEmpty()) {
+            availableIds.updateAndGet(free -> free.with(ids -> ids.remove(id)));
+        }
+
+        IdBlock current = block.get();
+        if (id < current.position()) {
+            // IDs below the counter are never generated again
+            return;
+        }
+
+        if (id < current.end() || sequenceName == null) {
+            addUsedId(id);
+            return;
+        }
+
+        synchronized (this) {
+            sequenceRepository.advanceTo(sequenceName, id + 1);
+            // The next block may have been reserved in the meantime
+            if (block.get().contains(id)) {
+                addUsedId(id);
+            }
         }
-        usedIds.add(id);
     }
 
     /**
-     * Resets the ID generator.
+     * Resets the ID generator when all entities were deleted.
      * Clears all available and used IDs.
-     * Sets the next ID to 1.
+     * Without a persistent sequence, sets the next ID to 1. IDs generated
+     * concurrently with the reset may be generated again.
+     * 
+     * A persistent sequence is shared with other instances and is not
+     * rewound, so the IDs continue after the current block.
      */
     public void reset() {
-        availableIds.clear();
-        usedIds.clear();
-        nextId = 1L;
+        availableIds.set(FreeIds.EMPTY);
+        synchronized (usedIds) {
+            usedIds.clear();
+            hasUsedIds = false;
+        }
+
+        synchronized (this) {
+            if (sequenceName == null) {
+                memorySequence.set(1L);
+                block.set(IdBlock.empty());
+            }
+        }
+    }
+
+    private long nextIdFromBlock() {
+        while (true) {
+            IdBlock current = block.get();
+            long id = current.next().getAndIncrement();
+            if (id >= current.end()) {
+                // The block is used up, only one thread reserves the next one
+                synchronized (this) {
+                    if (block.get() == current) {
+                        block.set(reserveBlock());
+                    }
+                }
+            } else if (!hasUsedIds || !skipUsedIds(current, id)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Skips the given ID if it was already used with a specific ID, together
+     * with the following used IDs of the block.
+     *
+     * @return True if the ID was used and must not be generated.
+     */
+    private boolean skipUsedIds(IdBlock current, long id) {
+        synchronized (usedIds) {
+            Long skipEnd = usedIds.runEnd(id, current.end() - 1);
+            if (skipEnd == null) {
+                return false;
+            }
+            usedIds.remove(id);
+
+            // Without a persistent sequence the used IDs may continue after the
+            // block. Unless the next block was reserved already, the next block
+            // starts after them instead of skipping them block by block.
+            if (skipEnd == current.end() - 1 && sequenceName == null) {
+                Long usedEnd = usedIds.runEnd(current.end(), Long.MAX_VALUE - 1);
+                if (usedEnd != null
+                        && memorySequence.compareAndSet(current.end(), usedEnd + 1)) {
+                    usedIds.removeRange(current.end(), usedEnd);
+                }
+            }
+
+            // Move the counter past the rest of the used IDs of the block. The
+            // IDs taken by other threads in the meantime are skipped by those
+            // threads.
+            long skipFrom = current.next().getAndAccumulate(skipEnd + 1, Math::max);
+            usedIds.removeRange(skipFrom, skipEnd);
+
+            hasUsedIds = !usedIds.isEmpty();
+            return true;
+        }
+    }
+
+    private void addUsedId(long id) {
+        synchronized (usedIds) {
+            usedIds.add(id);
+            hasUsedIds = true;
+        }
+    }
+
+    private IdBlock reserveBlock() {
+        long end = sequenceName == null
+                ? memorySequence.addAndGet(blockSize)
+                : sequenceRepository.reserveBlock(sequenceName, blockSize);
+        return new IdBlock(new AtomicLong(end - blockSize), end);
+    }
+
+    /**
+     * A block of reserved IDs. The IDs from {@code next} up to, but excluding,
+     * {@code end} have not been handed out yet.
+     */
+    private record IdBlock(AtomicLong next, long end) {
+        static IdBlock empty() {
+            return new IdBlock(new AtomicLong(), 0);
+        }
+
+        /**
+         * Get the next ID of the block. Threads that found the block used up
+         * may have moved the counter past the end.
+         */
+        long position() {
+            return Math.min(next.get(), end);
+        }
+
+        boolean contains(long id) {
+            return id >= position() && id < end;
+        }
+    }
+
+    /**
+     * The freed IDs as sorted, disjoint ranges from {@code firsts} to
+     * {@code lasts}, both inclusive. The ranges before {@code index} are used
+     * up, and the range at {@code index} continues at {@code first}.
+     * 
+     * It is immutable, so it is read without locking and replaced with
+     * compare-and-set. Taking an ID shares the arrays, while adding or removing
+     * an ID copies them, which is rare compared to generating IDs.
+     */
+    private record FreeIds(long[] firsts, long[] lasts, int index, long first) {
+        static final FreeIds EMPTY = new FreeIds(new long[0], new long[0], 0, 0);
+
+        boolean isEmpty() {
+            return index == firsts.length;
+        }
+
+        /**
+         * Get the freed IDs without the first one, which is {@link #first()}.
+         */
+        FreeIds poll() {
+            if (first < lasts[index]) {
+                return new FreeIds(firsts, lasts, index, first + 1);
+            }
+            int next = index + 1;
+            return next == firsts.length ? EMPTY : new FreeIds(firsts, lasts, next, firsts[next]);
+        }
+
+        /**
+         * Get a copy of the freed IDs changed by the given modification.
+         */
+        FreeIds with(Consumer<CompactLongSet> modification) {
+            CompactLongSet ids = new CompactLongSet();
+            forEachRange(ids::addRange);
+            modification.accept(ids);
+
+            List<long[]> ranges = new ArrayList<>();
+            ids.forEachRange((rangeFirst, rangeLast) -> ranges.add(new long[] { rangeFirst, rangeLast }));
+            if (ranges.isEmpty()) {
+                return EMPTY;
+            }
+
+            long[] newFirsts = new long[ranges.size()];
+            long[] newLasts = new long[ranges.size()];
+            for (int i = 0; i < ranges.size(); i++) {
+                newFirsts[i] = ranges.get(i)[0];
+                newLasts[i] = ranges.get(i)[1];
+            }
+            return new FreeIds(newFirsts, newLasts, 0, newFirsts[0]);
+        }
+
+        void forEachRange(CompactLongSet.RangeConsumer consumer) {
+            for (int i = index; i < firsts.length; i++) {
+                consumer.accept(i == index ? first : firsts[i], lasts[i]);
+            }
+        }
     }
 }
@@ -0,0 +1,91 @@
+package com.papook.studytravel.server.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out the version stamps of the stored resources and formats the ETags
+ * derived from them, so a conditional request can be answered before any
+ * resource is loaded.
+ *
+ * The stamps are based on the system time in microseconds and increase with
+ * every call, so a resource that is deleted and created again with the same
+ * ID, also after a restart, gets a different ETag. The ETag of a collection is
+ * formatted from its version counted in the database, see
+ * {@link CollectionVersions}, so it is the same on every server sharing the
+ * database.
+ *
+ * @author papook
+ */
+@Component
+public class ModificationClock {
+    private final AtomicLong lastStamp = new AtomicLong();
+
+    /**
+     * @return A new version stamp, larger than all stamps returned before.
+     */
+    public long next() {
+        long now = System.currentTimeMillis() * 1000;
+        return lastStamp.updateAndGet(last -> Math.max(last + 1, now));
+    }
+
+    /**
+     * Formats a version stamp, or the version of a collection, as an ETag.
+     *
+     * @param version The version stamp.
+     * @return The quoted ETag.
+     */
+    public static String eTag(long version) {
+        return "\"" + Long.toHexString(version) + "\"";
+    }
+
+    /**
+     * Formats the version of a loaded resource as an ETag. A resource stored
+     * before the version column was introduced has the version 0, like in the
+     * queries of the versions.
+     *
+     * @param version The version of the resource, or null.
+     * @return The quoted ETag.
+     */
+    public static String eTag(Long version) {
+        return eTag(version == null ? 0L : version.longValue());
+    }
+
+    /**
+     * Parses the ETags of an If-Match header into version stamps. The header
+     * is compared strongly, so weak ETags and ETags that are not version stamps
+     * never match and are skipped. The suffix of a representation, see
+     * {@link RepresentationNegotiator}, is ignored, since every representation
+     * of a version is written from the same stored resource.
+     *
+     * @param ifMatch The value of the If-Match header.
+     * @return The version stamps of the listed ETags, or null if the header is
+     *         {@code *} and any version matches.
+     */
+    public static List<Long> parseVersions(String ifMatch) {
+        List<Long> versions = new ArrayList<>(1);
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+                continue;
+            }
+            String stamp = tag.substring(1, tag.length() - 1);
+            int suffix = stamp.lastIndexOf('-');
+            if (suffix >= 0 && RepresentationNegotiator.isSuffix(stamp.substring(suffix))) {
+                stamp = stamp.substring(0, suffix);
+            }
+            try {
+                versions.add(Long.parseUnsignedLong(stamp, 16));
+            } catch (NumberFormatException e) {
+                // Not one of our ETags, so it matches no version
+            }
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,57 @@
+package com.papook.studytravel.server.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes an export as newline-delimited JSON, one object per line. The objects
+ * are written to the response while they are read from the database, and the
+ * response is only flushed when the buffer of the JSON generator is full.
+ *
+ * @author papook
+ */
+public final class NdjsonExport {
+
+    private NdjsonExport() {
+    }
+
+    /**
+     * Creates the body of an export response.
+     *
+     * @param <T>          The type of the exported objects.
+     * @param objectMapper The object mapper used to write the objects.
+     * @param export       Passes every exported object to the given consumer.
+     * @return The response body writing the objects as they are exported.
+     */
+    public static <T> StreamingResponseBody body(ObjectMapper objectMapper, Consumer<Consumer<T>> export) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                // The lines are separated here instead of by the generator
+                generator.setRootValueSeparator(null);
+
+                try {
+                    export.accept(value -> {
+                        try {
+                            writer.writeValue(generator, value);
+                            generator.writeRaw('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+    }
+}
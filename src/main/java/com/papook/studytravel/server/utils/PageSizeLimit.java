@@ -0,0 +1,38 @@
+package com.papook.studytravel.server.utils;
+
+import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the page size requested by a client. Larger pages save round trips
+ * when a client reads a whole collection, but every page is loaded and
+ * serialized at once, so the size is capped by the server.
+ *
+ * @author papook
+ */
+@Component
+public class PageSizeLimit {
+    /**
+     * The largest page size if not configured.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    @Value("${studytravel.page.max-size:" + DEFAULT_MAX_SIZE + "}")
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * Resolves the page size requested by a client.
+     *
+     * @param requested The requested page size, or null for the default size.
+     * @return The default page size if none was requested, otherwise the
+     *         requested size limited to between 1 and the maximum size.
+     */
+    public int resolve(Integer requested) {
+        if (requested == null) {
+            return Math.min(PAGE_SIZE, maxSize);
+        }
+        return Math.max(1, Math.min(requested, maxSize));
+    }
+}
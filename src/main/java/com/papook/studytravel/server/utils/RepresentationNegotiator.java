@@ -0,0 +1,116 @@
+package com.papook.studytravel.server.utils;
+
+import static com.papook.studytravel.server.MessageConverterConfiguration.APPLICATION_SMILE;
+import static com.papook.studytravel.server.MessageConverterConfiguration.REPRESENTATIONS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Selects the representation of a resource, JSON, CBOR or Smile, before the
+ * resource is loaded, so the ETag of a conditional request can be compared
+ * right away. The representation is selected from the Accept header like the
+ * message converters select it when the body is written.
+ *
+ * The representations of one version are different bytes, so each gets its
+ * own ETag: the ETag of the version with the suffix of the representation,
+ * e.g. {@code "5f2a-cbor"}. JSON is the default representation and keeps the
+ * plain ETag. Every response also carries {@code Vary: Accept}, so shared
+ * caches keep the representations apart.
+ *
+ * @author papook
+ */
+@Component
+public class RepresentationNegotiator {
+    // The suffixes of the ETags of the representations, see
+    // MessageConverterConfiguration.REPRESENTATIONS
+    private static final Map<MediaType, String> SUFFIXES = Map.of(
+            MediaType.APPLICATION_JSON, "",
+            MediaType.APPLICATION_CBOR, "-cbor",
+            APPLICATION_SMILE, "-smile");
+
+    @Autowired
+    private ContentNegotiationManager contentNegotiationManager;
+
+    /**
+     * Derives the ETag of the representation requested by the Accept header
+     * and adds {@code Vary: Accept} to the response.
+     *
+     * @param request The request of the resource.
+     * @param eTag    The quoted ETag of the version of the resource.
+     * @return The quoted ETag of the representation.
+     *
+     * @author papook
+     */
+    public String eTag(NativeWebRequest request, String eTag) {
+        HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+        if (response != null && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+
+        String suffix = SUFFIXES.get(negotiate(request));
+        if (suffix.isEmpty()) {
+            return eTag;
+        }
+        return eTag.substring(0, eTag.length() - 1) + suffix + "\"";
+    }
+
+    /**
+     * Checks whether a part of an ETag is the suffix of a representation.
+     *
+     * @param suffix The part of the ETag after the version, including the dash.
+     * @return True if the suffix belongs to a representation.
+     *
+     * @author papook
+     */
+    public static boolean isSuffix(String suffix) {
+        return !suffix.isEmpty() && SUFFIXES.containsValue(suffix);
+    }
+
+    /**
+     * Selects the representation like
+     * {@code AbstractMessageConverterMethodProcessor}: the most specific
+     * combination of an accepted and a producible media type wins, with the
+     * converters in their order. If no representation is acceptable, the
+     * request fails when the body is written, so the default is returned.
+     */
+    private MediaType negotiate(NativeWebRequest request) {
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = contentNegotiationManager.resolveMediaTypes(request);
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            return REPRESENTATIONS.get(0);
+        }
+
+        List<MediaType> compatibleTypes = new ArrayList<>();
+        for (MediaType acceptedType : acceptedTypes) {
+            for (MediaType representation : REPRESENTATIONS) {
+                if (acceptedType.isCompatibleWith(representation)) {
+                    compatibleTypes.add(representation.copyQualityValue(acceptedType));
+                }
+            }
+        }
+        MimeTypeUtils.sortBySpecificity(compatibleTypes);
+
+        for (MediaType compatibleType : compatibleTypes) {
+            for (MediaType representation : REPRESENTATIONS) {
+                if (representation.equalsTypeAndSubtype(compatibleType)) {
+                    return representation;
+                }
+            }
+        }
+        return REPRESENTATIONS.get(0);
+    }
+}
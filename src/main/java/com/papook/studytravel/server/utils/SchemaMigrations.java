@@ -0,0 +1,48 @@
+package com.papook.studytravel.server.utils;
+
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.papook.studytravel.server.models.SchemaMigration;
+import com.papook.studytravel.server.repositories.SchemaMigrationRepository;
+
+/**
+ * Applies the changes of the schema that Hibernate does not make itself, e.g.
+ * dropping a column that is no longer mapped. Every change is recorded in the
+ * database once it is applied, so it is skipped on the next start, also by
+ * the other server instances sharing the database.
+ *
+ * The changes must be idempotent: two instances starting at the same time on
+ * a database without the record may both apply a change.
+ *
+ * @author papook
+ */
+@Component
+public class SchemaMigrations {
+
+    @Autowired
+    private SchemaMigrationRepository repository;
+
+    /**
+     * Applies a change of the schema unless it was already applied to the
+     * database.
+     *
+     * @param name      The unique name of the change.
+     * @param migration Applies the change.
+     * @return True if the change was applied, false if it was skipped.
+     *
+     * @author papook
+     */
+    public boolean applyOnce(String name, Runnable migration) {
+        if (repository.existsById(name)) {
+            return false;
+        }
+        migration.run();
+        // Recorded after the change, so a failed change is tried again on the
+        // next start
+        repository.save(new SchemaMigration(name, Instant.now()));
+        return true;
+    }
+}
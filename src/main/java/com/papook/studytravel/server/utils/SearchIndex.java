@@ -0,0 +1,207 @@
+package com.papook.studytravel.server.utils;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+
+/**
+ * Holds the trigram indexes of the searchable attributes: the name and country
+ * of universities and the name of study modules. The services keep the indexes
+ * in sync with the database and use them to narrow the collection queries to a
+ * set of candidate IDs.
+ *
+ * The indexes only see the writes of this instance, so they are only used if
+ * it is the single writer of the database, which is configured with
+ * {@code studytravel.search.index.enabled}. Otherwise nothing is indexed and
+ * the queries always filter the normalized columns.
+ *
+ * Within a transaction, the indexes are changed after it committed, like the
+ * {@link EntityCache} is invalidated, so a rolled back write leaves them
+ * unchanged and a row is never missed by the searches.
+ *
+ * @author papook
+ */
+@Component
+public class SearchIndex {
+    /**
+     * The maximum number of candidate IDs passed to a query. With more
+     * candidates, the search string is not selective enough and the query
+     * filters without the index.
+     */
+    public static final int MAX_CANDIDATES = 1000;
+
+    @Value("${studytravel.search.index.enabled:false}")
+    private boolean enabled;
+
+    private final TrigramIndex universityNames = new TrigramIndex();
+    private final TrigramIndex universityCountries = new TrigramIndex();
+    private final TrigramIndex moduleNames = new TrigramIndex();
+
+    /**
+     * @return Whether the indexes are kept, i.e. this instance is the single
+     *         writer of the database.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds or replaces the searchable attributes of a university.
+     * 
+     * @param university The university with its ID assigned.
+     */
+    public void indexUniversity(University university) {
+        indexUniversity(university.getId(), university.getName(), university.getCountry());
+    }
+
+    /**
+     * Adds or replaces the searchable attributes of a university.
+     * 
+     * @param id      The ID of the university.
+     * @param name    The name of the university.
+     * @param country The country of the university.
+     */
+    public void indexUniversity(Long id, String name, String country) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            universityNames.put(id, name);
+            universityCountries.put(id, country);
+        });
+    }
+
+    /**
+     * Removes a university from the index.
+     * 
+     * @param id The ID of the university.
+     */
+    public void removeUniversity(Long id) {
+        afterCommit(() -> {
+            universityNames.remove(id);
+            universityCountries.remove(id);
+        });
+    }
+
+    /**
+     * Removes all universities from the index.
+     */
+    public void clearUniversities() {
+        afterCommit(() -> {
+            universityNames.clear();
+            universityCountries.clear();
+        });
+    }
+
+    /**
+     * Adds or replaces the searchable attributes of a study module.
+     * 
+     * @param module The study module with its ID assigned.
+     */
+    public void indexModule(StudyModule module) {
+        indexModule(module.getId(), module.getName());
+    }
+
+    /**
+     * Adds or replaces the searchable attributes of a study module.
+     * 
+     * @param id   The ID of the study module.
+     * @param name The name of the study module.
+     */
+    public void indexModule(Long id, String name) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> moduleNames.put(id, name));
+    }
+
+    /**
+     * Removes a study module from the index.
+     * 
+     * @param id The ID of the study module.
+     */
+    public void removeModule(Long id) {
+        afterCommit(() -> moduleNames.remove(id));
+    }
+
+    /**
+     * Removes study modules from the index.
+     * 
+     * @param ids The IDs of the study modules.
+     */
+    public void removeModules(Collection<Long> ids) {
+        afterCommit(() -> moduleNames.removeAll(ids));
+    }
+
+    /**
+     * Removes all study modules from the index.
+     */
+    public void clearModules() {
+        afterCommit(moduleNames::clear);
+    }
+
+    /**
+     * Finds the IDs of the universities that may match the name and country
+     * filters.
+     * 
+     * @param name    The university name to search for.
+     * @param country The country name to search for.
+     * @return The candidate IDs, or an empty optional if the filters are too short
+     *         or not selective enough to narrow the query.
+     */
+    public Optional<Set<Long>> findUniversityCandidates(String name, String country) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Optional<Set<Long>> nameCandidates = universityNames.findCandidates(name);
+        Optional<Set<Long>> countryCandidates = universityCountries.findCandidates(country);
+
+        if (nameCandidates.isPresent() && countryCandidates.isPresent()) {
+            Set<Long> candidates = new HashSet<>(nameCandidates.get());
+            candidates.retainAll(countryCandidates.get());
+            return limit(Optional.of(candidates));
+        }
+
+        return limit(nameCandidates.or(() -> countryCandidates));
+    }
+
+    /**
+     * Finds the IDs of the study modules that may match the name filter.
+     * 
+     * @param name The study module name to search for.
+     * @return The candidate IDs, or an empty optional if the filter is too short
+     *         or not selective enough to narrow the query.
+     */
+    public Optional<Set<Long>> findModuleCandidates(String name) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return limit(moduleNames.findCandidates(name));
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private static Optional<Set<Long>> limit(Optional<Set<Long>> candidates) {
+        return candidates.filter(ids -> ids.size() <= MAX_CANDIDATES);
+    }
+}
@@ -0,0 +1,38 @@
+package com.papook.studytravel.server.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes text for case- and accent-insensitive searching. The normalized
+ * text is stored in the search columns of the entities, so the database can
+ * compare it without folding the case of every row.
+ *
+ * @author papook
+ */
+public final class SearchNormalizer {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchNormalizer() {
+    }
+
+    /**
+     * Normalizes the given text. The text is decomposed, so that accents become
+     * separate combining marks, which are removed. The rest is lowercased.
+     * For example, "Université de Genève" becomes "universite de geneve".
+     *
+     * @param text The text to normalize.
+     * @return The normalized text, or an empty string if the text is null.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        return COMBINING_MARKS.matcher(decomposed)
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+}
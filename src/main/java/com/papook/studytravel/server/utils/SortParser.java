@@ -0,0 +1,51 @@
+package com.papook.studytravel.server.utils;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Parses the sort parameter of the collection endpoints.
+ *
+ * @author papook
+ */
+public final class SortParser {
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Order.asc("id"));
+
+    private SortParser() {
+    }
+
+    /**
+     * Parses a sort string of the form {@code field_direction}, e.g.
+     * {@code name_asc}. The field must be a stored property of the given type,
+     * properties rendered from other fields like the links cannot be sorted.
+     *
+     * @param sort The sort string.
+     * @param type The type of the sorted entities.
+     * @return The sort object, or sorting by ID in ascending order if the sort
+     *         string is invalid.
+     */
+    public static Sort parse(String sort, Class<?> type) {
+        int fieldEnd = sort.indexOf('_');
+        if (fieldEnd < 0) {
+            return DEFAULT_SORT;
+        }
+
+        // Anything after a second underscore is ignored
+        int directionEnd = sort.indexOf('_', fieldEnd + 1);
+        String sortField = sort.substring(0, fieldEnd);
+        String sortDirection = sort.substring(fieldEnd + 1, directionEnd < 0 ? sort.length() : directionEnd);
+
+        try {
+            // Check the sort field here instead of failing the query
+            PropertyPath.from(sortField, type);
+            if (ReflectionUtils.findField(type, sortField) == null) {
+                return DEFAULT_SORT;
+            }
+            return Sort.by(Sort.Direction.fromString(sortDirection), sortField);
+        } catch (PropertyReferenceException | IllegalArgumentException e) {
+            return DEFAULT_SORT;
+        }
+    }
+}
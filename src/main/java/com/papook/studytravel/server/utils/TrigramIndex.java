@@ -0,0 +1,142 @@
+package com.papook.studytravel.server.utils;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory index of the trigrams (substrings of three characters) of a text
+ * attribute. It finds the IDs of all entities whose text may contain a search
+ * string without scanning every entity.
+ * 
+ * The texts are normalized like the search columns, see
+ * {@link SearchNormalizer}. The index returns a superset of the matching IDs, so
+ * the database query still has to apply the actual filter.
+ * Reads are lock-free, changes are synchronized.
+ *
+ * @author papook
+ */
+public class TrigramIndex {
+    /**
+     * The length of the indexed substrings. Shorter search strings cannot be
+     * looked up.
+     */
+    public static final int GRAM_LENGTH = 3;
+
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private final Map<Long, String> texts = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the text of an entity to the index. A previously indexed text of the
+     * same entity is replaced.
+     * 
+     * @param id   The ID of the entity.
+     * @param text The text to index.
+     */
+    public synchronized void put(Long id, String text) {
+        String normalizedText = SearchNormalizer.normalize(text);
+        String previousText = texts.put(id, normalizedText);
+
+        if (previousText != null) {
+            if (previousText.equals(normalizedText)) {
+                return;
+            }
+            removeTrigrams(id, previousText);
+        }
+
+        for (String trigram : trigrams(normalizedText)) {
+            postings.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    /**
+     * Removes an entity from the index.
+     * 
+     * @param id The ID of the entity.
+     */
+    public synchronized void remove(Long id) {
+        String previousText = texts.remove(id);
+        if (previousText != null) {
+            removeTrigrams(id, previousText);
+        }
+    }
+
+    /**
+     * Removes several entities from the index.
+     * 
+     * @param ids The IDs of the entities.
+     */
+    public synchronized void removeAll(Collection<Long> ids) {
+        ids.forEach(this::remove);
+    }
+
+    /**
+     * Removes all entities from the index.
+     */
+    public synchronized void clear() {
+        postings.clear();
+        texts.clear();
+    }
+
+    /**
+     * Finds the IDs of the entities whose text contains all trigrams of the
+     * search string.
+     * 
+     * @param search The search string.
+     * @return The candidate IDs, or an empty optional if the search string is too
+     *         short to use the index.
+     */
+    public Optional<Set<Long>> findCandidates(String search) {
+        Set<String> searchTrigrams = trigrams(SearchNormalizer.normalize(search));
+        if (searchTrigrams.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Intersect the smallest posting lists first
+        List<Set<Long>> candidateSets = searchTrigrams.stream()
+                .map(trigram -> postings.getOrDefault(trigram, Set.of()))
+                .sorted(Comparator.comparingInt(Set::size))
+                .toList();
+
+        Set<Long> candidates = new HashSet<>(candidateSets.get(0));
+        for (int i = 1; i < candidateSets.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(candidateSets.get(i));
+        }
+
+        return Optional.of(candidates);
+    }
+
+    /**
+     * Get the number of indexed entities.
+     * 
+     * @return The number of indexed entities.
+     */
+    public int size() {
+        return texts.size();
+    }
+
+    private void removeTrigrams(Long id, String text) {
+        for (String trigram : trigrams(text)) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return trigrams;
+    }
+}
@@ -214,7 +214,9 @@ public class StudyTravelApplicationIntegrationTests {
     @Test
     @Order(6)
     void createUniversityWithPutRequest() {
-        String universityJson = generateSampleUniversityJsonWithId(1);
+        // The deleted university is created again with its ID
+        long id = getSelfId();
+        String universityJson = generateSampleUniversityJsonWithId(id);
 
         request = HttpRequest.newBuilder()
                 .uri(URI.create(selfLink))
@@ -235,7 +237,7 @@ public class StudyTravelApplicationIntegrationTests {
 
             response = client.send(request, BodyHandlers.ofString());
             assertThat(response.statusCode()).isEqualTo(200);
-            assertThat(response.body()).contains("University 1");
+            assertThat(response.body()).contains("University " + id);
         } catch (IOException e) {
             fail("Error creating university with PUT request.");
         } catch (InterruptedException e) {
@@ -367,7 +369,9 @@ public class StudyTravelApplicationIntegrationTests {
     @Test
     @Order(11)
     void createStudyModuleWithPutRequest() {
-        String studyModuleJson = generateSampleStudyModuleJsonWithId(1);
+        // The deleted study module is created again with its ID
+        long id = getSelfId();
+        String studyModuleJson = generateSampleStudyModuleJsonWithId(id);
 
         request = HttpRequest.newBuilder()
                 .uri(URI.create(selfLink))
@@ -388,7 +392,7 @@ public class StudyTravelApplicationIntegrationTests {
 
             response = client.send(request, BodyHandlers.ofString());
             assertThat(response.statusCode()).isEqualTo(200);
-            assertThat(response.body()).contains("Study Module 1");
+            assertThat(response.body()).contains("Study Module " + id);
         } catch (IOException e) {
             fail("Error creating study module with PUT request.");
         } catch (InterruptedException e) {
@@ -925,7 +929,7 @@ public class StudyTravelApplicationIntegrationTests {
         }
     }
 
-    private String generateSampleStudyModuleJsonWithId(int id) {
+    private String generateSampleStudyModuleJsonWithId(long id) {
         String semester = id % 2 == 0 ? "spring" : "fall";
 
         return "{" +
@@ -946,7 +950,7 @@ public class StudyTravelApplicationIntegrationTests {
                 "}";
     }
 
-    private static String generateSampleUniversityJsonWithId(int id) {
+    private static String generateSampleUniversityJsonWithId(long id) {
         return "{" +
                 "\"id\":" + id + "," +
                 "\"name\":\"University " + id + "\"," +
@@ -986,6 +990,10 @@ public class StudyTravelApplicationIntegrationTests {
                 .build();
     }
 
+    private static long getSelfId() {
+        return Long.parseLong(selfLink.substring(selfLink.lastIndexOf('/') + 1));
+    }
+
     private String getLinkFromResponseHeaders(String rel) {
 
         List<String> linkHeaders = response.headers().allValues("Link");
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -15,6 +16,8 @@ import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.papook.studytravel.client.utils.WireFormat;
+
 @TestMethodOrder(OrderAnnotation.class)
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class ClientTests {
@@ -101,10 +104,11 @@ public class ClientTests {
     public void testUpdateUniversity() {
         String json = generateSampleUniversityJsonWithoutId(1);
         client.createUniversity(json);
+        long id = getCreatedId();
         client.getCreatedResource();
 
         URI expectedUri = URI.create(getLinkFromResponseHeaders("putUpdate"));
-        client.updateResource(generateSampleUniversityJsonWithId(1));
+        client.updateResource(generateSampleUniversityJsonWithId(id));
         URI actualUri = client.request.uri();
 
         // Compare the actual URI with the expected URI
@@ -176,10 +180,11 @@ public class ClientTests {
     public void testUpdateStudyModule() {
         String json = generateSampleStudyModuleJsonWithoutId(1);
         client.createStudyModule(json);
+        long id = getCreatedId();
         client.getCreatedResource();
 
         URI expectedUri = URI.create(getLinkFromResponseHeaders("putUpdate"));
-        client.updateResource(generateSampleStudyModuleJsonWithId(1));
+        client.updateResource(generateSampleStudyModuleJsonWithId(id));
         URI actualUri = client.request.uri();
 
         // Compare the actual URI with the expected URI
@@ -214,12 +219,13 @@ public class ClientTests {
         String studyModuleJson = generateSampleStudyModuleJsonWithoutId(number);
         String universityJson = generateSampleUniversityJsonWithoutId(number);
         client.createStudyModule(studyModuleJson);
+        long moduleId = getCreatedId();
         client.createUniversity(universityJson);
         client.getCreatedResource();
 
-        String uri = replacePartInUriTemplate(getLinkFromResponseHeaders("putLinkModule"), "moduleId", number);
+        String uri = replacePartInUriTemplate(getLinkFromResponseHeaders("putLinkModule"), "moduleId", moduleId);
         URI expectedUri = URI.create(uri);
-        client.linkModuleToUniversity(1L);
+        client.linkModuleToUniversity(moduleId);
         URI actualUri = client.request.uri();
 
         // Compare the actual URI with the expected URI
@@ -234,15 +240,17 @@ public class ClientTests {
         String studyModuleJson = generateSampleStudyModuleJsonWithoutId(1);
         String universityJson = generateSampleUniversityJsonWithoutId(1);
         client.createStudyModule(studyModuleJson);
+        long moduleId = getCreatedId();
         client.createUniversity(universityJson);
+        long universityId = getCreatedId();
         client.getCreatedResource();
-        client.linkModuleToUniversity(1L);
+        client.linkModuleToUniversity(moduleId);
         client.getAllUniversities();
-        client.getOneResource(1L);
+        client.getOneResource(universityId);
 
-        String uri = replacePartInUriTemplate(getLinkFromResponseHeaders("delUnlinkModule"), "moduleId", 1);
+        String uri = replacePartInUriTemplate(getLinkFromResponseHeaders("delUnlinkModule"), "moduleId", moduleId);
         URI expectedUri = URI.create(uri);
-        client.unlinkModuleFromUniversity(1L);
+        client.unlinkModuleFromUniversity(moduleId);
         URI actualUri = client.request.uri();
 
         // Compare the actual URI with the expected URI
@@ -464,7 +472,56 @@ public class ClientTests {
         assertThat(client.response.statusCode()).isEqualTo(200);
     }
 
-    private static String generateSampleStudyModuleJsonWithId(int id) {
+    @Test
+    @Order(18)
+    public void testStudyModulePageSize() {
+        client.getDispatcher();
+        URI expectedUri = UriComponentsBuilder
+                .fromUriString(getLinkFromResponseHeaders(getStudyModulesRel))
+                .queryParam("semester", "spring")
+                .queryParam("size", 2)
+                .build()
+                .toUri();
+        client.getAllStudyModules();
+        client.newGetStudyModulesRequest()
+                .filterOnlyBySemester("spring")
+                .setPageSize(2)
+                .send();
+        URI actualUri = client.request.uri();
+
+        // Compare the actual URI with the expected URI
+        assertThat(actualUri).isEqualTo(expectedUri);
+
+        assertThat(client.response.statusCode()).isEqualTo(200);
+        assertThat(client.resourceLinksOnLastFetchedPage).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    @Order(19)
+    public void testBinaryWireFormats() {
+        for (WireFormat wireFormat : List.of(WireFormat.CBOR, WireFormat.SMILE)) {
+            Client binaryClient = new Client(wireFormat);
+            binaryClient.setup();
+
+            binaryClient.createUniversity(generateSampleUniversityJsonWithoutId(1));
+            assertThat(binaryClient.response.statusCode()).isEqualTo(201);
+
+            Map<String, String> university = binaryClient.getCreatedResource();
+            assertThat(binaryClient.response.statusCode()).isEqualTo(200);
+            assertThat(binaryClient.response.headers().firstValue("Content-Type"))
+                    .hasValue(wireFormat.getMediaType());
+            assertThat(university.get("name")).isEqualTo("University 1");
+            assertThat(university.get("springSemesterStart")).isEqualTo("2022-03-01");
+
+            binaryClient.getDispatcher();
+            binaryClient.getAllUniversities();
+            assertThat(binaryClient.response.statusCode()).isEqualTo(200);
+            assertThat(binaryClient.resourceLinksOnLastFetchedPage)
+                    .containsValue(university.get("self"));
+        }
+    }
+
+    private static String generateSampleStudyModuleJsonWithId(long id) {
         String semester = id % 2 == 0 ? "spring" : "fall";
 
         return "{" +
@@ -485,7 +542,7 @@ public class ClientTests {
                 "}";
     }
 
-    private static String generateSampleUniversityJsonWithId(int id) {
+    private static String generateSampleUniversityJsonWithId(long id) {
         return "{" +
                 "\"id\":" + id + "," +
                 "\"name\":\"University " + id + "\"," +
@@ -512,6 +569,11 @@ public class ClientTests {
                 "}";
     }
 
+    private long getCreatedId() {
+        String location = client.response.headers().firstValue("Location").get();
+        return Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+    }
+
     private String getLinkFromResponseHeaders(String rel) {
 
         List<String> linkHeaders = client.response.headers().allValues("Link");
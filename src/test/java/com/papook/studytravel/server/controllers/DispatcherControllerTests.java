@@ -1,5 +1,7 @@
 package com.papook.studytravel.server.controllers;
 
+import static com.papook.studytravel.server.ServerConfiguration.BATCH_SUFFIX;
+import static com.papook.studytravel.server.ServerConfiguration.EXPORT_SUFFIX;
 import static com.papook.studytravel.server.ServerConfiguration.MODULE_ENDPOINT;
 import static com.papook.studytravel.server.ServerConfiguration.UNIVERSITY_ENDPOINT;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -31,10 +33,18 @@ public class DispatcherControllerTests {
                 UNIVERSITY_ENDPOINT, "postCreateUniversity");
         String postCreateModule = HypermediaGenerator.formatLinkHeader(
                 MODULE_ENDPOINT, "postCreateStudyModule");
+        String postCreateUniversitiesBatch = HypermediaGenerator.formatLinkHeader(
+                UNIVERSITY_ENDPOINT + BATCH_SUFFIX, "postCreateUniversitiesBatch");
+        String postCreateModulesBatch = HypermediaGenerator.formatLinkHeader(
+                MODULE_ENDPOINT + BATCH_SUFFIX, "postCreateStudyModulesBatch");
         String deleteAllUniversities = HypermediaGenerator.formatLinkHeader(
                 UNIVERSITY_ENDPOINT, "deleteAllUniversities");
         String deleteAllModules = HypermediaGenerator.formatLinkHeader(
                 MODULE_ENDPOINT, "deleteAllStudyModules");
+        String getUniversitiesExport = HypermediaGenerator.formatLinkHeader(
+                UNIVERSITY_ENDPOINT + EXPORT_SUFFIX, "getUniversitiesExport");
+        String getModulesExport = HypermediaGenerator.formatLinkHeader(
+                MODULE_ENDPOINT + EXPORT_SUFFIX, "getStudyModulesExport");
 
         mockMvc.perform(get("/")).andExpectAll(
                 status().isOk(),
@@ -43,9 +53,28 @@ public class DispatcherControllerTests {
                         getModulesCollection,
                         postCreateUniversity,
                         postCreateModule,
+                        postCreateUniversitiesBatch,
+                        postCreateModulesBatch,
                         deleteAllUniversities,
-                        deleteAllModules),
+                        deleteAllModules,
+                        getUniversitiesExport,
+                        getModulesExport),
+                header().string("Cache-Control", "max-age=3600, public"),
+                header().exists("ETag"),
                 jsonPath("$").doesNotExist(),
                 content().string(""));
     }
+
+    @Test
+    public void testDispatcherNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(get("/").header("If-None-Match", eTag)).andExpectAll(
+                status().isNotModified(),
+                header().string("ETag", eTag),
+                content().string(""));
+    }
 }
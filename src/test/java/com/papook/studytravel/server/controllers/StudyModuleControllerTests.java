@@ -1,10 +1,21 @@
 package com.papook.studytravel.server.controllers;
 
 import static com.papook.studytravel.server.ServerConfiguration.BASE_URI;
+import static com.papook.studytravel.server.ServerConfiguration.BATCH_SUFFIX;
+import static com.papook.studytravel.server.ServerConfiguration.EXPORT_SUFFIX;
 import static com.papook.studytravel.server.ServerConfiguration.MODULE_ENDPOINT;
+import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
+import static com.papook.studytravel.server.ServerConfiguration.TOTAL_COUNT_HEADER;
 import static com.papook.studytravel.server.ServerConfiguration.UNIVERSITY_ENDPOINT;
 import static com.papook.studytravel.server.utils.HypermediaGenerator.formatLinkHeader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -12,28 +23,43 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.papook.studytravel.server.errors.PreconditionFailedException;
+import com.papook.studytravel.server.errors.UniversityNotFoundException;
 import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.StudyModuleSummary;
 import com.papook.studytravel.server.services.StudyModuleService;
+import com.papook.studytravel.server.utils.BatchSizeLimit;
+import com.papook.studytravel.server.utils.CursorSlice;
 import com.papook.studytravel.server.utils.HypermediaGenerator;
+import com.papook.studytravel.server.utils.ModificationClock;
+import com.papook.studytravel.server.utils.RepresentationNegotiator;
 
-@WebMvcTest(StudyModuleController.class)
+@WebMvcTest(controllers = StudyModuleController.class, properties = "studytravel.batch.max-size=2")
+@Import({ RepresentationNegotiator.class, BatchSizeLimit.class })
 public class StudyModuleControllerTests {
 
 	@Autowired
@@ -48,20 +74,98 @@ public class StudyModuleControllerTests {
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	@BeforeEach
+	public void setUp() {
+		when(studyModuleService.getCollectionVersion()).thenReturn(42L);
+		when(studyModuleService.getCollectionVersionOfUniversity(1L)).thenReturn(42L);
+	}
+
 	@Test
 	public void testGetCollection() throws Exception {
 		int studyModuleCount = 5;
-		List<StudyModule> studyModuleList = generateStudyModuleList(studyModuleCount);
-		Page<StudyModule> studyModulesPage = new PageImpl<>(studyModuleList);
+		List<StudyModuleSummary> studyModuleList = generateStudyModuleList(studyModuleCount);
+		CursorSlice<StudyModuleSummary> studyModulesSlice = new CursorSlice<>(
+				studyModuleList, PageRequest.of(0, PAGE_SIZE), null, null, null);
 
-		when(studyModuleService.getModules("", "", 0, "id_asc")).thenReturn(studyModulesPage);
+		when(studyModuleService.scrollModules("", "", null, null, "id_asc", false)).thenReturn(studyModulesSlice);
 
 		String expectedJSON = objectMapper.writeValueAsString(studyModuleList);
 		mockMvc.perform(get(MODULE_ENDPOINT)).andExpectAll(
 				status().isOk(),
 				jsonPath("$.length()").value(studyModuleCount),
 				content().contentType("application/json"),
-				content().json(expectedJSON));
+				content().json(expectedJSON),
+				header().doesNotExist(TOTAL_COUNT_HEADER));
+	}
+
+	@Test
+	public void testGetCollectionByPage() throws Exception {
+		int studyModuleCount = 5;
+		List<StudyModuleSummary> studyModuleList = generateStudyModuleList(studyModuleCount);
+		Slice<StudyModuleSummary> studyModulesSlice = new SliceImpl<>(studyModuleList);
+
+		when(studyModuleService.getModules("", "", 2, null, "id_asc", false)).thenReturn(studyModulesSlice);
+
+		mockMvc.perform(get(MODULE_ENDPOINT).param("page", "2")).andExpectAll(
+				status().isOk(),
+				jsonPath("$.length()").value(studyModuleCount));
+	}
+
+	@Test
+	public void testGetCollectionWithTotal() throws Exception {
+		int studyModuleCount = 5;
+		List<StudyModuleSummary> studyModuleList = generateStudyModuleList(studyModuleCount);
+		CursorSlice<StudyModuleSummary> studyModulesSlice = new CursorSlice<>(
+				studyModuleList, PageRequest.of(0, PAGE_SIZE), null, null, (long) studyModuleCount);
+
+		when(studyModuleService.scrollModules("", "", "cursor", null, "id_asc", true)).thenReturn(studyModulesSlice);
+
+		mockMvc.perform(get(MODULE_ENDPOINT).param("cursor", "cursor").param("total", "true")).andExpectAll(
+				status().isOk(),
+				jsonPath("$.length()").value(studyModuleCount),
+				header().string(TOTAL_COUNT_HEADER, String.valueOf(studyModuleCount)));
+	}
+
+	@Test
+	public void testExport() throws Exception {
+		List<StudyModuleSummary> studyModules = generateStudyModuleList(3);
+
+		// Pass the studyModules to the consumer of the export
+		doAnswer(invocation -> {
+			Consumer<StudyModuleSummary> consumer = invocation.getArgument(2);
+			studyModules.forEach(consumer);
+			return null;
+		}).when(studyModuleService).exportModules(eq(""), eq("spring"), any());
+
+		StringBuilder expectedNdjson = new StringBuilder();
+		for (StudyModuleSummary entity : studyModules) {
+			expectedNdjson.append(objectMapper.writeValueAsString(entity)).append('\n');
+		}
+
+		MvcResult result = mockMvc.perform(get(MODULE_ENDPOINT + EXPORT_SUFFIX).param("semester", "spring"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpectAll(
+						status().isOk(),
+						content().contentType(MediaType.APPLICATION_NDJSON),
+						content().string(expectedNdjson.toString()));
+	}
+
+	@Test
+	public void testGetOneOfUniversityNotModified() throws Exception {
+		when(studyModuleService.getModuleVersionForUniversity(1L, 2L)).thenReturn(42L);
+
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT + "/1" + MODULE_ENDPOINT + "/2")
+				.header("If-None-Match", ModificationClock.eTag(42L)))
+				.andExpectAll(
+						status().isNotModified(),
+						header().string("ETag", ModificationClock.eTag(42L)),
+						content().string(""));
+
+		// The module is not loaded
+		verify(studyModuleService, never()).getModuleForUniversity(1L, 2L, 42L);
 	}
 
 	@Test
@@ -69,7 +173,7 @@ public class StudyModuleControllerTests {
 		String formattedEndpoint = String.format("%s/1", MODULE_ENDPOINT);
 
 		StudyModule studyModule = generateStudyModuleObject(1);
-		when(studyModuleService.getModuleById(1L)).thenReturn(studyModule);
+		when(studyModuleService.getModuleById(1L, 0L)).thenReturn(studyModule);
 
 		String updateLinkHeader = formatLinkHeader(formattedEndpoint,
 				"putUpdate");
@@ -87,13 +191,64 @@ public class StudyModuleControllerTests {
 						content().json(expectedJSON));
 	}
 
+	@Test
+	public void testGetOneSmile() throws Exception {
+		StudyModule studyModule = generateStudyModuleObject(1);
+		when(studyModuleService.getModuleById(1L, 0L)).thenReturn(studyModule);
+
+		byte[] response = mockMvc.perform(get(MODULE_ENDPOINT + "/1").accept("application/x-jackson-smile"))
+				.andExpectAll(
+						status().isOk(),
+						content().contentType("application/x-jackson-smile"))
+				.andReturn()
+				.getResponse()
+				.getContentAsByteArray();
+
+		assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(studyModule)),
+				new SmileMapper().readTree(response));
+	}
+
+	@Test
+	public void testGetOneRepresentationsHaveOwnETags() throws Exception {
+		StudyModule studyModule = generateStudyModuleObject(1);
+		studyModule.setVersion(42L);
+		when(studyModuleService.getModuleVersion(1L)).thenReturn(42L);
+		when(studyModuleService.getModuleById(1L, 42L)).thenReturn(studyModule);
+
+		mockMvc.perform(get(MODULE_ENDPOINT + "/1").accept(MediaType.APPLICATION_CBOR))
+				.andExpectAll(
+						status().isOk(),
+						header().string("ETag", "\"2a-cbor\""),
+						header().string("Vary", "Accept"));
+
+		// The JSON representation is not reported as not modified for Smile
+		mockMvc.perform(get(MODULE_ENDPOINT + "/1")
+				.accept("application/x-jackson-smile")
+				.header("If-None-Match", ModificationClock.eTag(42L)))
+				.andExpectAll(
+						status().isOk(),
+						content().contentType("application/x-jackson-smile"),
+						header().string("ETag", "\"2a-smile\""));
+
+		// The preferred representation is selected by its quality
+		mockMvc.perform(get(MODULE_ENDPOINT + "/1")
+				.header("Accept", "application/json;q=0.5, application/x-jackson-smile")
+				.header("If-None-Match", "\"2a-smile\""))
+				.andExpectAll(
+						status().isNotModified(),
+						header().string("ETag", "\"2a-smile\""),
+						header().string("Vary", "Accept"));
+	}
+
 	@Test
 	public void testGetCollectionOfUniversity() throws Exception {
 		int studyModuleCount = 5;
-		List<StudyModule> studyModuleList = generateStudyModuleList(studyModuleCount);
-		Page<StudyModule> studyModulesPage = new PageImpl<>(studyModuleList);
+		List<StudyModuleSummary> studyModuleList = generateStudyModuleList(studyModuleCount);
+		CursorSlice<StudyModuleSummary> studyModulesSlice = new CursorSlice<>(
+				studyModuleList, PageRequest.of(0, PAGE_SIZE), null, null, null);
 
-		when(studyModuleService.getModulesForUniversity(1L, "", "", 0, "id_asc")).thenReturn(studyModulesPage);
+		when(studyModuleService.scrollModulesForUniversity(1L, "", "", null, null, "id_asc", false))
+				.thenReturn(studyModulesSlice);
 
 		String expectedJSON = objectMapper.writeValueAsString(studyModuleList);
 		mockMvc.perform(get(UNIVERSITY_ENDPOINT + "/1" + MODULE_ENDPOINT))
@@ -104,12 +259,22 @@ public class StudyModuleControllerTests {
 						content().json(expectedJSON));
 	}
 
+	@Test
+	public void testGetCollectionOfMissingUniversity() throws Exception {
+		String eTag = ModificationClock.eTag(0L);
+		when(studyModuleService.getCollectionVersionOfUniversity(2L)).thenThrow(new UniversityNotFoundException());
+
+		// A deleted university is not reported as not modified
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT + "/2" + MODULE_ENDPOINT).header("If-None-Match", eTag))
+				.andExpect(status().isNotFound());
+	}
+
 	@Test
 	public void testGetOneOfUniversity() throws Exception {
 		String formattedEndpoint = String.format("%s/1", MODULE_ENDPOINT);
 
 		StudyModule studyModule = generateStudyModuleObject(1);
-		when(studyModuleService.getModuleForUniversity(1L, 1L)).thenReturn(studyModule);
+		when(studyModuleService.getModuleForUniversity(1L, 1L, 0L)).thenReturn(studyModule);
 
 		String updateLinkHeader = formatLinkHeader(formattedEndpoint,
 				"putUpdate");
@@ -149,6 +314,56 @@ public class StudyModuleControllerTests {
 						content().json(expectedJSON));
 	}
 
+	@Test
+	public void testCreateBatch() throws Exception {
+		String studyModulesJson = "[" + generateStudyModuleJson(1) + "," + generateStudyModuleJson(2) + "]";
+		List<StudyModule> studyModules = List.of(generateStudyModuleObject(1), generateStudyModuleObject(2));
+
+		List<URI> locations = List.of(
+				URI.create(BASE_URI + MODULE_ENDPOINT + "/1"),
+				URI.create(BASE_URI + MODULE_ENDPOINT + "/2"));
+		when(studyModuleService.createModules(studyModules)).thenReturn(locations);
+
+		mockMvc.perform(
+				post(MODULE_ENDPOINT + BATCH_SUFFIX)
+						.content(studyModulesJson)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						status().isCreated(),
+						content().contentType(MediaType.APPLICATION_JSON),
+						jsonPath("$.length()").value(2),
+						jsonPath("$[0]").value(locations.get(0).toString()),
+						jsonPath("$[1]").value(locations.get(1).toString()));
+	}
+
+	@Test
+	public void testCreateBatchTooLarge() throws Exception {
+		String json = "[" + generateStudyModuleJson(1) + "," + generateStudyModuleJson(2) + "," + generateStudyModuleJson(3) + "]";
+
+		mockMvc.perform(
+				post(MODULE_ENDPOINT + BATCH_SUFFIX)
+						.content(json)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						// Rejected before any resource is created
+						status().isPayloadTooLarge(),
+						jsonPath("$.status").value(413));
+		verify(studyModuleService, never()).createModules(any());
+	}
+
+	@Test
+	public void testCreateBatchWithInvalidStudyModule() throws Exception {
+		String studyModulesJson = "[" + generateStudyModuleJson(1) + ",{\"name\":\"Study Module 2\"}]";
+
+		mockMvc.perform(
+				post(MODULE_ENDPOINT + BATCH_SUFFIX)
+						.content(studyModulesJson)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						status().isBadRequest(),
+						jsonPath("$.status").value(400));
+	}
+
 	@Test
 	public void testUpdate() throws Exception {
 		String studyModuleJson = generateStudyModuleJson(1);
@@ -186,6 +401,51 @@ public class StudyModuleControllerTests {
 						jsonPath("$").doesNotExist());
 	}
 
+	@Test
+	public void testUpdateIfMatch() throws Exception {
+		String studyModuleJson = generateStudyModuleJson(1);
+		StudyModule studyModule = generateStudyModuleObject(1);
+
+		// Any existing version matches *
+		when(studyModuleService.updateModuleIfMatch(1L, studyModule, null)).thenReturn(43L);
+
+		mockMvc.perform(
+				put(MODULE_ENDPOINT + "/1")
+						.header("If-Match", "*")
+						.content(studyModuleJson)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						status().isNoContent(),
+						header().string("ETag", ModificationClock.eTag(43L)),
+						header().string("Link", formatLinkHeader(MODULE_ENDPOINT + "/1", "getSelf")));
+
+		// The ETag names the representation the client negotiates
+		mockMvc.perform(
+				put(MODULE_ENDPOINT + "/1")
+						.header("If-Match", "*")
+						.accept("application/x-jackson-smile")
+						.content(studyModuleJson)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						status().isNoContent(),
+						header().string("ETag", "\"2b-smile\""));
+
+		// A stale version is rejected and the module is not created
+		when(studyModuleService.updateModuleIfMatch(1L, studyModule, List.of(41L)))
+				.thenThrow(new PreconditionFailedException());
+
+		mockMvc.perform(
+				put(MODULE_ENDPOINT + "/1")
+						.header("If-Match", ModificationClock.eTag(41L))
+						.content(studyModuleJson)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						status().isPreconditionFailed(),
+						jsonPath("$.status").value(412));
+
+		verify(studyModuleService, never()).updateModule(eq(1L), any());
+	}
+
 	@Test
 	public void testDelete() throws Exception {
 		String getModulesCollectionLink = formatLinkHeader(MODULE_ENDPOINT, "getModulesCollection");
@@ -253,15 +513,32 @@ public class StudyModuleControllerTests {
 				"Study Module " + id,
 				id % 2 == 0 ? "SPRING" : "FALL",
 				5,
-				URI.create(BASE_URI + MODULE_ENDPOINT + "/" + id),
-
+				null,
+				null,
 				null);
 	}
 
-	private List<StudyModule> generateStudyModuleList(int studyModuleCount) {
-		List<StudyModule> studyModuleList = new ArrayList<>();
+	@Test
+	public void testSummaryRepresentation() throws Exception {
+		// The collections show the same fields and link as a single module
+		StudyModule studyModule = generateStudyModuleObject(1);
+		StudyModuleSummary summary = generateStudyModuleSummary(1);
+
+		assertEquals(objectMapper.writeValueAsString(studyModule), objectMapper.writeValueAsString(summary));
+	}
+
+	private StudyModuleSummary generateStudyModuleSummary(int id) {
+		return new StudyModuleSummary(
+				(long) id,
+				"Study Module " + id,
+				id % 2 == 0 ? "SPRING" : "FALL",
+				5);
+	}
+
+	private List<StudyModuleSummary> generateStudyModuleList(int studyModuleCount) {
+		List<StudyModuleSummary> studyModuleList = new ArrayList<>();
 		for (int i = 0; i < studyModuleCount; i++) {
-			studyModuleList.add(generateStudyModuleObject(i));
+			studyModuleList.add(generateStudyModuleSummary(i));
 		}
 		return studyModuleList;
 	}
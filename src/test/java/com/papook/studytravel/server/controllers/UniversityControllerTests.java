@@ -1,10 +1,22 @@
 package com.papook.studytravel.server.controllers;
 
 import static com.papook.studytravel.server.ServerConfiguration.BASE_URI;
+import static com.papook.studytravel.server.ServerConfiguration.BATCH_SUFFIX;
+import static com.papook.studytravel.server.ServerConfiguration.EXPORT_SUFFIX;
+import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
 import static com.papook.studytravel.server.ServerConfiguration.MODULE_ENDPOINT;
+import static com.papook.studytravel.server.ServerConfiguration.TOTAL_COUNT_HEADER;
 import static com.papook.studytravel.server.ServerConfiguration.UNIVERSITY_ENDPOINT;
 import static com.papook.studytravel.server.utils.HypermediaGenerator.formatLinkHeader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -12,6 +24,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.net.URI;
@@ -19,23 +32,37 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Consumer;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.papook.studytravel.server.errors.IdOutOfRangeException;
+import com.papook.studytravel.server.errors.PreconditionFailedException;
 import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.UniversitySummary;
 import com.papook.studytravel.server.services.UniversityService;
+import com.papook.studytravel.server.utils.BatchSizeLimit;
+import com.papook.studytravel.server.utils.CursorSlice;
 import com.papook.studytravel.server.utils.HypermediaGenerator;
+import com.papook.studytravel.server.utils.ModificationClock;
+import com.papook.studytravel.server.utils.RepresentationNegotiator;
 
-@WebMvcTest(UniversityController.class)
+@WebMvcTest(controllers = UniversityController.class, properties = "studytravel.batch.max-size=2")
+@Import({ RepresentationNegotiator.class, BatchSizeLimit.class })
 public class UniversityControllerTests {
 
 	@Autowired
@@ -50,14 +77,20 @@ public class UniversityControllerTests {
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	@BeforeEach
+	public void setUp() {
+		when(universityService.getCollectionVersion()).thenReturn(42L);
+	}
+
 	@Test
 	public void testGetCollection() throws Exception {
 		int universityCount = 5;
-		List<University> universityList = generateUniversityList(universityCount);
-		Page<University> universitiesPage = new PageImpl<>(universityList);
+		List<UniversitySummary> universityList = generateUniversityList(universityCount);
+		CursorSlice<UniversitySummary> universitiesSlice = new CursorSlice<>(
+				universityList, PageRequest.of(0, PAGE_SIZE), null, null, null);
 
 		// Set up the mock objects
-		when(universityService.getUniversities("", "", 0, "id_asc")).thenReturn(universitiesPage);
+		when(universityService.scrollUniversities("", "", null, null, "id_asc", false)).thenReturn(universitiesSlice);
 
 		String expectedJSON = objectMapper.writeValueAsString(universityList);
 		mockMvc.perform(get(UNIVERSITY_ENDPOINT))
@@ -66,7 +99,138 @@ public class UniversityControllerTests {
 						status().isOk(),
 						content().contentType("application/json"),
 						jsonPath("$.length()").value(universityCount),
-						content().json(expectedJSON));
+						content().json(expectedJSON),
+						// The total is not counted unless requested
+						header().doesNotExist(TOTAL_COUNT_HEADER));
+	}
+
+	@Test
+	public void testGetCollectionByPage() throws Exception {
+		int universityCount = 5;
+		List<UniversitySummary> universityList = generateUniversityList(universityCount);
+		Slice<UniversitySummary> universitiesSlice = new SliceImpl<>(universityList);
+
+		when(universityService.getUniversities("", "", 2, null, "id_asc", false)).thenReturn(universitiesSlice);
+
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT).param("page", "2"))
+				.andExpectAll(
+						status().isOk(),
+						jsonPath("$.length()").value(universityCount));
+	}
+
+	@Test
+	public void testGetCollectionWithTotal() throws Exception {
+		int universityCount = 5;
+		List<UniversitySummary> universityList = generateUniversityList(universityCount);
+		CursorSlice<UniversitySummary> universitiesSlice = new CursorSlice<>(
+				universityList, PageRequest.of(0, PAGE_SIZE), null, null, (long) universityCount);
+
+		when(universityService.scrollUniversities("", "", "cursor", null, "id_asc", true)).thenReturn(universitiesSlice);
+
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT).param("cursor", "cursor").param("total", "true"))
+				.andExpectAll(
+						status().isOk(),
+						jsonPath("$.length()").value(universityCount),
+						header().string(TOTAL_COUNT_HEADER, String.valueOf(universityCount)));
+	}
+
+	@Test
+	public void testExport() throws Exception {
+		List<UniversitySummary> universities = generateUniversityList(3);
+
+		// Pass the universities to the consumer of the export
+		doAnswer(invocation -> {
+			Consumer<UniversitySummary> consumer = invocation.getArgument(2);
+			universities.forEach(consumer);
+			return null;
+		}).when(universityService).exportUniversities(eq("tum"), eq(""), any());
+
+		StringBuilder expectedNdjson = new StringBuilder();
+		for (UniversitySummary entity : universities) {
+			expectedNdjson.append(objectMapper.writeValueAsString(entity)).append('\n');
+		}
+
+		MvcResult result = mockMvc.perform(get(UNIVERSITY_ENDPOINT + EXPORT_SUFFIX).param("name", "tum"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpectAll(
+						status().isOk(),
+						content().contentType(MediaType.APPLICATION_NDJSON),
+						content().string(expectedNdjson.toString()));
+	}
+
+	@Test
+	public void testGetCollectionNotModified() throws Exception {
+		CursorSlice<UniversitySummary> universitiesSlice = new CursorSlice<>(
+				generateUniversityList(5), PageRequest.of(0, PAGE_SIZE), null, null, null);
+		when(universityService.scrollUniversities("", "", null, null, "id_asc", false)).thenReturn(universitiesSlice);
+
+		String eTag = mockMvc.perform(get(UNIVERSITY_ENDPOINT))
+				.andExpect(status().isOk())
+				.andReturn()
+				.getResponse()
+				.getHeader("ETag");
+
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT).header("If-None-Match", eTag))
+				.andExpectAll(
+						status().isNotModified(),
+						content().string(""));
+
+		// The second request did not query the universities
+		verify(universityService, times(1)).scrollUniversities("", "", null, null, "id_asc", false);
+	}
+
+	@Test
+	public void testGetCollectionRepresentationsHaveOwnETags() throws Exception {
+		CursorSlice<UniversitySummary> universitiesSlice = new CursorSlice<>(
+				generateUniversityList(5), PageRequest.of(0, PAGE_SIZE), null, null, null);
+		when(universityService.scrollUniversities("", "", null, null, "id_asc", false)).thenReturn(universitiesSlice);
+		String eTag = ModificationClock.eTag(42L);
+
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT))
+				.andExpectAll(
+						status().isOk(),
+						header().string("ETag", eTag),
+						header().string("Vary", "Accept"));
+
+		// The JSON representation is not reported as not modified for CBOR
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", eTag))
+				.andExpectAll(
+						status().isOk(),
+						content().contentType(MediaType.APPLICATION_CBOR),
+						header().string("ETag", "\"2a-5-f-cbor\""),
+						header().string("Vary", "Accept"));
+
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT).accept(MediaType.APPLICATION_CBOR)
+				.header("If-None-Match", "\"2a-5-f-cbor\""))
+				.andExpectAll(
+						status().isNotModified(),
+						header().string("ETag", "\"2a-5-f-cbor\""),
+						header().string("Vary", "Accept"));
+	}
+
+	@Test
+	public void testGetOneNotModified() throws Exception {
+		when(universityService.getUniversityVersion(1L)).thenReturn(42L);
+		University university = generateUniversityObject(1);
+		university.setVersion(42L);
+		when(universityService.getUniversityById(1L, 42L)).thenReturn(university);
+
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT + "/1"))
+				.andExpectAll(
+						header().string("ETag", ModificationClock.eTag(42L)),
+						header().string("Vary", "Accept"));
+
+		mockMvc.perform(get(UNIVERSITY_ENDPOINT + "/1").header("If-None-Match", ModificationClock.eTag(42L)))
+				.andExpectAll(
+						status().isNotModified(),
+						header().string("Vary", "Accept"),
+						content().string(""));
+
+		// The university is only loaded for the first request
+		verify(universityService, times(1)).getUniversityById(1L, 42L);
 	}
 
 	@Test
@@ -76,7 +240,7 @@ public class UniversityControllerTests {
 				UNIVERSITY_ENDPOINT, MODULE_ENDPOINT);
 
 		University university = generateUniversityObject(1);
-		when(universityService.getUniversityById(1L)).thenReturn(university);
+		when(universityService.getUniversityById(1L, 0L)).thenReturn(university);
 
 		String updateLinkHeader = formatLinkHeader(formattedEndpoint,
 				"putUpdate");
@@ -128,6 +292,88 @@ public class UniversityControllerTests {
 						content().json(expectedJSON));
 	}
 
+	@Test
+	public void testCreateCbor() throws Exception {
+		String universityJson = generateUniversityJsonWithID(1);
+		CBORMapper cborMapper = new CBORMapper();
+
+		University university = objectMapper.readValue(universityJson, University.class);
+		URI location = URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/1");
+		when(universityService.createUniversity(university)).thenReturn(location);
+
+		// The request body and the response are CBOR instead of JSON
+		byte[] response = mockMvc.perform(
+				post(UNIVERSITY_ENDPOINT)
+						.content(cborMapper.writeValueAsBytes(objectMapper.readTree(universityJson)))
+						.contentType("application/cbor")
+						.accept("application/cbor"))
+				.andExpectAll(
+						status().isCreated(),
+						header().string("Location", location.toString()),
+						content().contentType("application/cbor"))
+				.andReturn()
+				.getResponse()
+				.getContentAsByteArray();
+
+		// The fields, including the dates and URIs, are written like in JSON
+		assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(university)),
+				cborMapper.readTree(response));
+	}
+
+	@Test
+	public void testCreateBatch() throws Exception {
+		String universitiesJson = "[" + generateUniversityJsonWithID(1) + "," + generateUniversityJsonWithID(2) + "]";
+
+		List<University> universities = objectMapper.readValue(universitiesJson,
+				new TypeReference<List<University>>() {
+				});
+		List<URI> locations = List.of(
+				URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/1"),
+				URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/2"));
+		when(universityService.createUniversities(universities)).thenReturn(locations);
+
+		mockMvc.perform(
+				post(UNIVERSITY_ENDPOINT + BATCH_SUFFIX)
+						.content(universitiesJson)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						// Test the status code, Content-Type, and the returned locations
+						status().isCreated(),
+						content().contentType("application/json"),
+						jsonPath("$.length()").value(2),
+						jsonPath("$[0]").value(locations.get(0).toString()),
+						jsonPath("$[1]").value(locations.get(1).toString()));
+	}
+
+	@Test
+	public void testCreateBatchTooLarge() throws Exception {
+		String json = "[" + generateUniversityJsonWithID(1) + "," + generateUniversityJsonWithID(2) + "," + generateUniversityJsonWithID(3) + "]";
+
+		mockMvc.perform(
+				post(UNIVERSITY_ENDPOINT + BATCH_SUFFIX)
+						.content(json)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						// Rejected before any resource is created
+						status().isPayloadTooLarge(),
+						jsonPath("$.status").value(413));
+		verify(universityService, never()).createUniversities(any());
+	}
+
+	@Test
+	public void testCreateBatchWithInvalidUniversity() throws Exception {
+		String universitiesJson = "[" + generateUniversityJsonWithID(1) + ",{\"name\":\"University 2\"}]";
+
+		mockMvc.perform(
+				post(UNIVERSITY_ENDPOINT + BATCH_SUFFIX)
+						.content(universitiesJson)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						// Test the status code and the error status
+						status().isBadRequest(),
+						jsonPath("$.status").value(400));
+	}
+
 	@Test
 	public void testUpdate() throws Exception {
 		String universityJson1 = generateUniversityJsonWithID(1);
@@ -169,6 +415,73 @@ public class UniversityControllerTests {
 						jsonPath("$").doesNotExist());
 	}
 
+	@Test
+	public void testUpdateWithIdOutOfRange() throws Exception {
+		String universityJson1 = generateUniversityJsonWithID(1);
+		University universityObject = objectMapper.readValue(universityJson1, University.class);
+
+		when(universityService.updateUniversity(1L, universityObject))
+				.thenThrow(new IdOutOfRangeException());
+
+		mockMvc.perform(
+				put(UNIVERSITY_ENDPOINT + "/1")
+						.content(universityJson1)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						status().isBadRequest(),
+						jsonPath("$.status").value(400));
+	}
+
+	@Test
+	public void testUpdateIfMatch() throws Exception {
+		String universityJson1 = generateUniversityJsonWithID(1);
+		University universityObject = objectMapper.readValue(universityJson1, University.class);
+
+		// The current version is replaced and the new ETag is returned. The ETag
+		// of any representation names the version.
+		when(universityService.updateUniversityIfMatch(1L, universityObject, List.of(42L))).thenReturn(43L);
+
+		mockMvc.perform(
+				put(UNIVERSITY_ENDPOINT + "/1")
+						.header("If-Match", "W/\"2a\", \"2a-cbor\"")
+						.content(universityJson1)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						status().isNoContent(),
+						header().string("ETag", ModificationClock.eTag(43L)),
+						header().string("Link", formatLinkHeader(UNIVERSITY_ENDPOINT + "/1", "getSelf")));
+
+		// The ETag names the representation the client negotiates, so it matches
+		// a following GET in that representation
+		when(universityService.updateUniversityIfMatch(1L, universityObject, List.of(43L))).thenReturn(44L);
+
+		mockMvc.perform(
+				put(UNIVERSITY_ENDPOINT + "/1")
+						.header("If-Match", "\"2b-cbor\"")
+						.accept("application/cbor")
+						.content(universityJson1)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						status().isNoContent(),
+						header().string("ETag", "\"2c-cbor\""),
+						header().string("Vary", "Accept"));
+
+		// A stale version is rejected
+		when(universityService.updateUniversityIfMatch(1L, universityObject, List.of(41L)))
+				.thenThrow(new PreconditionFailedException());
+
+		mockMvc.perform(
+				put(UNIVERSITY_ENDPOINT + "/1")
+						.header("If-Match", ModificationClock.eTag(41L))
+						.content(universityJson1)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpectAll(
+						status().isPreconditionFailed(),
+						jsonPath("$.status").value(412));
+
+		verify(universityService, times(0)).updateUniversity(eq(1L), any());
+	}
+
 	@Test
 	public void testDelete() throws Exception {
 		String getUniversitiesCollectionHeaderLink = formatLinkHeader(UNIVERSITY_ENDPOINT, "getUniversitiesCollection");
@@ -206,9 +519,9 @@ public class UniversityControllerTests {
 				20 + id,
 				LocalDate.now(),
 				LocalDate.now(),
-				URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + id + MODULE_ENDPOINT),
-				URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + id),
-				Set.of());
+				null,
+				null,
+				null);
 	}
 
 	@Test
@@ -223,11 +536,33 @@ public class UniversityControllerTests {
 						jsonPath("$").doesNotExist());
 	}
 
-	private static List<University> generateUniversityList(int count) {
-		List<University> list = new ArrayList<>();
+	@Test
+	public void testSummaryRepresentation() throws Exception {
+		// The collections show the same fields and links as a single university
+		University university = generateUniversityObject(1);
+		UniversitySummary summary = generateUniversitySummary(1);
+
+		assertEquals(objectMapper.writeValueAsString(university), objectMapper.writeValueAsString(summary));
+	}
+
+	private static UniversitySummary generateUniversitySummary(int id) {
+		return new UniversitySummary(
+				(long) id,
+				"University " + id,
+				"Country " + id,
+				"Department " + id,
+				"Contact Person " + id,
+				10 + id,
+				20 + id,
+				LocalDate.now(),
+				LocalDate.now());
+	}
+
+	private static List<UniversitySummary> generateUniversityList(int count) {
+		List<UniversitySummary> list = new ArrayList<>();
 
 		for (int i = 0; i < count; i++) {
-			list.add(generateUniversityObject(i));
+			list.add(generateUniversitySummary(i));
 		}
 
 		return list;
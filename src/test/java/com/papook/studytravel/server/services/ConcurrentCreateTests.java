@@ -0,0 +1,102 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.services.ServiceTestFixtures.studyModule;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.repositories.StudyModuleRepository;
+import com.papook.studytravel.server.repositories.UniversityRepository;
+
+/**
+ * Creates universities and study modules from more threads than the pool has
+ * connections, with blocks of a few IDs, so the next block is reserved while
+ * all connections are wanted. A thread waiting for the block must not hold a
+ * connection, otherwise the reservation times out.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:concurrentcreate",
+		"spring.datasource.hikari.maximum-pool-size=10",
+		"spring.datasource.hikari.connection-timeout=2000",
+		"studytravel.id.block-size=5"
+})
+public class ConcurrentCreateTests {
+	private static final int THREADS = 24;
+	private static final int CREATES_PER_THREAD = 20;
+	private static final long PUT_ID_BASE = 1_000_000L;
+	private static final long PUT_ID_GAP = 10_000L;
+
+	@Autowired
+	private UniversityService universityService;
+
+	@Autowired
+	private StudyModuleService studyModuleService;
+
+	@Autowired
+	private UniversityRepository universityRepository;
+
+	@Autowired
+	private StudyModuleRepository studyModuleRepository;
+
+	@Test
+	public void testConcurrentCreatesAcrossBlockBoundaries() throws Exception {
+		Set<URI> locations = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> results = new ArrayList<>();
+
+			for (int i = 0; i < THREADS; i++) {
+				int thread = i;
+				results.add(executor.submit(() -> {
+					start.await();
+					for (int j = 0; j < CREATES_PER_THREAD; j++) {
+						locations.add(universityService.createUniversity(university()));
+						locations.add(studyModuleService.createModule(studyModule()));
+						if (j % 5 == 0) {
+							locations.addAll(universityService.createUniversities(List.of(university(), university())));
+						}
+						if (j % 5 == 1) {
+							// Created with an ID ahead of the reserved blocks, which
+							// advances the sequence past it. The IDs of the PUTs are
+							// further apart than all IDs the test generates, so the
+							// IDs generated after one PUT never reach another.
+							long id = PUT_ID_BASE + (thread * CREATES_PER_THREAD + j) * PUT_ID_GAP;
+							StudyModule module = studyModule();
+							module.setId(id);
+							locations.add(studyModuleService.updateModule(id, module).orElseThrow());
+						}
+					}
+					return null;
+				}));
+			}
+
+			start.countDown();
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		int universities = THREADS * (CREATES_PER_THREAD + 2 * CREATES_PER_THREAD / 5);
+		int modules = THREADS * (CREATES_PER_THREAD + CREATES_PER_THREAD / 5);
+		assertEquals(universities + modules, locations.size());
+		assertEquals(universities, universityRepository.count());
+		assertEquals(modules, studyModuleRepository.count());
+	}
+}
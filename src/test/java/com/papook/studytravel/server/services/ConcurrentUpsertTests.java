@@ -0,0 +1,98 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.services.ServiceTestFixtures.studyModule;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.repositories.StudyModuleRepository;
+import com.papook.studytravel.server.repositories.UniversityRepository;
+
+/**
+ * Creates the same new university and study module with concurrent PUTs. PUT
+ * is idempotent, so every request succeeds: one creates the resource and the
+ * others replace it, also if they did not find it before it was created.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:concurrentupsert")
+public class ConcurrentUpsertTests {
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 20;
+	// Far ahead of the generated IDs, so every round creates a new resource
+	private static final long FIRST_ID = 1_000_000L;
+
+	@Autowired
+	private UniversityService universityService;
+
+	@Autowired
+	private StudyModuleService studyModuleService;
+
+	@Autowired
+	private UniversityRepository universityRepository;
+
+	@Autowired
+	private StudyModuleRepository studyModuleRepository;
+
+	@Test
+	public void testConcurrentPutsOfNewUniversity() throws Exception {
+		putConcurrently(id -> {
+			University university = university("University " + id);
+			university.setId(id);
+			return universityService.updateUniversity(id, university);
+		});
+		assertEquals(ROUNDS, universityRepository.count());
+	}
+
+	@Test
+	public void testConcurrentPutsOfNewModule() throws Exception {
+		putConcurrently(id -> {
+			StudyModule module = studyModule("Module " + id);
+			module.setId(id);
+			return studyModuleService.updateModule(id, module);
+		});
+		assertEquals(ROUNDS, studyModuleRepository.count());
+	}
+
+	private void putConcurrently(LongFunction<Optional<URI>> put) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			for (int round = 0; round < ROUNDS; round++) {
+				long id = FIRST_ID + round;
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<Optional<URI>>> results = new ArrayList<>();
+				for (int i = 0; i < THREADS; i++) {
+					Callable<Optional<URI>> task = () -> {
+						start.await();
+						return put.apply(id);
+					};
+					results.add(executor.submit(task));
+				}
+				start.countDown();
+
+				// Every PUT succeeds, and exactly one created the resource
+				int created = 0;
+				for (Future<Optional<URI>> result : results) {
+					created += result.get().isPresent() ? 1 : 0;
+				}
+				assertEquals(1, created);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.ServerConfiguration.BASE_URI;
+import static com.papook.studytravel.server.ServerConfiguration.MODULE_ENDPOINT;
+import static com.papook.studytravel.server.ServerConfiguration.UNIVERSITY_ENDPOINT;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.studyModule;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.repositories.SchemaMigrationRepository;
+import com.papook.studytravel.server.repositories.StudyModuleRepository;
+import com.papook.studytravel.server.repositories.UniversityRepository;
+import com.papook.studytravel.server.utils.SchemaMigrations;
+
+/**
+ * Restores the link columns stored in every row by earlier versions, as found
+ * in durable storage, and checks that they are dropped without losing the rows,
+ * by a schema migration that is applied once per database.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:linkcolumns")
+public class LinkColumnMigrationTests {
+
+	@Autowired
+	private UniversityService universityService;
+
+	@Autowired
+	private StudyModuleService studyModuleService;
+
+	@Autowired
+	private UniversityRepository universityRepository;
+
+	@Autowired
+	private StudyModuleRepository studyModuleRepository;
+
+	@Autowired
+	private SchemaMigrations schemaMigrations;
+
+	@Autowired
+	private SchemaMigrationRepository schemaMigrationRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	public void testDropLinkColumns() {
+		University university = university();
+		universityService.createUniversity(university);
+		StudyModule module = studyModule();
+		studyModuleService.createModule(module);
+
+		// The columns as they were stored before
+		jdbcTemplate.execute("alter table university add column modules varchar(255)");
+		jdbcTemplate.execute("alter table university add column self varchar(255)");
+		jdbcTemplate.execute("alter table study_module add column self varchar(255)");
+		jdbcTemplate.update("update university set modules = ?, self = ?",
+				university.getModules().toString(), university.getSelf().toString());
+		jdbcTemplate.update("update study_module set self = ?", module.getSelf().toString());
+		assertEquals(List.of("MODULES", "SELF"), findLinkColumns("UNIVERSITY"));
+		assertEquals(List.of("SELF"), findLinkColumns("STUDY_MODULE"));
+
+		universityRepository.dropLinkColumns();
+		studyModuleRepository.dropLinkColumns();
+		assertEquals(List.of(), findLinkColumns("UNIVERSITY"));
+		assertEquals(List.of(), findLinkColumns("STUDY_MODULE"));
+
+		// Running again on the migrated tables does nothing
+		universityRepository.dropLinkColumns();
+		studyModuleRepository.dropLinkColumns();
+
+		University storedUniversity = universityService.getUniversityById(university.getId());
+		assertEquals("University", storedUniversity.getName());
+		assertEquals(URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + university.getId()),
+				storedUniversity.getSelf());
+		assertEquals(URI.create(BASE_URI + UNIVERSITY_ENDPOINT + "/" + university.getId() + MODULE_ENDPOINT),
+				storedUniversity.getModules());
+		StudyModule storedModule = studyModuleService.getModuleById(module.getId());
+		assertEquals("Study Module", storedModule.getName());
+		assertEquals(URI.create(BASE_URI + MODULE_ENDPOINT + "/" + module.getId()), storedModule.getSelf());
+	}
+
+	@Test
+	public void testMigrationsAreAppliedOnce() {
+		// Applied and recorded on startup
+		assertTrue(schemaMigrationRepository.existsById("drop_university_link_columns"));
+		assertTrue(schemaMigrationRepository.existsById("drop_study_module_link_columns"));
+
+		AtomicInteger applied = new AtomicInteger();
+		assertFalse(schemaMigrations.applyOnce("drop_university_link_columns", applied::incrementAndGet));
+		assertTrue(schemaMigrations.applyOnce("test_migration", applied::incrementAndGet));
+		assertFalse(schemaMigrations.applyOnce("test_migration", applied::incrementAndGet));
+		assertEquals(1, applied.get());
+
+		// A failed migration is tried again
+		assertThrows(IllegalStateException.class, () -> schemaMigrations.applyOnce("failing_migration", () -> {
+			throw new IllegalStateException();
+		}));
+		assertFalse(schemaMigrationRepository.existsById("failing_migration"));
+	}
+
+	private List<String> findLinkColumns(String table) {
+		return jdbcTemplate.queryForList("""
+				select column_name from information_schema.columns
+				where table_name = ? and column_name in ('MODULES', 'SELF')
+				order by column_name""", String.class, table);
+	}
+}
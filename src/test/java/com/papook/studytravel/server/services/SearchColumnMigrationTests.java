@@ -0,0 +1,71 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.services.ServiceTestFixtures.studyModule;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+
+/**
+ * Clears the normalized search columns, as found in durable storage written
+ * before they were introduced, and checks that they are filled in chunks.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:searchcolumns")
+public class SearchColumnMigrationTests {
+	// More than two chunks
+	private static final int ROWS = 2500;
+
+	@Autowired
+	private UniversityService universityService;
+
+	@Autowired
+	private StudyModuleService studyModuleService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	public void testNormalizeSearchColumns() {
+		List<University> universities = new ArrayList<>();
+		List<StudyModule> modules = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			universities.add(university("Université " + i, "Suisse"));
+			modules.add(studyModule("Système " + i));
+		}
+		universityService.createUniversities(universities);
+		studyModuleService.createModules(modules);
+
+		// The columns as they were stored before
+		jdbcTemplate.update("update university set name_normalized = null, country_normalized = null");
+		jdbcTemplate.update("update study_module set name_normalized = null");
+
+		UniversityService universityTarget = AopTestUtils.getTargetObject(universityService);
+		StudyModuleService studyModuleTarget = AopTestUtils.getTargetObject(studyModuleService);
+		ReflectionTestUtils.invokeMethod(universityTarget, "normalizeSearchColumns");
+		ReflectionTestUtils.invokeMethod(studyModuleTarget, "normalizeSearchColumns");
+
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"select count(*) from university where name_normalized is null or country_normalized is null",
+				Integer.class));
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"select count(*) from study_module where name_normalized is null", Integer.class));
+		assertEquals(List.of("universite 2499", "suisse"), jdbcTemplate.queryForList(
+				"select name_normalized, country_normalized from university where id = ?",
+				universities.get(ROWS - 1).getId()).get(0).values().stream().toList());
+		assertEquals(1, universityService.getUniversities("université 2499", "suisse", 0, null, "id_asc", false)
+				.getNumberOfElements());
+		assertEquals(1, studyModuleService.getModules("SYSTEME 1234", "", 0, null, "id_asc", false)
+				.getNumberOfElements());
+	}
+}
@@ -0,0 +1,56 @@
+package com.papook.studytravel.server.services;
+
+import java.time.LocalDate;
+
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+
+/**
+ * Builds the universities and study modules stored by the service tests. The
+ * builders are filled with valid values, so a test only sets the fields it
+ * depends on.
+ */
+final class ServiceTestFixtures {
+
+	private ServiceTestFixtures() {
+	}
+
+	static University.UniversityBuilder universityBuilder() {
+		return University.builder()
+				.name("University")
+				.country("Country")
+				.department("Department")
+				.contactPersonName("Contact Person")
+				.outgoingStudentNumber(10)
+				.incomingStudentNumber(20)
+				.springSemesterStart(LocalDate.now())
+				.fallSemesterStart(LocalDate.now());
+	}
+
+	static University university() {
+		return universityBuilder().build();
+	}
+
+	static University university(String name) {
+		return universityBuilder().name(name).build();
+	}
+
+	static University university(String name, String country) {
+		return universityBuilder().name(name).country(country).build();
+	}
+
+	static StudyModule.StudyModuleBuilder studyModuleBuilder() {
+		return StudyModule.builder()
+				.name("Study Module")
+				.semester("SPRING")
+				.creditPoints(5);
+	}
+
+	static StudyModule studyModule() {
+		return studyModuleBuilder().build();
+	}
+
+	static StudyModule studyModule(String name) {
+		return studyModuleBuilder().name(name).build();
+	}
+}
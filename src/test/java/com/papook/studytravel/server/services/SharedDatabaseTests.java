@@ -0,0 +1,158 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.services.ServiceTestFixtures.studyModule;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.papook.studytravel.server.errors.UniversityNotFoundException;
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.StudyModuleSummary;
+import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.UniversitySummary;
+import com.papook.studytravel.server.repositories.StudyModuleRepository;
+import com.papook.studytravel.server.repositories.UniversityRepository;
+import com.papook.studytravel.server.utils.CollectionVersions;
+
+/**
+ * Writes universities and study modules like another server sharing the
+ * database, directly through the repositories, and checks that this server
+ * sees them and does not overwrite them.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:shared",
+		"studytravel.search.index.enabled=false"
+})
+public class SharedDatabaseTests {
+	// The IDs reserved by the other server
+	private static final long OTHER_SERVER_ID = 1_000_000;
+
+	@Autowired
+	private UniversityService universityService;
+
+	@Autowired
+	private StudyModuleService studyModuleService;
+
+	@Autowired
+	private UniversityRepository universityRepository;
+
+	@Autowired
+	private StudyModuleRepository studyModuleRepository;
+
+	@Autowired
+	private CollectionVersions collectionVersions;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	public void setUp() {
+		studyModuleService.deleteAllModules();
+		universityService.deleteAllUniversities();
+	}
+
+	@Test
+	public void testSearchFindsWritesOfOtherServers() {
+		universityService.createUniversity(university("Technical University of Munich", "Germany"));
+		studyModuleService.createModule(studyModule("Distributed Systems"));
+
+		University university = university("Munich University of Applied Sciences", "Germany");
+		university.setId(OTHER_SERVER_ID);
+		university.setVersion(1L);
+		StudyModule module = studyModule("Distributed Databases");
+		module.setId(OTHER_SERVER_ID);
+		module.setVersion(1L);
+		transactionTemplate.executeWithoutResult(status -> {
+			universityRepository.insertAll(List.of(university));
+			studyModuleRepository.insertAll(List.of(module));
+		});
+
+		assertEquals(List.of("Technical University of Munich", "Munich University of Applied Sciences"),
+				universityService.getUniversities("munich", "germ", 0, null, "id_asc", false)
+						.map(UniversitySummary::name).toList());
+		assertEquals(List.of("Technical University of Munich", "Munich University of Applied Sciences"),
+				universityService.scrollUniversities("munich", "", null, null, "id_asc", false)
+						.map(UniversitySummary::name).toList());
+		assertEquals(List.of("Distributed Systems", "Distributed Databases"),
+				studyModuleService.getModules("distributed", "", 0, null, "id_asc", false)
+						.map(StudyModuleSummary::name).toList());
+	}
+
+	@Test
+	public void testCreateDoesNotOverwriteRowWithSameId() {
+		universityService.createUniversity(university("Technical University of Munich", "Germany"));
+		Long nextId = universityService.getUniversities("", "", 0, null, "id_asc", false)
+				.getContent().get(0).id() + 1;
+
+		// A row stored with the ID this server hands out next
+		University university = university("Munich University of Applied Sciences", "Germany");
+		university.setId(nextId);
+		university.setVersion(1L);
+		transactionTemplate.executeWithoutResult(status -> universityRepository.insertAll(List.of(university)));
+
+		// The row is kept and the university is created with the next ID
+		University created = university("Ludwig Maximilian University");
+		universityService.createUniversity(created);
+		assertEquals(nextId + 1, created.getId());
+		assertEquals("Munich University of Applied Sciences",
+				universityRepository.findById(nextId).orElseThrow().getName());
+	}
+
+	@Test
+	public void testCachedUniversityOfOtherVersionIsLoadedAgain() {
+		University university = university("Technical University of Munich", "Germany");
+		universityService.createUniversity(university);
+		universityService.getUniversityById(university.getId());
+
+		// The cached university is updated by the other server
+		University updated = university("Munich University of Applied Sciences", "Germany");
+		updated.setId(university.getId());
+		updated.setVersion(university.getVersion() + 1);
+		transactionTemplate.executeWithoutResult(status -> universityRepository.update(updated));
+		long version = universityService.getUniversityVersion(university.getId());
+
+		University served = universityService.getUniversityById(university.getId(), version);
+		assertEquals(version, served.getVersion());
+		assertEquals("Munich University of Applied Sciences", served.getName());
+	}
+
+	@Test
+	public void testCollectionVersionChangesWithWritesOfOtherServers() {
+		University university = university("Technical University of Munich", "Germany");
+		universityService.createUniversity(university);
+		long universitiesVersion = universityService.getCollectionVersion();
+		long modulesVersion = studyModuleService.getCollectionVersionOfUniversity(university.getId());
+
+		University otherUniversity = university("Munich University of Applied Sciences", "Germany");
+		otherUniversity.setId(OTHER_SERVER_ID);
+		otherUniversity.setVersion(1L);
+		StudyModule module = studyModule("Distributed Databases");
+		module.setId(OTHER_SERVER_ID);
+		module.setVersion(1L);
+		module.setUniversityId(university.getId());
+		// The other server counts up the versions of the collections it writes to
+		transactionTemplate.executeWithoutResult(status -> {
+			universityRepository.insertAll(List.of(otherUniversity));
+			studyModuleRepository.insertAll(List.of(module));
+			collectionVersions.increment(CollectionVersions.UNIVERSITIES);
+			collectionVersions.increment(CollectionVersions.STUDY_MODULES);
+		});
+
+		assertNotEquals(universitiesVersion, universityService.getCollectionVersion());
+		assertNotEquals(modulesVersion, studyModuleService.getCollectionVersionOfUniversity(university.getId()));
+
+		// The modules of a deleted university are not found, whatever their version
+		universityService.deleteUniversity(university.getId());
+		assertThrows(UniversityNotFoundException.class,
+				() -> studyModuleService.getCollectionVersionOfUniversity(university.getId()));
+	}
+}
@@ -0,0 +1,118 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.services.ServiceTestFixtures.studyModule;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.papook.studytravel.server.errors.ModuleTakenException;
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+
+/**
+ * Lets several universities link the same study modules at the same time and
+ * checks that every module is linked to exactly one of them, while the modules
+ * are updated concurrently.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:linkrace")
+public class StudyModuleServiceLinkRaceTests {
+	private static final int UNIVERSITIES = 8;
+	private static final int MODULES = 250;
+
+	@Autowired
+	private StudyModuleService studyModuleService;
+
+	@Autowired
+	private UniversityService universityService;
+
+	@Test
+	public void testConcurrentLinksClaimEveryModuleOnce() throws Exception {
+		List<University> universities = new ArrayList<>();
+		for (int i = 0; i < UNIVERSITIES; i++) {
+			universities.add(university());
+		}
+		universityService.createUniversities(universities);
+
+		List<StudyModule> modules = new ArrayList<>();
+		for (int i = 0; i < MODULES; i++) {
+			modules.add(studyModule("Study Module"));
+		}
+		studyModuleService.createModules(modules);
+
+		Map<Long, Long> winners = new ConcurrentHashMap<>();
+		AtomicInteger taken = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(UNIVERSITIES + 1);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> results = new ArrayList<>();
+
+			// Every university links every module
+			for (University university : universities) {
+				Long universityId = university.getId();
+				results.add(executor.submit(() -> {
+					start.await();
+					for (StudyModule module : modules) {
+						try {
+							studyModuleService.linkModuleToUniversity(module.getId(), universityId);
+							Long previous = winners.putIfAbsent(module.getId(), universityId);
+							assertNull(previous, "Module " + module.getId() + " was linked twice");
+						} catch (ModuleTakenException e) {
+							taken.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+
+			// Meanwhile, every module is renamed, which must not undo the links
+			results.add(executor.submit(() -> {
+				start.await();
+				for (StudyModule module : modules) {
+					StudyModule update = studyModule("Renamed Study Module");
+					update.setId(module.getId());
+					studyModuleService.updateModule(module.getId(), update);
+				}
+				return null;
+			}));
+
+			start.countDown();
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(MODULES, winners.size());
+		assertEquals(MODULES * (UNIVERSITIES - 1), taken.get());
+
+		Map<Long, Integer> linkedPerUniversity = new HashMap<>();
+		for (StudyModule module : modules) {
+			StudyModule stored = studyModuleService.getModuleById(module.getId());
+			assertEquals(winners.get(module.getId()), stored.getUniversityId());
+			assertEquals("Renamed Study Module", stored.getName());
+			linkedPerUniversity.merge(stored.getUniversityId(), 1, Integer::sum);
+		}
+		for (University university : universities) {
+			int linked = linkedPerUniversity.getOrDefault(university.getId(), 0);
+			assertEquals(linked, studyModuleService
+					.getModulesForUniversity(university.getId(), "", "", 0, MODULES, "id_asc", true)
+					.getNumberOfElements());
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.services.ServiceTestFixtures.studyModule;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.papook.studytravel.server.errors.ModuleNotLinkedException;
+import com.papook.studytravel.server.errors.StudyModuleNotFoundException;
+import com.papook.studytravel.server.errors.UniversityNotFoundException;
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.StudyModuleSummary;
+import com.papook.studytravel.server.models.University;
+
+/**
+ * Links study modules to universities, which is stored only in the university
+ * ID of every module, and checks the modules reported for a university until it
+ * is deleted.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:links")
+public class StudyModuleServiceLinkTests {
+
+	@Autowired
+	private StudyModuleService studyModuleService;
+
+	@Autowired
+	private UniversityService universityService;
+
+	private Long universityId;
+	private Long otherUniversityId;
+	private List<Long> moduleIds;
+
+	@BeforeEach
+	public void setUp() {
+		studyModuleService.deleteAllModules();
+		universityService.deleteAllUniversities();
+
+		University university = university("University");
+		University otherUniversity = university("Other University");
+		universityService.createUniversities(List.of(university, otherUniversity));
+		universityId = university.getId();
+		otherUniversityId = otherUniversity.getId();
+
+		List<StudyModule> modules = List.of(studyModule("Module 1"), studyModule("Module 2"),
+				studyModule("Module 3"));
+		studyModuleService.createModules(modules);
+		moduleIds = modules.stream().map(StudyModule::getId).toList();
+	}
+
+	@Test
+	public void testLinkListUnlinkAndDelete() {
+		studyModuleService.linkModuleToUniversity(moduleIds.get(0), universityId);
+		studyModuleService.linkModuleToUniversity(moduleIds.get(1), universityId);
+		studyModuleService.linkModuleToUniversity(moduleIds.get(2), otherUniversityId);
+
+		assertEquals(List.of(moduleIds.get(0), moduleIds.get(1)), getModuleIds(universityId));
+		assertEquals(List.of(moduleIds.get(2)), getModuleIds(otherUniversityId));
+		assertEquals(universityId, studyModuleService.getModuleById(moduleIds.get(0)).getUniversityId());
+		assertTrue(studyModuleService.isModuleLinkedToUniversity(moduleIds.get(1), universityId));
+		assertFalse(studyModuleService.isModuleLinkedToUniversity(moduleIds.get(2), universityId));
+
+		studyModuleService.unlinkModuleFromUniversity(moduleIds.get(1), universityId);
+
+		assertEquals(List.of(moduleIds.get(0)), getModuleIds(universityId));
+		assertNull(studyModuleService.getModuleById(moduleIds.get(1)).getUniversityId());
+		assertFalse(studyModuleService.isModuleLinkedToUniversity(moduleIds.get(1), universityId));
+
+		universityService.deleteUniversity(universityId);
+
+		// The linked module is deleted with the university, the others are kept
+		assertThrows(UniversityNotFoundException.class, () -> getModuleIds(universityId));
+		assertThrows(StudyModuleNotFoundException.class, () -> studyModuleService.verifyExists(moduleIds.get(0)));
+		assertNull(studyModuleService.getModuleById(moduleIds.get(1)).getUniversityId());
+		assertEquals(List.of(moduleIds.get(2)), getModuleIds(otherUniversityId));
+		assertEquals(2, studyModuleService.getModules("", "", 0, null, "id_asc", false).getNumberOfElements());
+	}
+
+	@Test
+	public void testVersionChangesWhenLinkedModulesAreSwapped() {
+		// Modules with chosen IDs, so the linked modules can be swapped while
+		// their number and ID sum stay the same
+		long baseId = moduleIds.get(2) + 100;
+		for (long id = baseId + 1; id <= baseId + 4; id++) {
+			StudyModule module = studyModule("Module " + id);
+			module.setId(id);
+			studyModuleService.updateModule(id, module);
+		}
+
+		studyModuleService.linkModuleToUniversity(baseId + 1, universityId);
+		studyModuleService.linkModuleToUniversity(baseId + 4, universityId);
+		long before = studyModuleService.getCollectionVersionOfUniversity(universityId);
+
+		studyModuleService.linkModuleToUniversity(baseId + 2, universityId);
+		studyModuleService.linkModuleToUniversity(baseId + 3, universityId);
+		studyModuleService.unlinkModuleFromUniversity(baseId + 1, universityId);
+		studyModuleService.unlinkModuleFromUniversity(baseId + 4, universityId);
+		long after = studyModuleService.getCollectionVersionOfUniversity(universityId);
+
+		assertEquals(List.of(baseId + 2, baseId + 3), getModuleIds(universityId));
+		assertNotEquals(before, after);
+
+		// Linking a module that is already linked changes nothing
+		studyModuleService.linkModuleToUniversity(baseId + 2, universityId);
+		assertEquals(after, studyModuleService.getCollectionVersionOfUniversity(universityId));
+
+		// Unlinking a module changes its own version as well
+		long version = studyModuleService.getModuleVersion(baseId + 2);
+		studyModuleService.unlinkModuleFromUniversity(baseId + 2, universityId);
+		assertNotEquals(version, studyModuleService.getModuleVersion(baseId + 2));
+	}
+
+	@Test
+	public void testModuleUnlinkedAfterItsVersionWasFoundIsNotServed() {
+		Long moduleId = moduleIds.get(0);
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+		long version = studyModuleService.getModuleVersionForUniversity(universityId, moduleId);
+		assertEquals(moduleId, studyModuleService.getModuleForUniversity(universityId, moduleId, version).getId());
+
+		// Moved to the other university between reading the version and loading
+		studyModuleService.unlinkModuleFromUniversity(moduleId, universityId);
+		studyModuleService.linkModuleToUniversity(moduleId, otherUniversityId);
+
+		assertThrows(ModuleNotLinkedException.class,
+				() -> studyModuleService.getModuleForUniversity(universityId, moduleId, version));
+	}
+
+	@Test
+	public void testMissingUniversityIsReportedFirst() {
+		Long missingUniversityId = otherUniversityId + 1000;
+		Long missingModuleId = moduleIds.get(2) + 1000;
+
+		assertThrows(UniversityNotFoundException.class,
+				() -> studyModuleService.linkModuleToUniversity(missingModuleId, missingUniversityId));
+		assertThrows(UniversityNotFoundException.class,
+				() -> studyModuleService.unlinkModuleFromUniversity(missingModuleId, missingUniversityId));
+		assertThrows(StudyModuleNotFoundException.class,
+				() -> studyModuleService.linkModuleToUniversity(missingModuleId, universityId));
+		assertThrows(StudyModuleNotFoundException.class,
+				() -> studyModuleService.unlinkModuleFromUniversity(missingModuleId, universityId));
+	}
+
+	private List<Long> getModuleIds(Long universityId) {
+		return studyModuleService.getModulesForUniversity(universityId, "", "", 0, null, "id_asc", false)
+				.map(StudyModuleSummary::id)
+				.toList();
+	}
+}
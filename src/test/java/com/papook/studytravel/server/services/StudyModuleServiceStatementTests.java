@@ -0,0 +1,251 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.services.ServiceTestFixtures.studyModule;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.papook.studytravel.server.errors.ModuleNotLinkedException;
+import com.papook.studytravel.server.errors.ModuleTakenException;
+import com.papook.studytravel.server.errors.StudyModuleNotFoundException;
+import com.papook.studytravel.server.errors.UniversityNotFoundException;
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.StudyModuleSummary;
+import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.UniversitySummary;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Counts the SQL statements that linking, unlinking and updating a study
+ * module send to the database, and checks that the collections are read
+ * without loading entities and that the entities looked up by ID are cached.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:statementcount",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class StudyModuleServiceStatementTests {
+	// A single conditional update that also checks the university, and the
+	// update of the version of the collection
+	private static final long MAX_STATEMENTS_PER_LINK = 2;
+
+	@Autowired
+	private StudyModuleService studyModuleService;
+
+	@Autowired
+	private UniversityService universityService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Statistics statistics;
+	private Long universityId;
+	private Long moduleId;
+
+	@BeforeEach
+	public void setUp() {
+		studyModuleService.deleteAllModules();
+		universityService.deleteAllUniversities();
+
+		University university = university();
+		universityService.createUniversity(university);
+		universityId = university.getId();
+
+		StudyModule module = studyModule();
+		studyModuleService.createModule(module);
+		moduleId = module.getId();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	public void testLinkStatementCount() {
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+
+		assertStatementCountAtMost(MAX_STATEMENTS_PER_LINK);
+		assertEquals(universityId, studyModuleService.getModuleById(moduleId).getUniversityId());
+	}
+
+	@Test
+	public void testUnlinkStatementCount() {
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+		statistics.clear();
+
+		studyModuleService.unlinkModuleFromUniversity(moduleId, universityId);
+
+		assertStatementCountAtMost(MAX_STATEMENTS_PER_LINK);
+		assertNull(studyModuleService.getModuleById(moduleId).getUniversityId());
+	}
+
+	@Test
+	public void testLinkToSameUniversityDoesNotUpdate() {
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+		statistics.clear();
+
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+
+		// The claim that matches no row and the selects of the university and
+		// the module. Nothing changed, so the version of the collection is kept.
+		assertStatementCountAtMost(3);
+		assertEquals(universityId, studyModuleService.getModuleById(moduleId).getUniversityId());
+	}
+
+	@Test
+	public void testLinkToOtherUniversityFails() {
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+
+		University otherUniversity = university();
+		universityService.createUniversity(otherUniversity);
+
+		assertThrows(ModuleTakenException.class,
+				() -> studyModuleService.linkModuleToUniversity(moduleId, otherUniversity.getId()));
+		assertEquals(universityId, studyModuleService.getModuleById(moduleId).getUniversityId());
+	}
+
+	@Test
+	public void testUnlinkNotLinkedModuleFails() {
+		assertThrows(ModuleNotLinkedException.class,
+				() -> studyModuleService.unlinkModuleFromUniversity(moduleId, universityId));
+	}
+
+	@Test
+	public void testUpdateExistingModuleStatementCount() {
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+		StudyModule module = studyModule();
+		module.setId(moduleId);
+		module.setName("Updated Study Module");
+		statistics.clear();
+
+		Optional<URI> location = studyModuleService.updateModule(moduleId, module);
+
+		// A single update statement and the update of the version of the
+		// collection, the link to the university stays unchanged
+		assertStatementCountAtMost(2);
+		assertTrue(location.isEmpty());
+		StudyModule updatedModule = studyModuleService.getModuleById(moduleId);
+		assertEquals("Updated Study Module", updatedModule.getName());
+		assertEquals(universityId, updatedModule.getUniversityId());
+	}
+
+	@Test
+	public void testUpdateMissingModuleCreatesIt() {
+		// An ID within the reserved block, so the ID sequence is not changed
+		Long newModuleId = moduleId + 1;
+		StudyModule module = studyModule();
+		module.setId(newModuleId);
+		statistics.clear();
+
+		Optional<URI> location = studyModuleService.updateModule(newModuleId, module);
+
+		// The update that finds no row, the insert and the update of the
+		// version of the collection
+		assertStatementCountAtMost(3);
+		assertEquals(Optional.of(module.getSelf()), location);
+		assertEquals("Study Module", studyModuleService.getModuleById(newModuleId).getName());
+	}
+
+	@Test
+	public void testCollectionsLoadNoEntities() {
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+		statistics.clear();
+
+		List<StudyModuleSummary> modules = new ArrayList<>();
+		modules.addAll(studyModuleService.getModules("", "", 0, null, "name_asc", true).getContent());
+		modules.addAll(studyModuleService.scrollModules("", "", null, null, "name_asc", false).getContent());
+		modules.addAll(studyModuleService
+				.getModulesForUniversity(universityId, "", "", 0, null, "id_asc", false).getContent());
+		modules.addAll(studyModuleService
+				.scrollModulesForUniversity(universityId, "study", "", null, null, "creditPoints_desc", false)
+				.getContent());
+		studyModuleService.exportModules("", "spring", modules::add);
+
+		List<UniversitySummary> universities = new ArrayList<>();
+		universities.addAll(universityService.getUniversities("", "", 0, null, "id_asc", false).getContent());
+		universities.addAll(universityService.scrollUniversities("", "", null, null, "name_desc", true).getContent());
+		universityService.exportUniversities("", "", universities::add);
+
+		assertEquals(0, statistics.getEntityLoadCount());
+		assertEquals(5, modules.size());
+		modules.forEach(module -> assertEquals(moduleId, module.id()));
+		assertEquals(3, universities.size());
+		universities.forEach(university -> assertEquals(universityId, university.id()));
+	}
+
+	@Test
+	public void testLookupsAreCached() {
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+		statistics.clear();
+
+		for (int i = 0; i < 3; i++) {
+			studyModuleService.getModuleForUniversity(universityId, moduleId);
+			assertTrue(studyModuleService.isModuleLinkedToUniversity(moduleId, universityId));
+			studyModuleService.getModulesForUniversity(universityId, "", "", 0, null, "id_asc", false);
+			universityService.getUniversityById(universityId);
+		}
+
+		// The entities are loaded once. The pages of modules are read every
+		// time, and so is the existence of the university, three times per round.
+		assertEquals(1, statistics.getEntityStatistics(University.class.getName()).getLoadCount());
+		assertEquals(1, statistics.getEntityStatistics(StudyModule.class.getName()).getLoadCount());
+		assertEquals(2 + 3 * 4, statistics.getPrepareStatementCount());
+		assertTrue(meterRegistry.get("cache.gets").tag("cache", "University").tag("result", "hit")
+				.functionCounter().count() >= 2);
+	}
+
+	@Test
+	public void testWritesInvalidateCachedEntities() {
+		studyModuleService.getModuleById(moduleId);
+		universityService.getUniversityById(universityId);
+
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+		assertEquals(universityId, studyModuleService.getModuleById(moduleId).getUniversityId());
+
+		StudyModule module = studyModule();
+		module.setId(moduleId);
+		module.setName("Updated Study Module");
+		studyModuleService.updateModule(moduleId, module);
+		assertEquals("Updated Study Module", studyModuleService.getModuleById(moduleId).getName());
+
+		University university = university();
+		university.setId(universityId);
+		university.setName("Updated University");
+		universityService.updateUniversity(universityId, university);
+		assertEquals("Updated University", universityService.getUniversityById(universityId).getName());
+
+		studyModuleService.unlinkModuleFromUniversity(moduleId, universityId);
+		assertNull(studyModuleService.getModuleById(moduleId).getUniversityId());
+
+		studyModuleService.linkModuleToUniversity(moduleId, universityId);
+		studyModuleService.getModuleById(moduleId);
+		universityService.deleteUniversity(universityId);
+		assertThrows(UniversityNotFoundException.class, () -> universityService.verifyExists(universityId));
+		assertThrows(StudyModuleNotFoundException.class, () -> studyModuleService.verifyExists(moduleId));
+	}
+
+	private void assertStatementCountAtMost(long maxStatements) {
+		long statements = statistics.getPrepareStatementCount();
+		assertTrue(statements <= maxStatements,
+				"Expected at most " + maxStatements + " statements, but " + statements + " were executed");
+		assertEquals(1, statistics.getTransactionCount(), "Expected a single transaction");
+	}
+}
@@ -0,0 +1,127 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
+import static com.papook.studytravel.server.services.ServiceTestFixtures.universityBuilder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.papook.studytravel.server.errors.InvalidCursorException;
+import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.UniversitySummary;
+import com.papook.studytravel.server.utils.CursorSlice;
+
+/**
+ * Scrolls through the universities with keyset pagination and compares the
+ * slices with the expected sort order.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:scroll")
+public class UniversityServiceScrollTests {
+	private static final int UNIVERSITY_COUNT = PAGE_SIZE * 2 + 15;
+
+	@Autowired
+	private UniversityService universityService;
+
+	private List<University> universities;
+
+	@BeforeEach
+	public void setUp() {
+		universityService.deleteAllUniversities();
+
+		universities = new ArrayList<>();
+		for (int i = 0; i < UNIVERSITY_COUNT; i++) {
+			// Several universities share a name and a date, so the ID decides the order
+			LocalDate springSemesterStart = LocalDate.of(2024, 1 + i % 5, 1);
+			University university = universityBuilder()
+					.name("University " + i % 7)
+					.springSemesterStart(springSemesterStart)
+					.fallSemesterStart(springSemesterStart)
+					.build();
+			universityService.createUniversity(university);
+			universities.add(university);
+		}
+	}
+
+	@Test
+	public void testScrollForwardAndBackward() {
+		List<Long> expectedIds = universities.stream()
+				.sorted(Comparator.comparing(University::getName).thenComparing(University::getId))
+				.map(University::getId)
+				.toList();
+
+		// Scroll forward through all slices
+		List<CursorSlice<UniversitySummary>> slices = new ArrayList<>();
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorSlice<UniversitySummary> slice = universityService.scrollUniversities("", "", cursor, null, "name_asc", false);
+			slices.add(slice);
+			slice.forEach(university -> ids.add(university.id()));
+			cursor = slice.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(expectedIds, ids);
+		assertEquals(3, slices.size());
+		assertNull(slices.get(0).getPrevCursor());
+		assertFalse(slices.get(2).hasNext());
+
+		// Scroll backward from the last slice to the first one
+		CursorSlice<UniversitySummary> secondSlice = universityService.scrollUniversities(
+				"", "", slices.get(2).getPrevCursor(), null, "name_asc", false);
+		assertEquals(getIds(slices.get(1)), getIds(secondSlice));
+		assertTrue(secondSlice.hasNext());
+
+		CursorSlice<UniversitySummary> firstSlice = universityService.scrollUniversities(
+				"", "", secondSlice.getPrevCursor(), null, "name_asc", false);
+		assertEquals(getIds(slices.get(0)), getIds(firstSlice));
+		assertNull(firstSlice.getPrevCursor());
+	}
+
+	@Test
+	public void testScrollByDateDescending() {
+		List<Long> expectedIds = universities.stream()
+				.sorted(Comparator.comparing(University::getSpringSemesterStart).reversed()
+						.thenComparing(University::getId))
+				.map(University::getId)
+				.toList();
+
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorSlice<UniversitySummary> slice = universityService.scrollUniversities(
+					"", "", cursor, null, "springSemesterStart_desc", true);
+			assertEquals(UNIVERSITY_COUNT, slice.getTotal().orElseThrow());
+			slice.forEach(university -> ids.add(university.id()));
+			cursor = slice.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(expectedIds, ids);
+	}
+
+	@Test
+	public void testInvalidCursor() {
+		String cursor = universityService.scrollUniversities("", "", null, null, "name_asc", false).getNextCursor();
+
+		assertThrows(InvalidCursorException.class,
+				() -> universityService.scrollUniversities("", "", "not a cursor", null, "name_asc", false));
+		// The cursor was created for a different sort order
+		assertThrows(InvalidCursorException.class,
+				() -> universityService.scrollUniversities("", "", cursor, null, "country_asc", false));
+	}
+
+	private static List<Long> getIds(CursorSlice<UniversitySummary> slice) {
+		return slice.map(UniversitySummary::id).toList();
+	}
+}
@@ -0,0 +1,119 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.papook.studytravel.server.models.University;
+import com.papook.studytravel.server.models.UniversitySummary;
+
+/**
+ * Searches universities by name and country, which narrows the queries with
+ * the trigram index, and checks that the index follows the changes.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:search")
+public class UniversityServiceSearchTests {
+
+	@Autowired
+	private UniversityService universityService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private University munich;
+	private University vienna;
+
+	@BeforeEach
+	public void setUp() {
+		universityService.deleteAllUniversities();
+
+		munich = university("Technical University of Munich", "Germany");
+		vienna = university("University of Vienna", "Austria");
+		universityService.createUniversity(munich);
+		universityService.createUniversity(vienna);
+		universityService.createUniversities(List.of(
+				university("Munich University of Applied Sciences", "Germany")));
+	}
+
+	@Test
+	public void testSearch() {
+		assertEquals(2, search("Munich", "").size());
+		assertEquals(List.of(munich.getId()), search("Technical", "germany"));
+		assertEquals(List.of(vienna.getId()), search("Vienna", "Austria"));
+		assertEquals(List.of(), search("Berlin", ""));
+		// Too short for the index, the database filters alone
+		assertEquals(3, search("U", "").size());
+	}
+
+	@Test
+	public void testSearchAfterUpdateAndDelete() {
+		University graz = university("University of Graz", "Austria");
+		graz.setId(vienna.getId());
+		universityService.updateUniversity(vienna.getId(), graz);
+
+		assertEquals(List.of(), search("Vienna", ""));
+		assertEquals(List.of(vienna.getId()), search("Graz", ""));
+
+		universityService.deleteUniversity(munich.getId());
+		assertEquals(1, search("Munich", "").size());
+	}
+
+	@Test
+	public void testSearchAfterRollback() {
+		University graz = university("University of Graz", "Austria");
+		graz.setId(vienna.getId());
+		University salzburg = university("University of Salzburg", "Austria");
+		salzburg.setId(vienna.getId() + 1000);
+		transactionTemplate.executeWithoutResult(status -> {
+			universityService.updateUniversity(vienna.getId(), graz);
+			universityService.updateUniversity(salzburg.getId(), salzburg);
+			status.setRollbackOnly();
+		});
+
+		// The index keeps the rows that are still stored
+		assertEquals(List.of(vienna.getId()), search("Vienna", ""));
+		assertEquals(List.of(), search("Graz", ""));
+		assertEquals(List.of(), search("Salzburg", ""));
+	}
+
+	@Test
+	public void testSearchIgnoresCaseAndAccents() {
+		assertEquals(2, search("MUNICH", "").size());
+		assertEquals(List.of(vienna.getId()), search("university of vienna", "AUSTRIA"));
+
+		// The bulk update normalizes the search columns as well
+		University geneva = university("Université de Genève", "Suisse");
+		geneva.setId(vienna.getId());
+		universityService.updateUniversity(vienna.getId(), geneva);
+
+		assertEquals(List.of(vienna.getId()), search("geneve", "suisse"));
+		assertEquals(List.of(vienna.getId()), search("UNIVERSITÉ DE GENÈVE", ""));
+		assertEquals(List.of(vienna.getId()), search("Gen", ""));
+	}
+
+	@Test
+	public void testExportFilters() {
+		List<UniversitySummary> exported = new ArrayList<>();
+		universityService.exportUniversities("munich", "GERMANY", exported::add);
+
+		assertEquals(2, exported.size());
+		assertEquals(munich.getId(), exported.get(0).id());
+		assertEquals(munich.getSelf(), exported.get(0).getSelf());
+		assertTrue(exported.get(0).id() < exported.get(1).id());
+	}
+
+	private List<Long> search(String name, String country) {
+		return universityService.scrollUniversities(name, country, null, null, "id_asc", false)
+				.map(UniversitySummary::id)
+				.toList();
+	}
+}
@@ -0,0 +1,147 @@
+package com.papook.studytravel.server.services;
+
+import static com.papook.studytravel.server.services.ServiceTestFixtures.university;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.papook.studytravel.server.errors.PreconditionFailedException;
+import com.papook.studytravel.server.errors.UniversityNotFoundException;
+import com.papook.studytravel.server.models.University;
+
+/**
+ * Checks that the versions and collection ETags change with every write, also
+ * when a deleted university is created again with the same ID, and that a
+ * conditional update only replaces the expected version.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:version")
+public class UniversityServiceVersionTests {
+
+	@Autowired
+	private UniversityService universityService;
+
+	@Test
+	public void testVersionChangesOnWrite() {
+		University university = university("Technical University of Munich");
+		universityService.createUniversity(university);
+		long id = university.getId();
+		long createdVersion = universityService.getUniversityVersion(id);
+		long createdCollectionVersion = universityService.getCollectionVersion();
+
+		University update = university("University of Vienna");
+		update.setId(id);
+		universityService.updateUniversity(id, update);
+		long updatedVersion = universityService.getUniversityVersion(id);
+
+		assertNotEquals(createdVersion, updatedVersion);
+		assertNotEquals(createdCollectionVersion, universityService.getCollectionVersion());
+		assertEquals(updatedVersion, universityService.getUniversityById(id).getVersion());
+
+		// A university created with the freed ID gets a new version
+		universityService.deleteUniversity(id);
+		assertThrows(UniversityNotFoundException.class, () -> universityService.getUniversityVersion(id));
+		University recreated = university("Technical University of Munich");
+		recreated.setId(id);
+		universityService.updateUniversity(id, recreated);
+
+		assertNotEquals(createdVersion, universityService.getUniversityVersion(id));
+		assertNotEquals(updatedVersion, universityService.getUniversityVersion(id));
+	}
+
+	@Test
+	public void testUpdateIfMatch() {
+		University university = university("Technical University of Munich");
+		universityService.createUniversity(university);
+		long id = university.getId();
+		long version = universityService.getUniversityVersion(id);
+
+		University update = university("University of Vienna");
+		update.setId(id);
+		long newVersion = universityService.updateUniversityIfMatch(id, update, List.of(version));
+		assertEquals(newVersion, universityService.getUniversityVersion(id));
+
+		// The old version is stale now
+		University staleUpdate = university("University of Graz");
+		staleUpdate.setId(id);
+		assertThrows(PreconditionFailedException.class,
+				() -> universityService.updateUniversityIfMatch(id, staleUpdate, List.of(version)));
+		assertThrows(PreconditionFailedException.class,
+				() -> universityService.updateUniversityIfMatch(id, staleUpdate, List.of()));
+		assertEquals("University of Vienna", universityService.getUniversityById(id).getName());
+
+		// A missing university is not created
+		staleUpdate.setId(id + 1000);
+		assertThrows(PreconditionFailedException.class,
+				() -> universityService.updateUniversityIfMatch(id + 1000, staleUpdate, null));
+	}
+
+	@Test
+	public void testConcurrentUpdatesIfMatch() throws Exception {
+		int writers = 8;
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < writers; i++) {
+			University university = university("University " + i);
+			universityService.createUniversity(university);
+			ids.add(university.getId());
+		}
+		long sharedId = ids.get(0);
+		long sharedVersion = universityService.getUniversityVersion(sharedId);
+
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			// Every writer updates the same university with the same expected
+			// version, and its own university
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < writers; i++) {
+				long ownId = ids.get(i);
+				String name = "Writer " + i;
+				results.add(executor.submit(() -> {
+					start.await();
+					if (ownId != sharedId) {
+						long ownVersion = universityService.getUniversityVersion(ownId);
+						University own = university(name);
+						own.setId(ownId);
+						universityService.updateUniversityIfMatch(ownId, own, List.of(ownVersion));
+					}
+
+					University shared = university(name);
+					shared.setId(sharedId);
+					try {
+						universityService.updateUniversityIfMatch(sharedId, shared, List.of(sharedVersion));
+						return true;
+					} catch (PreconditionFailedException e) {
+						return false;
+					}
+				}));
+			}
+			start.countDown();
+
+			int succeeded = 0;
+			for (Future<Boolean> result : results) {
+				succeeded += result.get() ? 1 : 0;
+			}
+			assertEquals(1, succeeded);
+		} finally {
+			executor.shutdown();
+		}
+
+		// The updates of different universities never conflict
+		for (int i = 1; i < writers; i++) {
+			assertEquals("Writer " + i, universityService.getUniversityById(ids.get(i)).getName());
+		}
+		assertTrue(universityService.getUniversityById(sharedId).getName().startsWith("Writer "));
+	}
+}
@@ -0,0 +1,20 @@
+package com.papook.studytravel.server.utils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.papook.studytravel.server.errors.BatchTooLargeException;
+
+public class BatchSizeLimitTests {
+
+	@Test
+	public void testBatchSizeIsLimited() {
+		BatchSizeLimit limit = new BatchSizeLimit();
+
+		assertDoesNotThrow(() -> limit.verify(0));
+		assertDoesNotThrow(() -> limit.verify(BatchSizeLimit.DEFAULT_MAX_SIZE));
+		assertThrows(BatchTooLargeException.class, () -> limit.verify(BatchSizeLimit.DEFAULT_MAX_SIZE + 1));
+	}
+}
@@ -0,0 +1,87 @@
+package com.papook.studytravel.server.utils;
+
+import static com.papook.studytravel.server.ServerConfiguration.BASE_URI;
+import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.SliceImpl;
+
+public class CollectionLinkTemplateTests {
+	private static final CollectionLinkTemplate TEMPLATE = new CollectionLinkTemplate(
+			"name", "byName",
+			"country", "byCountry",
+			"byNameAndCountry");
+
+	@Test
+	public void testCursorLinks() {
+		CursorSlice<Object> slice = new CursorSlice<>(List.of(new Object()),
+				PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Order.desc("name"))), "next", "prev", null);
+
+		List<String> links = TEMPLATE.render("/universities", "name=tum&cursor=abc&sort=name_desc", slice);
+
+		assertEquals(List.of(
+				link("/universities?name=tum&cursor=abc&sort=name_desc", "self"),
+				link("/universities?name=tum&sort=name_desc&cursor=prev", "prev"),
+				link("/universities?name=tum&sort=name_desc&cursor=next", "next"),
+				link("/universities?name=tum&sort=name_desc&country={country}", "byCountry"),
+				link("/universities?sort=name_desc&name={name}&country={country}", "byNameAndCountry"),
+				link("/universities?name=tum&sort=name_asc", "reverseSortOrder"),
+				link("/universities?name=tum&sort={field}_{asc, desc}", "setSortOrder")),
+				links);
+	}
+
+	@Test
+	public void testPageLinks() {
+		PageImpl<Object> page = new PageImpl<>(Collections.nCopies(PAGE_SIZE, new Object()),
+				PageRequest.of(1, PAGE_SIZE), 100);
+
+		List<String> links = TEMPLATE.render("/universities", "page=1&country=Germany", page);
+
+		assertEquals(List.of(
+				link("/universities?country=Germany&page=1", "self"),
+				link("/universities?country=Germany&page=0", "prev"),
+				link("/universities?country=Germany&page=2", "next"),
+				link("/universities?country=Germany&name={name}", "byName"),
+				link("/universities?name={name}&country={country}", "byNameAndCountry"),
+				link("/universities?country=Germany&sort=id_desc", "reverseSortOrder"),
+				link("/universities?country=Germany&sort={field}_{asc, desc}", "setSortOrder")),
+				links);
+	}
+
+	@Test
+	public void testPageSizeIsKept() {
+		CursorSlice<Object> slice = new CursorSlice<>(List.of(new Object()),
+				PageRequest.of(0, 500, Sort.by(Sort.Order.asc("id"))), "next", null, null);
+
+		List<String> links = TEMPLATE.render("/universities", "size=500&name=tum", slice);
+
+		assertEquals(link("/universities?size=500&name=tum", "self"), links.get(0));
+		assertEquals(link("/universities?size=500&name=tum&cursor=next", "next"), links.get(1));
+		assertEquals(link("/universities?size=500&name=tum&sort=id_desc", "reverseSortOrder"), links.get(4));
+	}
+
+	@Test
+	public void testLinksWithoutQuery() {
+		List<String> links = TEMPLATE.render("/universities", null, new SliceImpl<>(List.of()));
+
+		assertEquals(List.of(
+				link("/universities?page=0", "self"),
+				link("/universities?name={name}", "byName"),
+				link("/universities?country={country}", "byCountry"),
+				link("/universities?name={name}&country={country}", "byNameAndCountry"),
+				link("/universities?sort=id_desc", "reverseSortOrder"),
+				link("/universities?sort={field}_{asc, desc}", "setSortOrder")),
+				links);
+	}
+
+	private static String link(String relativeUri, String rel) {
+		return "<" + BASE_URI + relativeUri + ">; rel=\"" + rel + "\"";
+	}
+}
@@ -0,0 +1,138 @@
+package com.papook.studytravel.server.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+public class CompactLongSetTests {
+
+	@Test
+	public void testConsecutiveValuesFormRange() {
+		CompactLongSet set = new CompactLongSet();
+		set.add(3);
+		set.add(1);
+		set.add(2);
+		set.addRange(5, 9);
+		set.addRange(4, 6);
+
+		assertEquals(Map.of(1L, 9L), ranges(set));
+		assertEquals(9, set.size());
+		assertFalse(set.add(5));
+	}
+
+	@Test
+	public void testRemoveSplitsRange() {
+		CompactLongSet set = new CompactLongSet();
+		set.addRange(1, 10);
+		set.addRange(20, 30);
+
+		assertTrue(set.remove(5));
+		assertFalse(set.remove(15));
+		set.removeRange(8, 25);
+
+		assertEquals(Map.of(1L, 4L, 6L, 7L, 26L, 30L), ranges(set));
+		assertEquals(11, set.size());
+		assertEquals(7, set.runEnd(6, 100));
+		assertNull(set.runEnd(8, 100));
+	}
+
+	@Test
+	public void testRangesSpanChunks() {
+		CompactLongSet set = new CompactLongSet();
+		set.addRange(100, 1_000_000);
+		set.remove(500_000);
+
+		assertEquals(Map.of(100L, 499_999L, 500_001L, 1_000_000L), ranges(set));
+		assertEquals(999_900, set.size());
+		assertEquals(499_999, set.runEnd(100, 2_000_000));
+		assertEquals(10_000, set.runEnd(100, 10_000));
+		assertEquals(1_000_000, set.runEnd(500_001, 2_000_000));
+	}
+
+	@Test
+	public void testPollFirst() {
+		CompactLongSet set = new CompactLongSet();
+		set.addRange(4, 5);
+		set.add(2);
+		set.add(100_000);
+
+		assertEquals(2, set.pollFirst());
+		assertEquals(4, set.pollFirst());
+		assertEquals(5, set.pollFirst());
+		assertEquals(100_000, set.pollFirst());
+		assertNull(set.pollFirst());
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void testMatchesTreeSet() {
+		Random random = new Random(42);
+		CompactLongSet set = new CompactLongSet();
+		TreeSet<Long> expected = new TreeSet<>();
+
+		// Ranges of different lengths, so the chunks change between sorted
+		// arrays, bitmaps and full chunks
+		for (int i = 0; i < 20_000; i++) {
+			long first = random.nextInt(20_000);
+			long last = first + random.nextInt(random.nextBoolean() ? 20 : 5_000);
+
+			switch (random.nextInt(4)) {
+				case 0 -> {
+					set.addRange(first, last);
+					for (long value = first; value <= last; value++) {
+						expected.add(value);
+					}
+				}
+				case 1 -> {
+					set.removeRange(first, last);
+					expected.subSet(first, true, last, true).clear();
+				}
+				case 2 -> assertEquals(expected.add(first), set.add(first));
+				default -> {
+					assertEquals(expected.remove(first), set.remove(first));
+					assertEquals(expected.pollFirst(), set.pollFirst());
+				}
+			}
+
+			assertEquals(expected.size(), set.size());
+		}
+
+		for (long value = 0; value < 26_000; value++) {
+			assertEquals(expected.contains(value), set.contains(value));
+		}
+		assertEquals(ranges(expected), ranges(set));
+	}
+
+	private static Map<Long, Long> ranges(CompactLongSet set) {
+		Map<Long, Long> ranges = new TreeMap<>();
+		set.forEachRange(ranges::put);
+		return ranges;
+	}
+
+	private static Map<Long, Long> ranges(TreeSet<Long> values) {
+		Map<Long, Long> ranges = new TreeMap<>();
+		Long first = null;
+		long last = 0;
+		for (long value : values) {
+			if (first == null || value != last + 1) {
+				if (first != null) {
+					ranges.put(first, last);
+				}
+				first = value;
+			}
+			last = value;
+		}
+		if (first != null) {
+			ranges.put(first, last);
+		}
+		return ranges;
+	}
+}
@@ -0,0 +1,116 @@
+package com.papook.studytravel.server.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+public class EntityCacheTests {
+
+	@Test
+	public void testEntityIsLoadedOnce() {
+		EntityCache cache = new EntityCache();
+		AtomicInteger loads = new AtomicInteger();
+
+		for (int i = 0; i < 3; i++) {
+			Optional<String> entity = cache.get(String.class, 1L, id -> {
+				loads.incrementAndGet();
+				return Optional.of("Entity " + id);
+			});
+			assertEquals(Optional.of("Entity 1"), entity);
+		}
+
+		assertEquals(1, loads.get());
+		CacheStats stats = cache.stats(String.class);
+		assertEquals(2, stats.hitCount());
+		assertEquals(1, stats.missCount());
+	}
+
+	@Test
+	public void testMissingEntityIsNotKept() {
+		EntityCache cache = new EntityCache();
+
+		assertEquals(Optional.empty(), cache.get(String.class, 1L, id -> Optional.empty()));
+		// Created after it was looked up
+		assertEquals(Optional.of("Created"), cache.get(String.class, 1L, id -> Optional.of("Created")));
+	}
+
+	@Test
+	public void testTypesAreCachedSeparately() {
+		EntityCache cache = new EntityCache();
+		cache.get(String.class, 1L, id -> Optional.of("Entity"));
+
+		assertEquals(Optional.of(1), cache.get(Integer.class, 1L, id -> Optional.of(1)));
+		cache.invalidateAll(Integer.class);
+		assertEquals(1, cache.stats(String.class).missCount());
+		assertEquals(Optional.of("Entity"), cache.get(String.class, 1L, id -> Optional.of("Reloaded")));
+	}
+
+	@Test
+	public void testInvalidate() {
+		EntityCache cache = new EntityCache();
+		cache.get(String.class, 1L, id -> Optional.of("Old 1"));
+		cache.get(String.class, 2L, id -> Optional.of("Old 2"));
+		cache.get(String.class, 3L, id -> Optional.of("Old 3"));
+
+		cache.invalidate(String.class, 1L);
+		assertEquals(Optional.of("New 1"), cache.get(String.class, 1L, id -> Optional.of("New 1")));
+		assertEquals(Optional.of("Old 2"), cache.get(String.class, 2L, id -> Optional.of("New 2")));
+
+		cache.invalidate(String.class, List.of(2L, 3L));
+		assertEquals(Optional.of("New 2"), cache.get(String.class, 2L, id -> Optional.of("New 2")));
+		assertEquals(Optional.of("New 3"), cache.get(String.class, 3L, id -> Optional.of("New 3")));
+
+		cache.invalidateAll(String.class);
+		assertEquals(Optional.of("Newer 1"), cache.get(String.class, 1L, id -> Optional.of("Newer 1")));
+	}
+
+	@Test
+	public void testInvalidatedAgainAfterTransaction() {
+		EntityCache cache = new EntityCache();
+		cache.get(String.class, 1L, id -> Optional.of("Old"));
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			cache.invalidate(String.class, 1L);
+			// Loaded by another request before the transaction committed
+			cache.get(String.class, 1L, id -> Optional.of("Old"));
+
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager
+					.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertEquals(Optional.of("New"), cache.get(String.class, 1L, id -> Optional.of("New")));
+	}
+
+	@Test
+	public void testSizeIsBounded() throws InterruptedException {
+		EntityCache cache = new EntityCache();
+		ReflectionTestUtils.setField(cache, "maxSize", 10L);
+
+		for (long id = 1; id <= 100; id++) {
+			cache.get(Long.class, id, Optional::of);
+		}
+
+		// The entities are evicted in the background
+		long deadline = System.currentTimeMillis() + 5000;
+		while (cache.stats(Long.class).evictionCount() < 90 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(cache.stats(Long.class).evictionCount() >= 90,
+				"Expected at least 90 evictions, but were " + cache.stats(Long.class).evictionCount());
+	}
+}
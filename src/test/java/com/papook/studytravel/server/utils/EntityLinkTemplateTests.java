@@ -0,0 +1,19 @@
+package com.papook.studytravel.server.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class EntityLinkTemplateTests {
+
+	@Test
+	public void testMatchesFormattedLinks() {
+		EntityLinkTemplate template = new EntityLinkTemplate("/universities/", "/modules/{moduleId}",
+				"putLinkModule", "getModuleOfUniversity");
+
+		assertArrayEquals(new String[] {
+				HypermediaGenerator.formatLinkHeader("/universities/42/modules/{moduleId}", "putLinkModule"),
+				HypermediaGenerator.formatLinkHeader("/universities/42/modules/{moduleId}", "getModuleOfUniversity") },
+				template.render(42));
+	}
+}
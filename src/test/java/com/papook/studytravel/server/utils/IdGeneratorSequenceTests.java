@@ -0,0 +1,162 @@
+package com.papook.studytravel.server.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.papook.studytravel.server.repositories.IdSequenceRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Generates IDs from a persistent sequence, as after a restart or with several
+ * instances sharing the database.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:idsequence",
+		"studytravel.id.block-size=10",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class IdGeneratorSequenceTests {
+	private static final int BLOCK_SIZE = 10;
+
+	@Autowired
+	private ObjectProvider<IdGenerator> idGenerators;
+
+	@Autowired
+	private IdSequenceRepository sequenceRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private String sequenceName;
+
+	@BeforeEach
+	public void setUp() {
+		// Every test uses its own sequence
+		sequenceName = "test_" + System.nanoTime();
+	}
+
+	@Test
+	public void testBlockCostsOneStatement() {
+		IdGenerator idGenerator = idGenerators.getObject();
+		idGenerator.attach(sequenceName, 1L);
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		for (int i = 1; i <= 3 * BLOCK_SIZE; i++) {
+			assertEquals(i, idGenerator.nextId());
+		}
+
+		assertEquals(3, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	public void testBatchCostsOneStatement() {
+		IdGenerator idGenerator = idGenerators.getObject();
+		idGenerator.attach(sequenceName, 1L);
+		idGenerator.nextId();
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		// The batch spans several blocks and is reserved after the current one
+		long[] ids = idGenerator.nextIds(3 * BLOCK_SIZE + 5);
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(BLOCK_SIZE + 1 + i, ids[i]);
+		}
+		// The current block is still used by the next single ID
+		assertEquals(2, idGenerator.nextId());
+	}
+
+	@Test
+	public void testContinueAfterStoredIds() {
+		IdGenerator idGenerator = idGenerators.getObject();
+		idGenerator.attach(sequenceName, 1L);
+		idGenerator.nextId();
+
+		// A second start with rows that were not created by the generator
+		IdGenerator restarted = idGenerators.getObject();
+		restarted.attach(sequenceName, 100L);
+
+		assertEquals(100, restarted.nextId());
+		assertEquals(100 + BLOCK_SIZE, sequenceRepository.findById(sequenceName).orElseThrow().getNextValue());
+	}
+
+	@Test
+	public void testUnusedIdsSurviveRestart() {
+		IdGenerator idGenerator = idGenerators.getObject();
+		idGenerator.attach(sequenceName, 1L);
+		for (int i = 0; i < 4; i++) {
+			idGenerator.nextId();
+		}
+		idGenerator.markIdAvailable(2L);
+		idGenerator.markIdUsed(6L);
+		idGenerator.release();
+
+		IdGenerator restarted = idGenerators.getObject();
+		restarted.attach(sequenceName, 5L);
+
+		// The rest of the block is reused before a new block, the freed ID is not
+		Set<Long> ids = new HashSet<>();
+		for (int i = 0; i < 5; i++) {
+			ids.add(restarted.nextId());
+		}
+		assertEquals(Set.of(5L, 7L, 8L, 9L, 10L), ids);
+		assertEquals(11, restarted.nextId());
+	}
+
+	@Test
+	public void testResetDoesNotRewindSequence() {
+		IdGenerator idGenerator = idGenerators.getObject();
+		idGenerator.attach(sequenceName, 1L);
+		for (int i = 0; i < BLOCK_SIZE + 2; i++) {
+			idGenerator.nextId();
+		}
+
+		// Another instance may still hand out the IDs of its blocks
+		IdGenerator other = idGenerators.getObject();
+		other.attach(sequenceName, 1L);
+		long otherId = other.nextId();
+
+		idGenerator.reset();
+
+		assertEquals(BLOCK_SIZE + 3, idGenerator.nextId());
+		assertEquals(otherId + 1, other.nextId());
+		assertEquals(3 * BLOCK_SIZE + 1, sequenceRepository.findById(sequenceName).orElseThrow().getNextValue());
+	}
+
+	@Test
+	public void testInstancesReserveDifferentBlocks() {
+		IdGenerator first = idGenerators.getObject();
+		IdGenerator second = idGenerators.getObject();
+		first.attach(sequenceName, 1L);
+		second.attach(sequenceName, 1L);
+
+		Set<Long> ids = new HashSet<>();
+		for (int i = 0; i < 5 * BLOCK_SIZE; i++) {
+			assertTrue(ids.add(first.nextId()));
+			assertTrue(ids.add(second.nextId()));
+		}
+
+		// An ID used with PUT after the current blocks is not reserved again
+		long putId = 20 * BLOCK_SIZE;
+		first.markIdUsed(putId);
+		for (int i = 0; i < 20 * BLOCK_SIZE; i++) {
+			assertTrue(second.nextId() != putId);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package com.papook.studytravel.server.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.papook.studytravel.server.errors.IdOutOfRangeException;
+
+public class IdGeneratorTests {
+	private static final int THREADS = 256;
+	private static final int IDS_PER_THREAD = 2_000;
+
+	@Test
+	public void testReuseSemantics() {
+		IdGenerator idGenerator = new IdGenerator();
+
+		assertEquals(1, idGenerator.nextId());
+		assertEquals(2, idGenerator.nextId());
+
+		// A freed ID is reused before a new one is generated
+		idGenerator.markIdAvailable(1L);
+		assertEquals(1, idGenerator.nextId());
+
+		// IDs used with PUT are skipped, also when they were freed before
+		idGenerator.markIdUsed(3L);
+		idGenerator.markIdAvailable(2L);
+		idGenerator.markIdUsed(2L);
+		assertEquals(4, idGenerator.nextId());
+
+		// IDs after the current block are skipped as well
+		idGenerator.markIdUsed(IdGenerator.DEFAULT_BLOCK_SIZE + 1L);
+		for (int i = 5; i <= IdGenerator.DEFAULT_BLOCK_SIZE; i++) {
+			assertEquals(i, idGenerator.nextId());
+		}
+		assertEquals(IdGenerator.DEFAULT_BLOCK_SIZE + 2, idGenerator.nextId());
+
+		idGenerator.reset();
+		assertEquals(1, idGenerator.nextId());
+	}
+
+	@Test
+	public void testIdsAboveMaximumAreRejected() {
+		IdGenerator idGenerator = new IdGenerator();
+
+		assertThrows(IdOutOfRangeException.class, () -> idGenerator.markIdUsed(IdGenerator.DEFAULT_MAX_ID + 1));
+		assertThrows(IdOutOfRangeException.class, () -> idGenerator.markIdUsed(Long.MAX_VALUE));
+		assertEquals(1, idGenerator.nextId());
+	}
+
+	/**
+	 * Every thread generates IDs and frees some of them again. An ID must never
+	 * be held by two threads at the same time.
+	 */
+	@Test
+	public void testConcurrentIdsAreUnique() throws Exception {
+		IdGenerator idGenerator = new IdGenerator();
+		Map<Long, Integer> heldIds = new ConcurrentHashMap<>();
+
+		runConcurrently(thread -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			List<Long> ownIds = new ArrayList<>();
+
+			for (int i = 0; i < IDS_PER_THREAD; i++) {
+				long id = idGenerator.nextId();
+				Integer holder = heldIds.putIfAbsent(id, thread);
+				assertNull(holder, "ID " + id + " was generated for threads " + holder + " and " + thread);
+				ownIds.add(id);
+
+				// Delete one of the own entities now and then
+				if (random.nextInt(4) == 0) {
+					Long freedId = ownIds.remove(random.nextInt(ownIds.size()));
+					heldIds.remove(freedId);
+					idGenerator.markIdAvailable(freedId);
+				}
+			}
+		});
+
+		// The freed IDs were reused, so fewer IDs than requested were generated
+		long maxId = heldIds.keySet().stream().mapToLong(Long::longValue).max().orElseThrow();
+		assertTrue(maxId < (long) THREADS * IDS_PER_THREAD);
+	}
+
+	@Test
+	public void testConcurrentIdsSkipUsedIds() throws Exception {
+		IdGenerator idGenerator = new IdGenerator();
+		Set<Long> generatedIds = ConcurrentHashMap.newKeySet();
+
+		// Every third ID was created with PUT
+		for (long id = 3; id <= 3L * THREADS * IDS_PER_THREAD; id += 3) {
+			idGenerator.markIdUsed(id);
+		}
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < IDS_PER_THREAD; i++) {
+				long id = idGenerator.nextId();
+				assertTrue(generatedIds.add(id), "ID " + id + " was generated twice");
+				assertFalse(id % 3 == 0, "Used ID " + id + " was generated");
+			}
+		});
+
+		assertEquals(THREADS * IDS_PER_THREAD, generatedIds.size());
+	}
+
+	@Test
+	public void testConcurrentIdsSkipUsedRanges() throws Exception {
+		IdGenerator idGenerator = new IdGenerator();
+		Set<Long> generatedIds = ConcurrentHashMap.newKeySet();
+
+		// Dense ranges of IDs were created with PUT, across several blocks
+		// Half of the IDs are used, so all generated IDs are below the limit
+		long usedRangeLength = 10L * IdGenerator.DEFAULT_BLOCK_SIZE + 7;
+		long limit = 3L * THREADS * IDS_PER_THREAD;
+		for (long first = 100; first < limit; first += 2 * usedRangeLength) {
+			for (long id = first; id < first + usedRangeLength; id++) {
+				idGenerator.markIdUsed(id);
+			}
+		}
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < IDS_PER_THREAD; i++) {
+				long id = idGenerator.nextId();
+				assertTrue(generatedIds.add(id), "ID " + id + " was generated twice");
+				long offset = (id - 100) % (2 * usedRangeLength);
+				assertTrue(id < limit);
+				assertFalse(id >= 100 && offset < usedRangeLength, "Used ID " + id + " was generated");
+			}
+		});
+
+		assertEquals(THREADS * IDS_PER_THREAD, generatedIds.size());
+	}
+
+	/**
+	 * Runs the task on all threads at the same time and rethrows the first
+	 * failure.
+	 */
+	private static void runConcurrently(ThreadTask task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+
+		try {
+			for (int thread = 0; thread < THREADS; thread++) {
+				int threadNumber = thread;
+				futures.add(executor.submit(() -> {
+					start.await();
+					task.run(threadNumber);
+					return null;
+				}));
+			}
+
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@FunctionalInterface
+	private interface ThreadTask {
+		void run(int thread);
+	}
+}
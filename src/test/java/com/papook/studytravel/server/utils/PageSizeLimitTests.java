@@ -0,0 +1,20 @@
+package com.papook.studytravel.server.utils;
+
+import static com.papook.studytravel.server.ServerConfiguration.PAGE_SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class PageSizeLimitTests {
+
+	@Test
+	public void testRequestedSizeIsLimited() {
+		PageSizeLimit limit = new PageSizeLimit();
+
+		assertEquals(PAGE_SIZE, limit.resolve(null));
+		assertEquals(500, limit.resolve(500));
+		assertEquals(PageSizeLimit.DEFAULT_MAX_SIZE, limit.resolve(1_000_000));
+		assertEquals(1, limit.resolve(0));
+		assertEquals(1, limit.resolve(-5));
+	}
+}
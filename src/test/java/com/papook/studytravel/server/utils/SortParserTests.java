@@ -0,0 +1,32 @@
+package com.papook.studytravel.server.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import com.papook.studytravel.server.models.StudyModule;
+import com.papook.studytravel.server.models.University;
+
+public class SortParserTests {
+
+	@Test
+	public void testParseFieldAndDirection() {
+		assertEquals(Sort.by(Sort.Order.desc("name")), SortParser.parse("name_desc", University.class));
+		assertEquals(Sort.by(Sort.Order.asc("creditPoints")), SortParser.parse("creditPoints_asc", StudyModule.class));
+	}
+
+	@Test
+	public void testInvalidSortDefaultsToId() {
+		Sort idAscending = Sort.by(Sort.Order.asc("id"));
+
+		assertEquals(idAscending, SortParser.parse("country_asc", StudyModule.class));
+		assertEquals(idAscending, SortParser.parse("name_up", University.class));
+		assertEquals(idAscending, SortParser.parse("name", University.class));
+		assertEquals(idAscending, SortParser.parse("", University.class));
+		// The links are rendered from the ID and not stored
+		assertEquals(idAscending, SortParser.parse("self_desc", University.class));
+		assertEquals(idAscending, SortParser.parse("modules_asc", University.class));
+		assertEquals(idAscending, SortParser.parse("self_asc", StudyModule.class));
+	}
+}
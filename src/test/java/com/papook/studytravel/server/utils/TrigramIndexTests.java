@@ -0,0 +1,59 @@
+package com.papook.studytravel.server.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TrigramIndexTests {
+	private TrigramIndex index;
+
+	@BeforeEach
+	public void setUp() {
+		index = new TrigramIndex();
+		index.put(1L, "Technical University of Munich");
+		index.put(2L, "University of Vienna");
+		index.put(3L, "Munich University of Applied Sciences");
+	}
+
+	@Test
+	public void testFindCandidates() {
+		assertEquals(Optional.of(Set.of(1L, 3L)), index.findCandidates("munich"));
+		assertEquals(Optional.of(Set.of(1L, 2L, 3L)), index.findCandidates("UNIVERSITY"));
+		assertEquals(Optional.of(Set.of(2L)), index.findCandidates("Vienna"));
+		assertEquals(Optional.of(Set.of()), index.findCandidates("Berlin"));
+	}
+
+	@Test
+	public void testShortSearchCannotUseIndex() {
+		assertTrue(index.findCandidates("").isEmpty());
+		assertTrue(index.findCandidates("Mu").isEmpty());
+	}
+
+	@Test
+	public void testPutReplacesText() {
+		index.put(2L, "University of Graz");
+
+		assertEquals(Optional.of(Set.of()), index.findCandidates("Vienna"));
+		assertEquals(Optional.of(Set.of(2L)), index.findCandidates("Graz"));
+		assertEquals(3, index.size());
+	}
+
+	@Test
+	public void testRemove() {
+		index.remove(1L);
+		index.removeAll(List.of(3L));
+
+		assertEquals(Optional.of(Set.of()), index.findCandidates("Munich"));
+		assertEquals(1, index.size());
+
+		index.clear();
+		assertEquals(Optional.of(Set.of()), index.findCandidates("Vienna"));
+		assertEquals(0, index.size());
+	}
+}